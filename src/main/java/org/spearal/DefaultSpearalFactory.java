@@ -20,13 +20,18 @@ package org.spearal;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
 
 import org.spearal.configuration.Configurable;
 import org.spearal.configuration.PartialObjectFactory;
 import org.spearal.impl.SpearalContextImpl;
 import org.spearal.impl.SpearalDecoderImpl;
 import org.spearal.impl.SpearalEncoderImpl;
+import org.spearal.impl.SpearalFramedDecoderImpl;
+import org.spearal.impl.SpearalFramedEncoderImpl;
 import org.spearal.impl.SpearalPrinterImpl;
+import org.spearal.impl.SpearalReaderImpl;
 import org.spearal.impl.alias.AliasStrategyImpl;
 import org.spearal.impl.coder.ArrayCoder;
 import org.spearal.impl.coder.BeanCoder;
@@ -43,6 +48,9 @@ import org.spearal.impl.instantiator.CollectionInstantiator;
 import org.spearal.impl.instantiator.MapInstantiator;
 import org.spearal.impl.instantiator.ProxyInstantiator;
 import org.spearal.impl.introspector.IntrospectorImpl;
+import org.spearal.impl.io.ByteBufferInputStream;
+import org.spearal.impl.io.ByteBufferOutputStream;
+import org.spearal.impl.io.ChannelOutputStream;
 import org.spearal.impl.loader.TypeLoaderImpl;
 import org.spearal.impl.partial.NoProxyPartialObjectFactory;
 import org.spearal.impl.property.SimplePropertiesFactory;
@@ -143,11 +151,63 @@ public class DefaultSpearalFactory implements SpearalFactory {
 		return new SpearalEncoderImpl(context, request, out);
 	}
 	
+	@Override
+	public SpearalEncoder newByteBufferEncoder(ByteBuffer buffer) {
+		return newEncoder(new ByteBufferOutputStream(buffer));
+	}
+	
+	@Override
+	public SpearalEncoder newChannelEncoder(WritableByteChannel channel) {
+		return newEncoder(new ChannelOutputStream(channel));
+	}
+	
+	@Override
+	public SpearalByteArrayEncoder newByteArrayEncoder() {
+		return newByteArrayEncoder(null);
+	}
+	
+	@Override
+	public SpearalByteArrayEncoder newByteArrayEncoder(SpearalPropertyFilter request) {
+		return new SpearalEncoderImpl(context, request, (OutputStream)null);
+	}
+	
 	@Override
 	public SpearalDecoder newDecoder(InputStream in) {
 		return new SpearalDecoderImpl(context, in);
 	}
 	
+	@Override
+	public SpearalDecoder newDecoder(byte[] bytes, int offset, int length) {
+		return new SpearalDecoderImpl(context, bytes, offset, length);
+	}
+	
+	@Override
+	public SpearalDecoder newDecoder(ByteBuffer buffer) {
+		if (buffer.hasArray())
+			return newDecoder(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+		return newDecoder(new ByteBufferInputStream(buffer.duplicate()));
+	}
+	
+	@Override
+	public SpearalFramedEncoder newFramedEncoder(OutputStream out) {
+		return new SpearalFramedEncoderImpl(context, out);
+	}
+	
+	@Override
+	public SpearalFramedDecoder newFramedDecoder(InputStream in) {
+		return new SpearalFramedDecoderImpl(context, in);
+	}
+	
+	@Override
+	public SpearalFramedDecoder newFramedDecoder(InputStream in, int maxFrameSize) {
+		return new SpearalFramedDecoderImpl(context, in, maxFrameSize);
+	}
+	
+	@Override
+	public SpearalReader newReader(InputStream in) {
+		return new SpearalReaderImpl(context, in);
+	}
+	
 	@Override
 	public SpearalPrinter newPrinter(PrintStream out) {
 		return new SpearalPrinterImpl(out);
@@ -0,0 +1,139 @@
+/**
+ * == @Spearal ==>
+ * 
+ * Copyright (C) 2014 Franck WOLFF & William DRAI (http://www.spearal.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spearal;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.spearal.impl.SpearalDecoderImpl;
+import org.spearal.impl.SpearalEncoderImpl;
+
+/**
+ * A {@link SpearalFactory} that recycles encoders and decoders. Each thread keeps at most
+ * one free encoder and one free decoder: an instance handed out by <code>newEncoder</code>
+ * or <code>newDecoder</code> may be given back with <code>release</code> once the current
+ * message is completely written or read, and will be reset and reused by the next call
+ * made from the same thread. Per-use settings (tree mode, references window) are restored
+ * to their defaults on release.
+ * 
+ * <p>A released instance, as well as the partial objects map of a released decoder, must
+ * not be used anymore by the caller. Buffers of released byte array encoders are not reused
+ * if they were returned by <code>getBuffer()</code> or <code>toByteBuffer()</code> (these
+ * views stay valid after the release), nor if they grew beyond the maximum retained capacity
+ * ({@value #DEFAULT_MAX_RETAINED_CAPACITY} bytes by default), so a thread never keeps a huge
+ * buffer after a single large message.</p>
+ * 
+ * @author Franck WOLFF
+ */
+public class PooledSpearalFactory extends DefaultSpearalFactory {
+	
+	public static final int DEFAULT_MAX_RETAINED_CAPACITY = 64 * 1024;
+	
+	private final ThreadLocal<SpearalEncoderImpl> freeEncoder = new ThreadLocal<SpearalEncoderImpl>();
+	private final ThreadLocal<SpearalDecoderImpl> freeDecoder = new ThreadLocal<SpearalDecoderImpl>();
+	
+	private final int maxRetainedCapacity;
+
+	public PooledSpearalFactory() {
+		this(true);
+	}
+
+	public PooledSpearalFactory(boolean loadServices) {
+		this(loadServices, DEFAULT_MAX_RETAINED_CAPACITY);
+	}
+
+	public PooledSpearalFactory(boolean loadServices, int maxRetainedCapacity) {
+		super(loadServices);
+		
+		if (maxRetainedCapacity <= 0)
+			throw new IllegalArgumentException("Illegal max retained capacity: " + maxRetainedCapacity);
+		this.maxRetainedCapacity = maxRetainedCapacity;
+	}
+	
+	public int getMaxRetainedCapacity() {
+		return maxRetainedCapacity;
+	}
+
+	@Override
+	public SpearalEncoder newEncoder(OutputStream out) {
+		return newEncoder(out, null);
+	}
+
+	@Override
+	public SpearalEncoder newEncoder(OutputStream out, SpearalPropertyFilter request) {
+		SpearalEncoderImpl encoder = freeEncoder.get();
+		if (encoder == null)
+			return super.newEncoder(out, request);
+		
+		freeEncoder.set(null);
+		encoder.reset(out, request);
+		return encoder;
+	}
+
+	@Override
+	public SpearalByteArrayEncoder newByteArrayEncoder(SpearalPropertyFilter request) {
+		SpearalEncoderImpl encoder = freeEncoder.get();
+		if (encoder == null)
+			return super.newByteArrayEncoder(request);
+		
+		freeEncoder.set(null);
+		encoder.reset(null, request);
+		return encoder;
+	}
+
+	@Override
+	public SpearalDecoder newDecoder(InputStream in) {
+		SpearalDecoderImpl decoder = freeDecoder.get();
+		if (decoder == null)
+			return super.newDecoder(in);
+		
+		freeDecoder.set(null);
+		decoder.reset(in);
+		return decoder;
+	}
+
+	@Override
+	public SpearalDecoder newDecoder(byte[] bytes, int offset, int length) {
+		SpearalDecoderImpl decoder = freeDecoder.get();
+		if (decoder == null)
+			return super.newDecoder(bytes, offset, length);
+		
+		freeDecoder.set(null);
+		decoder.reset(bytes, offset, length);
+		return decoder;
+	}
+	
+	public void release(SpearalEncoder encoder) {
+		if (encoder instanceof SpearalEncoderImpl && encoder.getContext() == getContext()) {
+			SpearalEncoderImpl encoderImpl = (SpearalEncoderImpl)encoder;
+			encoderImpl.reset(null);
+			encoderImpl.resetSettings();
+			encoderImpl.recycleBuffer(maxRetainedCapacity);
+			freeEncoder.set(encoderImpl);
+		}
+	}
+	
+	public void release(SpearalDecoder decoder) {
+		if (decoder instanceof SpearalDecoderImpl && decoder.getContext() == getContext()) {
+			SpearalDecoderImpl decoderImpl = (SpearalDecoderImpl)decoder;
+			decoderImpl.reset(null);
+			decoderImpl.resetSettings();
+			freeDecoder.set(decoderImpl);
+		}
+	}
+}
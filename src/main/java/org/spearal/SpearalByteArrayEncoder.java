@@ -0,0 +1,50 @@
+/**
+ * == @Spearal ==>
+ * 
+ * Copyright (C) 2014 Franck WOLFF & William DRAI (http://www.spearal.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spearal;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * An encoder writing into a growable byte array instead of an <code>OutputStream</code>.
+ * The encoded bytes are the first {@link #size()} bytes of {@link #getBuffer()} and can be
+ * accessed without copy until the encoder is reset or written again. When a
+ * {@link org.spearal.configuration.BlockCodec} is configured, these bytes are the
+ * compressed blocks, as written by stream encoders.
+ * 
+ * <p><b>Warning:</b> {@link #getBuffer()} and {@link #toByteBuffer()} return views of the
+ * internal buffer, not copies. They may be overwritten by subsequent writes to this
+ * encoder. {@link #toByteArray()} returns a copy that is always safe to keep. Encoders
+ * released to a {@link PooledSpearalFactory} never reuse a buffer that was handed out this
+ * way, so such views stay valid after the release.</p>
+ * 
+ * @author Franck WOLFF
+ */
+public interface SpearalByteArrayEncoder extends SpearalEncoder {
+
+	byte[] getBuffer();
+	int size();
+	
+	byte[] toByteArray();
+	ByteBuffer toByteBuffer();
+	
+	void writeTo(OutputStream out) throws IOException;
+	void writeTo(WritableByteChannel channel) throws IOException;
+}
@@ -20,12 +20,16 @@ package org.spearal;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.lang.reflect.Type;
+import java.util.concurrent.Executor;
 
+import org.spearal.configuration.BeanReaderFactory.BeanReader;
 import org.spearal.configuration.CoderProvider.Coder;
+import org.spearal.configuration.BlockCodec;
 import org.spearal.configuration.Configurable;
 import org.spearal.configuration.FilteredBeanDescriptorFactory.FilteredBeanDescriptor;
 import org.spearal.configuration.PropertyFactory.Property;
 import org.spearal.configuration.Securizer;
+import org.spearal.configuration.StringDictionary;
 
 /**
  * @author Franck WOLFF
@@ -37,6 +41,19 @@ public interface SpearalContext {
 	
 	Securizer getSecurizer();
 	
+	/**
+	 * Returns the strings of the configured {@link StringDictionary}, or an
+	 * empty array if there is none. The returned array is shared by all
+	 * encoders and decoders of this context and must not be modified.
+	 */
+	String[] getDictionaryStrings();
+	
+	/**
+	 * Returns the configured {@link BlockCodec}, or <code>null</code> if blocks
+	 * are not compressed.
+	 */
+	BlockCodec getBlockCodec();
+	
 	String alias(Class<?> cls);
 	String unalias(String aliasedClassName);
 	
@@ -62,4 +79,39 @@ public interface SpearalContext {
 	Property createProperty(String name, Field field, Method getter, Method setter);
 	
 	FilteredBeanDescriptor createDescriptor(SpearalPropertyFilter filter, Object value);
+	FilteredBeanDescriptor getDescriptor(SpearalPropertyFilter filter, Object value);
+	
+	BeanReader createBeanReader(Class<?> cls, Property[] properties);
+	
+	/**
+	 * Eagerly fills the context caches (coders, introspected properties,
+	 * decoding class descriptors, bean readers and partial object proxy
+	 * classes) for the given classes, so the first real encoding or decoding
+	 * runs at steady state speed. Classes are introspected and generated
+	 * classes are created, but no instance is ever created.
+	 * <br>
+	 * Encoding descriptors are not primed: {@link #getDescriptor(SpearalPropertyFilter, Object)}
+	 * needs a bean instance, so the first encoding of each class still builds
+	 * its descriptor (a class description computed from the cached properties).
+	 */
+	void warmUp(Class<?>... classes);
+	
+	/**
+	 * Same as {@link #warmUp(Class...)}, but classes are processed in
+	 * parallel on the given executor (on the calling thread when
+	 * <code>null</code>). This method returns when all classes are done.
+	 */
+	void warmUp(Executor executor, Class<?>... classes);
+	
+	/**
+	 * Warms up all classes found in the given package and its subpackages.
+	 */
+	void warmUp(ClassLoader classLoader, String packageName);
+	
+	/**
+	 * Same as {@link #warmUp(ClassLoader, String)}, but classes are processed
+	 * in parallel on the given executor, as {@link #warmUp(Executor, Class...)}
+	 * does.
+	 */
+	void warmUp(Executor executor, ClassLoader classLoader, String packageName);
 }
@@ -18,6 +18,7 @@
 package org.spearal;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.lang.reflect.Type;
 import java.util.Collection;
 import java.util.List;
@@ -66,6 +67,14 @@ public interface SpearalDecoder {
 
 	SpearalContext getContext();
 	
+	/**
+	 * In tree mode, the decoder doesn't keep decoded objects for later
+	 * references and fails on any object reference. Only use it with data
+	 * written by an encoder in tree mode.
+	 */
+	boolean isTreeMode();
+	void setTreeMode(boolean treeMode);
+	
 	Path getPath();
 	boolean containsPartialObjects();
 	Map<Object, List<PathSegment>> getPartialObjectsMap();
@@ -73,7 +82,18 @@ public interface SpearalDecoder {
 	Object readAny() throws IOException;
 	<T> T readAny(Type targetType) throws IOException;
 	
+	/**
+	 * Skips the next value at the byte level, without creating any object. If
+	 * an object of the skipped value is referenced by a subsequent value, the
+	 * skipped value is decoded at this point when the input is a byte array
+	 * or a byte buffer (without block codec), and an <code>IOException</code>
+	 * is thrown when it is a stream.
+	 */
 	void skipAny() throws IOException;
 	
 	void printAny(SpearalPrinter printer) throws IOException;
+	
+	void reset(InputStream in);
+	
+	void reset(byte[] bytes, int offset, int length);
 }
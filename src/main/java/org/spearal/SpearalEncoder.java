@@ -18,6 +18,7 @@
 package org.spearal;
 
 import java.io.IOException;
+import java.io.OutputStream;
 
 /**
  * @author Franck WOLFF
@@ -27,5 +28,32 @@ public interface SpearalEncoder {
 	SpearalContext getContext();
 	SpearalPropertyFilter getPropertyFilter();
 	
+	/**
+	 * In tree mode, the encoder doesn't track object identities: shared
+	 * objects are written again each time they are encountered, and a cycle
+	 * along the current path is reported as an <code>IOException</code>.
+	 * The output remains readable by any decoder.
+	 */
+	boolean isTreeMode();
+	void setTreeMode(boolean treeMode);
+	
 	void writeAny(Object o) throws IOException;
+	
+	/**
+	 * Clears the strings and objects references tables of this encoder and
+	 * writes a reset marker, so that the decoder clears its own tables at the
+	 * same point. Must be called between two root values.
+	 */
+	void resetReferences() throws IOException;
+	
+	/**
+	 * When greater than 0, references are automatically reset before a root
+	 * value once the encoder holds at least this number of references. This
+	 * bounds the memory used by long-lived encoders and their decoders.
+	 */
+	int getReferencesWindow();
+	void setReferencesWindow(int maxReferences);
+	
+	void reset(OutputStream out);
+	void reset(OutputStream out, SpearalPropertyFilter propertyFilter);
 }
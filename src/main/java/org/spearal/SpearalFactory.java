@@ -20,6 +20,8 @@ package org.spearal;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
 
 /**
  * @author William DRAI
@@ -32,7 +34,27 @@ public interface SpearalFactory {
 
 	SpearalEncoder newEncoder(OutputStream out, SpearalPropertyFilter request);
 
+	SpearalEncoder newByteBufferEncoder(ByteBuffer buffer);
+
+	SpearalEncoder newChannelEncoder(WritableByteChannel channel);
+
+	SpearalByteArrayEncoder newByteArrayEncoder();
+
+	SpearalByteArrayEncoder newByteArrayEncoder(SpearalPropertyFilter request);
+
 	SpearalDecoder newDecoder(InputStream in);
 
+	SpearalDecoder newDecoder(byte[] bytes, int offset, int length);
+
+	SpearalDecoder newDecoder(ByteBuffer buffer);
+
+	SpearalFramedEncoder newFramedEncoder(OutputStream out);
+
+	SpearalFramedDecoder newFramedDecoder(InputStream in);
+
+	SpearalFramedDecoder newFramedDecoder(InputStream in, int maxFrameSize);
+
+	SpearalReader newReader(InputStream in);
+
 	SpearalPrinter newPrinter(PrintStream out);
 }
\ No newline at end of file
@@ -0,0 +1,59 @@
+/**
+ * == @Spearal ==>
+ * 
+ * Copyright (C) 2014 Franck WOLFF & William DRAI (http://www.spearal.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spearal;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.Map;
+
+import org.spearal.SpearalDecoder.PathSegment;
+
+/**
+ * A decoder reading frames written by a {@link SpearalFramedEncoder}. Frames
+ * must be read in order, and all of them, because strings references are
+ * shared by the frames of a session.
+ * 
+ * @author Franck WOLFF
+ */
+public interface SpearalFramedDecoder {
+
+	SpearalContext getContext();
+	
+	/**
+	 * Reads the next frame from the underlying stream, blocking until it is
+	 * complete.
+	 * 
+	 * @return <code>false</code> if the end of the stream was reached.
+	 * @throws IOException if the frame is larger than the maximum frame size
+	 * of this decoder (16MB by default).
+	 */
+	boolean nextFrame() throws IOException;
+	
+	/**
+	 * @return <code>true</code> if all root values of the current frame have
+	 * been read.
+	 */
+	boolean isEndOfFrame() throws IOException;
+	
+	Object readAny() throws IOException;
+	<T> T readAny(Type targetType) throws IOException;
+	
+	boolean containsPartialObjects();
+	Map<Object, List<PathSegment>> getPartialObjectsMap();
+}
@@ -0,0 +1,56 @@
+/**
+ * == @Spearal ==>
+ * 
+ * Copyright (C) 2014 Franck WOLFF & William DRAI (http://www.spearal.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spearal;
+
+import java.io.IOException;
+
+/**
+ * An encoder writing a sequence of frames to a persistent stream. Each frame is
+ * made of an unsigned varint length followed by this number of bytes of Spearal
+ * data (one or more root values). Objects references never span frames, but
+ * strings references (including class descriptions) are kept for the whole
+ * session, so that a description already sent costs a reference in later frames.
+ * 
+ * @author Franck WOLFF
+ */
+public interface SpearalFramedEncoder {
+
+	SpearalContext getContext();
+	SpearalPropertyFilter getPropertyFilter();
+	
+	/**
+	 * Appends a root value to the current frame. Nothing is written to the
+	 * underlying stream until {@link #flush()} is called.
+	 */
+	void writeAny(Object o) throws IOException;
+	
+	/**
+	 * Ends the current frame (if it isn't empty), writes it to the underlying
+	 * stream and flushes the stream.
+	 */
+	void flush() throws IOException;
+	
+	/**
+	 * When greater than 0, the strings dictionary is cleared before a root
+	 * value once it holds at least this number of strings.
+	 * 
+	 * @see SpearalEncoder#setReferencesWindow(int)
+	 */
+	int getReferencesWindow();
+	void setReferencesWindow(int maxReferences);
+}
@@ -36,6 +36,7 @@ public interface SpearalPrinter {
 
 	void printString(StringData value) throws IOException;
 	void printByteArray(byte[] value, int index, boolean reference) throws IOException;
+	void printPackedArray(Object value, int index, boolean reference) throws IOException;
 
 	void printDateTime(SpearalDateTime value) throws IOException;
 	
@@ -0,0 +1,125 @@
+/**
+ * == @Spearal ==>
+ * 
+ * Copyright (C) 2014 Franck WOLFF & William DRAI (http://www.spearal.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spearal;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.spearal.impl.SpearalDateTime;
+
+/**
+ * Pull-based reader over a Spearal stream. Each call to {@link #next()} consumes
+ * one token and returns its {@link Event}; no object graph is materialized.
+ * 
+ * @author Franck WOLFF
+ */
+public interface SpearalReader {
+
+	public enum Event {
+		NULL,
+		BOOLEAN,
+		INTEGRAL,
+		BIG_INTEGRAL,
+		FLOATING,
+		BIG_FLOATING,
+		STRING,
+		BYTE_ARRAY,
+		BYTE_ARRAY_REFERENCE,
+		DATE_TIME,
+		COLLECTION_START,
+		COLLECTION_END,
+		COLLECTION_REFERENCE,
+		PACKED_ARRAY,
+		PACKED_ARRAY_REFERENCE,
+		MAP_START,
+		MAP_END,
+		MAP_REFERENCE,
+		ENUM,
+		CLASS,
+		BEAN_START,
+		PROPERTY,
+		BEAN_END,
+		BEAN_REFERENCE,
+		END_OF_STREAM
+	}
+	
+	SpearalContext getContext();
+	
+	void reset(InputStream in);
+	
+	Event next() throws IOException;
+	
+	/**
+	 * Skips the value announced by the current event: the whole container
+	 * after a <code>*_START</code> event, the property value after a
+	 * <code>PROPERTY</code> event, the pending data after a <code>BYTE_ARRAY</code>
+	 * or <code>PACKED_ARRAY</code> event. Does nothing otherwise.
+	 */
+	void skip() throws IOException;
+	
+	Event getEvent();
+	
+	/**
+	 * Number of collections, maps and beans currently opened.
+	 */
+	int getDepth();
+
+	boolean getBoolean();
+	long getLong();
+	double getDouble();
+	
+	/**
+	 * Returns the value of a <code>STRING</code> event, the representation of a
+	 * <code>BIG_INTEGRAL</code> or <code>BIG_FLOATING</code> event, the constant name
+	 * of an <code>ENUM</code> event, the class description of a <code>BEAN_START</code>
+	 * event or the name of a <code>PROPERTY</code> event.
+	 */
+	String getString();
+	
+	/**
+	 * Returns the class name of an <code>ENUM</code> or <code>CLASS</code> event.
+	 */
+	String getClassName();
+	
+	SpearalDateTime getDateTime();
+	
+	/**
+	 * Returns the length of a <code>BYTE_ARRAY</code>, <code>PACKED_ARRAY</code>, <code>COLLECTION_START</code>
+	 * or <code>MAP_START</code> event, or the properties count of a <code>BEAN_START</code>
+	 * event.
+	 */
+	int getSize();
+	
+	/**
+	 * Returns the shared object index of a byte array, packed array, collection, map or bean, or
+	 * the referenced index of a <code>*_REFERENCE</code> event.
+	 */
+	int getIndex();
+	
+	/**
+	 * Reads the content of a <code>BYTE_ARRAY</code> event. Unless this method is
+	 * called, the bytes are skipped by the next call to {@link #next()}.
+	 */
+	byte[] readByteArray() throws IOException;
+	
+	/**
+	 * Reads the content of a <code>PACKED_ARRAY</code> event as a primitive array. Unless this
+	 * method is called, the elements are skipped by the next call to {@link #next()}.
+	 */
+	Object readPackedArray() throws IOException;
+}
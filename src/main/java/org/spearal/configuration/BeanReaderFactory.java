@@ -0,0 +1,42 @@
+/**
+ * == @Spearal ==>
+ * 
+ * Copyright (C) 2014 Franck WOLFF & William DRAI (http://www.spearal.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spearal.configuration;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+
+import org.spearal.SpearalContext;
+import org.spearal.configuration.PropertyFactory.Property;
+import org.spearal.impl.ExtendedSpearalDecoder;
+
+/**
+ * @author Franck WOLFF
+ */
+public interface BeanReaderFactory extends Configurable {
+	
+	public interface BeanReader {
+		
+		Object instantiate(SpearalContext context)
+			throws InstantiationException, IllegalAccessException;
+		
+		void read(ExtendedSpearalDecoder decoder, Object holder, int index, int parameterizedType)
+			throws IOException, InstantiationException, IllegalAccessException, InvocationTargetException;
+	}
+
+	BeanReader createBeanReader(SpearalContext context, Class<?> cls, Property[] properties);
+}
@@ -0,0 +1,83 @@
+/**
+ * == @Spearal ==>
+ * 
+ * Copyright (C) 2014 Franck WOLFF & William DRAI (http://www.spearal.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spearal.configuration;
+
+import java.io.IOException;
+
+/**
+ * A compression codec used by all encoders and decoders, whatever their input
+ * or output (streams, channels, byte buffers or byte arrays): when configured,
+ * each block flushed by an encoder is written with a small header, compressed
+ * unless it is too small or incompressible. Both ends must be configured with
+ * the same codec. Framed sessions are never compressed.
+ * 
+ * @author Franck WOLFF
+ */
+public interface BlockCodec extends Configurable {
+	
+	public interface Compressor {
+		
+		/**
+		 * Compresses <code>src</code> into <code>dst</code>.
+		 * 
+		 * @return the compressed length, or -1 if it doesn't fit into <code>dstLength</code>
+		 * bytes.
+		 */
+		int compress(byte[] src, int srcOffset, int srcLength, byte[] dst, int dstOffset, int dstLength);
+	}
+	
+	public interface Decompressor {
+		
+		/**
+		 * Decompresses <code>src</code> into exactly <code>dstLength</code> bytes of
+		 * <code>dst</code>.
+		 */
+		void decompress(byte[] src, int srcOffset, int srcLength, byte[] dst, int dstOffset, int dstLength)
+			throws IOException;
+	}
+
+	/**
+	 * Returns the identifier written in compressed blocks (1...255).
+	 */
+	int getId();
+	
+	/**
+	 * Returns the size under which blocks are never compressed.
+	 */
+	int getMinBlockSize();
+	
+	/**
+	 * Returns the size of the largest block, compressed or not: larger writes are
+	 * split into several blocks, and decoders reject any block header above this
+	 * size.
+	 */
+	int getMaxBlockSize();
+	
+	/**
+	 * Returns a new (not thread-safe) compressor, used by one encoder. Compressors
+	 * are never closed and must not hold native resources between two calls.
+	 */
+	Compressor newCompressor();
+	
+	/**
+	 * Returns a new (not thread-safe) decompressor, used by one decoder.
+	 * Decompressors are never closed and must not hold native resources between
+	 * two calls.
+	 */
+	Decompressor newDecompressor();
+}
@@ -0,0 +1,35 @@
+/**
+ * == @Spearal ==>
+ * 
+ * Copyright (C) 2014 Franck WOLFF & William DRAI (http://www.spearal.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spearal.configuration;
+
+/**
+ * A static dictionary of strings (class descriptions, enum names, common values)
+ * known to both ends. Encoders and decoders start their strings references
+ * tables with these strings, so that they are never sent in full. Both ends
+ * must be configured with exactly the same strings, in the same order.
+ * 
+ * @author Franck WOLFF
+ */
+public interface StringDictionary extends Configurable {
+
+	/**
+	 * Returns the strings of this dictionary, indexed by their reference
+	 * number. The returned array must not be modified.
+	 */
+	String[] getStrings();
+}
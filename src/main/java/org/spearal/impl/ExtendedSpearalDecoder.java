@@ -22,6 +22,7 @@ import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Type;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.util.Collection;
 import java.util.Map;
 
 import org.spearal.SpearalDecoder;
@@ -53,10 +54,16 @@ public interface ExtendedSpearalDecoder extends SpearalDecoder {
 	Object readCollection(int parameterizedType, Type targetType) throws IOException;
 	void readCollection(int parameterizedType, Object holder, Property property)
 		throws IOException, InstantiationException, IllegalAccessException, InvocationTargetException;
+	Object readCollectionValue(int parameterizedType, Collection<?> value, Property property)
+		throws IOException, InstantiationException, IllegalAccessException;
+
+	Object readPackedArray(int parameterizedType, Type targetType) throws IOException;
 
 	Map<?, ?> readMap(int parameterizedType, Type targetType) throws IOException;
 	void readMap(int parameterizedType, Object holder, Property property)
 		throws IOException, InstantiationException, IllegalAccessException, InvocationTargetException;
+	Object readMapValue(int parameterizedType, Map<?, ?> value, Property property)
+		throws IOException, InstantiationException, IllegalAccessException;
 	
 	Enum<?> readEnum(int parameterizedType, Type targetType) throws IOException;
 
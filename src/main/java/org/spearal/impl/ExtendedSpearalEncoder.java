@@ -51,6 +51,7 @@ public interface ExtendedSpearalEncoder extends SpearalEncoder {
 	
 	void writeByteArray(byte[] value) throws IOException;
 	void writeArray(Object value) throws IOException;
+	void writePackedArray(Object value) throws IOException;
 	
 	void writeCollection(Collection<?> value) throws IOException;
 	void writeMap(Map<?, ?> value) throws IOException;
@@ -0,0 +1,67 @@
+/**
+ * == @Spearal ==>
+ * 
+ * Copyright (C) 2014 Franck WOLFF & William DRAI (http://www.spearal.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spearal.impl;
+
+/**
+ * Element encodings of a {@link SpearalType#PACKED_ARRAY}: signed integral values are
+ * written as zigzag varints, floating values as fixed-width IEEE 754 bits and booleans
+ * as a bitset (least significant bit first).
+ * 
+ * @author Franck WOLFF
+ */
+public enum PackedArrayType {
+
+	INT(0x00, int.class),
+	LONG(0x01, long.class),
+	SHORT(0x02, short.class),
+	DOUBLE(0x03, double.class),
+	FLOAT(0x04, float.class),
+	BOOLEAN(0x05, boolean.class);
+	
+	private static final PackedArrayType[] TYPES = PackedArrayType.values();
+	
+	private final int id;
+	private final Class<?> componentType;
+	
+	PackedArrayType(int id, Class<?> componentType) {
+		this.id = id;
+		this.componentType = componentType;
+	}
+	
+	public int id() {
+		return id;
+	}
+	
+	public Class<?> componentType() {
+		return componentType;
+	}
+	
+	public static PackedArrayType valueOf(int id) {
+		if (id >= 0 && id < TYPES.length)
+			return TYPES[id];
+		throw new IllegalArgumentException("Illegal packed array type: " + id);
+	}
+	
+	public static PackedArrayType valueOf(Class<?> componentType) {
+		for (PackedArrayType type : TYPES) {
+			if (type.componentType == componentType)
+				return type;
+		}
+		return null;
+	}
+}
@@ -19,14 +19,21 @@ package org.spearal.impl;
 
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.lang.reflect.Proxy;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.spearal.SpearalContext;
 import org.spearal.SpearalPropertyFilter;
 import org.spearal.configuration.AliasStrategy;
+import org.spearal.configuration.BeanReaderFactory;
+import org.spearal.configuration.BlockCodec;
+import org.spearal.configuration.BeanReaderFactory.BeanReader;
 import org.spearal.configuration.CoderProvider;
 import org.spearal.configuration.CoderProvider.Coder;
 import org.spearal.configuration.Configurable;
@@ -43,14 +50,21 @@ import org.spearal.configuration.PropertyInstantiatorProvider;
 import org.spearal.configuration.PropertyInstantiatorProvider.PropertyInstantiator;
 import org.spearal.configuration.Repeatable;
 import org.spearal.configuration.Securizer;
+import org.spearal.configuration.StringDictionary;
 import org.spearal.configuration.TypeInstantiatorProvider;
 import org.spearal.configuration.TypeInstantiatorProvider.TypeInstantiator;
 import org.spearal.configuration.TypeLoader;
 import org.spearal.configuration.UnfilterablePropertiesProvider;
 import org.spearal.impl.cache.AnyMap.ValueProvider;
-import org.spearal.impl.cache.CopyOnWriteDualIdentityMap;
-import org.spearal.impl.cache.CopyOnWriteMap;
+import org.spearal.impl.cache.BoundedConcurrentMap;
+import org.spearal.impl.cache.ConcurrentAnyMap;
+import org.spearal.impl.cache.ConcurrentDualIdentityMap;
 import org.spearal.impl.cache.DualIdentityMap;
+import org.spearal.impl.coder.BeanCoder;
+import org.spearal.impl.descriptor.ClassDescriptor;
+import org.spearal.impl.partial.PreparablePartialObjectFactory;
+import org.spearal.impl.util.ClassDescriptionUtil;
+import org.spearal.impl.util.PackageScanner;
 
 /**
  * @author Franck WOLFF
@@ -63,32 +77,40 @@ public class SpearalContextImpl implements SpearalContext {
 	private Securizer securizer;
 	private PartialObjectFactory partialObjectFactory;
 	private AliasStrategy aliasStrategy;
+	private BeanReaderFactory beanReaderFactory;
+	private String[] dictionaryStrings = EMPTY_STRING_ARRAY;
+	private BlockCodec blockCodec;
 	
 	private final List<TypeInstantiatorProvider> typeInstantiatorProviders;
-	private final CopyOnWriteMap<Type, Object, TypeInstantiator> typeInstantiatorsCache;
+	private final ConcurrentAnyMap<Type, Object, TypeInstantiator> typeInstantiatorsCache;
 
 	private final List<PropertyInstantiatorProvider> propertyInstantiatorProviders;
-	private final CopyOnWriteMap<Property, Object, PropertyInstantiator> propertyInstantiatorsCache;
+	private final ConcurrentAnyMap<Property, Object, PropertyInstantiator> propertyInstantiatorsCache;
 	
 	private final List<ConverterProvider> converterProviders;
-	private final CopyOnWriteDualIdentityMap<Class<?>, Type, Converter<?>> convertersCache;
+	private final ConcurrentDualIdentityMap<Class<?>, Type, Converter<?>> convertersCache;
 	
 	private final List<CoderProvider> coderProviders;
-	private final CopyOnWriteMap<Class<?>, Object, Coder> codersCache;
+	private final ConcurrentAnyMap<Class<?>, Object, Coder> codersCache;
 	
 	private final List<UnfilterablePropertiesProvider> unfilterablePropertiesProviders;
-	private final CopyOnWriteMap<Class<?>, Object, String[]> unfilterablePropertiesCache;
+	private final ConcurrentAnyMap<Class<?>, Object, String[]> unfilterablePropertiesCache;
 	
 	private final List<PropertyFactory> propertyFactories;
 	
 	private final List<FilteredBeanDescriptorFactory> descriptorFactories;
+	private final ConcurrentAnyMap<DescriptorKey, FilteredBeanDescriptor, FilteredBeanDescriptor> descriptorsCache;
+	
+	private final BoundedConcurrentMap<ClassDescriptorKey, Object, ClassDescriptor> classDescriptorsCache;
 	
 	private static final String[] EMPTY_STRING_ARRAY = new String[] {};
 	
+	private static final int MAX_CLASS_DESCRIPTORS = 4096;
+	
 	
 	public SpearalContextImpl() {
 		this.typeInstantiatorProviders = new ArrayList<TypeInstantiatorProvider>();
-		this.typeInstantiatorsCache = new CopyOnWriteMap<Type, Object, TypeInstantiator>(true,
+		this.typeInstantiatorsCache = new ConcurrentAnyMap<Type, Object, TypeInstantiator>(true,
 			new ValueProvider<Type, Object, TypeInstantiator>() {
 				@Override
 				public TypeInstantiator createValue(SpearalContext context, Type key, Object unused) {
@@ -103,7 +125,7 @@ public class SpearalContextImpl implements SpearalContext {
 		);
 
 		this.propertyInstantiatorProviders = new ArrayList<PropertyInstantiatorProvider>();
-		this.propertyInstantiatorsCache = new CopyOnWriteMap<Property, Object, PropertyInstantiator>(false,
+		this.propertyInstantiatorsCache = new ConcurrentAnyMap<Property, Object, PropertyInstantiator>(false,
 			new ValueProvider<Property, Object, PropertyInstantiator>() {
 				@Override
 				public PropertyInstantiator createValue(SpearalContext context, Property key, Object unused) {
@@ -118,7 +140,7 @@ public class SpearalContextImpl implements SpearalContext {
 		);
 		
 		this.converterProviders = new ArrayList<ConverterProvider>();
-		this.convertersCache = new CopyOnWriteDualIdentityMap<Class<?>, Type, Converter<?>>(
+		this.convertersCache = new ConcurrentDualIdentityMap<Class<?>, Type, Converter<?>>(
 			new DualIdentityMap.ValueProvider<Class<?>, Type, Converter<?>>() {
 				@Override
 				public Converter<?> createValue(SpearalContext context, Class<?> valueClass, Type targetType) {
@@ -133,7 +155,7 @@ public class SpearalContextImpl implements SpearalContext {
 		);
 		
 		this.coderProviders = new ArrayList<CoderProvider>();
-		this.codersCache = new CopyOnWriteMap<Class<?>, Object, Coder>(true,
+		this.codersCache = new ConcurrentAnyMap<Class<?>, Object, Coder>(true,
 			new ValueProvider<Class<?>, Object, Coder>() {
 				@Override
 				public Coder createValue(SpearalContext context, Class<?> key, Object param) {
@@ -148,7 +170,7 @@ public class SpearalContextImpl implements SpearalContext {
 		);
 		
 		this.unfilterablePropertiesProviders = new ArrayList<UnfilterablePropertiesProvider>();
-		this.unfilterablePropertiesCache = new CopyOnWriteMap<Class<?>, Object, String[]>(true,
+		this.unfilterablePropertiesCache = new ConcurrentAnyMap<Class<?>, Object, String[]>(true,
 			new ValueProvider<Class<?>, Object, String[]>() {
 				
 				@Override
@@ -166,6 +188,23 @@ public class SpearalContextImpl implements SpearalContext {
 		this.propertyFactories = new ArrayList<PropertyFactory>();
 		
 		this.descriptorFactories = new ArrayList<FilteredBeanDescriptorFactory>();
+		this.descriptorsCache = new ConcurrentAnyMap<DescriptorKey, FilteredBeanDescriptor, FilteredBeanDescriptor>(false,
+			new ValueProvider<DescriptorKey, FilteredBeanDescriptor, FilteredBeanDescriptor>() {
+				@Override
+				public FilteredBeanDescriptor createValue(SpearalContext context, DescriptorKey key, FilteredBeanDescriptor descriptor) {
+					return descriptor;
+				}
+			}
+		);
+		
+		this.classDescriptorsCache = new BoundedConcurrentMap<ClassDescriptorKey, Object, ClassDescriptor>(MAX_CLASS_DESCRIPTORS,
+			new ValueProvider<ClassDescriptorKey, Object, ClassDescriptor>() {
+				@Override
+				public ClassDescriptor createValue(SpearalContext context, ClassDescriptorKey key, Object unused) {
+					return ClassDescriptor.forDescription(context, key.description, key.targetType);
+				}
+			}
+		);
 	}
 
 	@Override
@@ -173,6 +212,16 @@ public class SpearalContextImpl implements SpearalContext {
 		return securizer;
 	}
 	
+	@Override
+	public String[] getDictionaryStrings() {
+		return dictionaryStrings;
+	}
+	
+	@Override
+	public BlockCodec getBlockCodec() {
+		return blockCodec;
+	}
+	
 	@Override
 	public void configure(Configurable configurable) {
 		configure(configurable, false);
@@ -243,6 +292,21 @@ public class SpearalContextImpl implements SpearalContext {
 				partialObjectFactory = (PartialObjectFactory)configurable;
 				added = true;
 			}
+			
+			if (configurable instanceof BeanReaderFactory) {
+				beanReaderFactory = (BeanReaderFactory)configurable;
+				added = true;
+			}
+			
+			if (configurable instanceof StringDictionary) {
+				dictionaryStrings = ((StringDictionary)configurable).getStrings().clone();
+				added = true;
+			}
+			
+			if (configurable instanceof BlockCodec) {
+				blockCodec = (BlockCodec)configurable;
+				added = true;
+			}
 		}
 		
 		if (!added)
@@ -287,7 +351,11 @@ public class SpearalContextImpl implements SpearalContext {
 
 	@Override
 	public Object instantiate(Type type, Object param) throws InstantiationException {
-		return typeInstantiatorsCache.getOrPutIfAbsent(this, type).instantiate(this, type, param);
+		return getTypeInstantiator(type).instantiate(this, type, param);
+	}
+	
+	public TypeInstantiator getTypeInstantiator(Type type) {
+		return typeInstantiatorsCache.getOrPutIfAbsent(this, type);
 	}
 
 	@Override
@@ -346,4 +414,196 @@ public class SpearalContextImpl implements SpearalContext {
 		}
 		throw new UnsupportedOperationException("Could not create bean descriptor for: " + value);
 	}
+	
+	@Override
+	public FilteredBeanDescriptor getDescriptor(SpearalPropertyFilter filter, Object value) {
+		if (value instanceof PartialObjectProxy)
+			return createDescriptor(filter, value);
+		
+		Class<?> cls = value.getClass();
+		DescriptorKey key = new DescriptorKey(cls, filter.get(cls));
+		
+		FilteredBeanDescriptor descriptor = descriptorsCache.get(key);
+		if (descriptor == null) {
+			descriptor = createDescriptor(filter, value);
+			if (descriptor.isCacheable())
+				descriptor = descriptorsCache.putIfAbsent(this, key, descriptor);
+		}
+		return descriptor;
+	}
+	
+	/**
+	 * Returns the (shared) class descriptor of the given class description
+	 * and target type. This is not part of the public {@link SpearalContext}
+	 * API: decoders use it when their context is a <code>SpearalContextImpl</code>.
+	 */
+	public ClassDescriptor getClassDescriptor(String description, Type targetType) {
+		return classDescriptorsCache.getOrPutIfAbsent(this, new ClassDescriptorKey(description, targetType), null);
+	}
+	
+	@Override
+	public BeanReader createBeanReader(Class<?> cls, Property[] properties) {
+		return (beanReaderFactory != null ? beanReaderFactory.createBeanReader(this, cls, properties) : null);
+	}
+	
+	@Override
+	public void warmUp(Class<?>... classes) {
+		warmUp((Executor)null, classes);
+	}
+	
+	@Override
+	public void warmUp(ClassLoader classLoader, String packageName) {
+		warmUp(null, classLoader, packageName);
+	}
+	
+	@Override
+	public void warmUp(Executor executor, ClassLoader classLoader, String packageName) {
+		List<Class<?>> classes = PackageScanner.findClasses(classLoader, packageName);
+		warmUp(executor, classes.toArray(new Class<?>[classes.size()]));
+	}
+
+	@Override
+	public void warmUp(Executor executor, Class<?>... classes) {
+		if (executor == null) {
+			for (Class<?> cls : classes)
+				warmUp(cls);
+			return;
+		}
+		
+		final CountDownLatch latch = new CountDownLatch(classes.length);
+		final AtomicReference<RuntimeException> error = new AtomicReference<RuntimeException>();
+		
+		for (final Class<?> cls : classes) {
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						warmUp(cls);
+					}
+					catch (RuntimeException e) {
+						error.compareAndSet(null, e);
+					}
+					finally {
+						latch.countDown();
+					}
+				}
+			});
+		}
+		
+		try {
+			latch.await();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while warming up", e);
+		}
+		
+		if (error.get() != null)
+			throw error.get();
+	}
+	
+	protected void warmUp(Class<?> cls) {
+		try {
+			if (!(getCoder(cls) instanceof BeanCoder) || cls.isInterface() || Modifier.isAbstract(cls.getModifiers()))
+				return;
+			
+			// Only introspection and class generation: classes are never instantiated.
+			Property[] properties = getProperties(cls);
+			getUnfilterableProperties(cls);
+			
+			if (isDecodable(cls)) {
+				String description = ClassDescriptionUtil.createAliasedDescription(this, cls, properties);
+				getClassDescriptor(description, null);
+				getClassDescriptor(description, cls);
+				
+				if (partialObjectFactory instanceof PreparablePartialObjectFactory)
+					((PreparablePartialObjectFactory)partialObjectFactory).prepare(this, cls);
+			}
+		}
+		catch (Exception e) {
+			throw new RuntimeException("Could not warm up: " + cls, e);
+		}
+	}
+	
+	private boolean isDecodable(Class<?> cls) {
+		try {
+			securizer.checkDecodable(cls);
+			return true;
+		}
+		catch (SecurityException e) {
+			return false;
+		}
+	}
+	
+	private static final class DescriptorKey {
+		
+		private final Class<?> cls;
+		private final Property[] properties;
+		private final int hash;
+		
+		public DescriptorKey(Class<?> cls, Property[] properties) {
+			this.cls = cls;
+			this.properties = properties;
+			
+			int hash = System.identityHashCode(cls);
+			for (Property property : properties)
+				hash = (31 * hash) + System.identityHashCode(property);
+			this.hash = hash;
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (obj == this)
+				return true;
+			if (!(obj instanceof DescriptorKey))
+				return false;
+			
+			DescriptorKey key = (DescriptorKey)obj;
+			if (key.cls != cls || key.hash != hash || key.properties.length != properties.length)
+				return false;
+			for (int i = 0; i < properties.length; i++) {
+				if (key.properties[i] != properties[i])
+					return false;
+			}
+			return true;
+		}
+	}
+	
+	private static final class ClassDescriptorKey {
+		
+		private final String description;
+		private final Type targetType;
+		private final int hash;
+		
+		public ClassDescriptorKey(String description, Type targetType) {
+			this.description = description;
+			this.targetType = targetType;
+			this.hash = (31 * description.hashCode()) + (targetType != null ? targetType.hashCode() : 0);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (obj == this)
+				return true;
+			if (!(obj instanceof ClassDescriptorKey))
+				return false;
+			
+			ClassDescriptorKey key = (ClassDescriptorKey)obj;
+			return (
+				key.hash == hash &&
+				key.description.equals(description) &&
+				(key.targetType == null ? targetType == null : key.targetType.equals(targetType))
+			);
+		}
+	}
 }
@@ -20,19 +20,21 @@ package org.spearal.impl;
 import static org.spearal.impl.SharedConstants.BIG_NUMBER_ALPHA;
 import static org.spearal.impl.SharedConstants.UTF8;
 
+import java.io.ByteArrayInputStream;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
-import java.lang.annotation.Annotation;
 import java.lang.reflect.Array;
-import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.lang.reflect.Proxy;
 import java.lang.reflect.Type;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.IdentityHashMap;
@@ -43,10 +45,13 @@ import java.util.Map;
 import org.spearal.SpearalContext;
 import org.spearal.SpearalPrinter;
 import org.spearal.SpearalPrinter.StringData;
-import org.spearal.configuration.PartialObjectFactory.PartialObjectProxy;
+import org.spearal.configuration.BeanReaderFactory.BeanReader;
+import org.spearal.configuration.BlockCodec;
 import org.spearal.configuration.PropertyFactory.Property;
 import org.spearal.impl.cache.AnyMap.ValueProvider;
 import org.spearal.impl.cache.EqualityMap;
+import org.spearal.impl.descriptor.ClassDescriptor;
+import org.spearal.impl.io.BlockInputStream;
 import org.spearal.impl.util.ClassDescriptionUtil;
 import org.spearal.impl.util.TypeUtil;
 
@@ -54,6 +59,34 @@ import org.spearal.impl.util.TypeUtil;
  * @author Franck WOLFF
  */
 public class SpearalDecoderImpl implements ExtendedSpearalDecoder {
+	
+	/**
+	 * Placeholder of a skipped object. All the objects of a skipped value share
+	 * the placeholder of this value (its root), which records where it can be
+	 * decoded again if one of them is referenced later on (in-memory input only,
+	 * <code>offset</code> is -1 otherwise).
+	 */
+	private static final class SkippedObject {
+		
+		final int index;
+		final int offset;
+		final int strings;
+		
+		SkippedObject(int index, int offset, int strings) {
+			this.index = index;
+			this.offset = offset;
+			this.strings = strings;
+		}
+	}
+	
+	private static final SkippedObject SKIPPED_OBJECT = new SkippedObject(-1, -1, -1);
+	private static final int DEFAULT_CAPACITY = 1024;
+	
+	// Varints of ints (zigzag encoded) use at most 5 bytes, varints of longs at most 10.
+	private static final int MAX_INT_VARINT_SHIFT = 28;
+	private static final int MAX_LONG_VARINT_SHIFT = 63;
+	
+	private static final int PACKED_ARRAY_STREAM_CAPACITY = 1024;
 
 	private final List<String> sharedStrings;
 	private final List<Object> sharedObjects;
@@ -67,16 +100,53 @@ public class SpearalDecoderImpl implements ExtendedSpearalDecoder {
 
 	private final SpearalContext context;
 	
-	private final InputStream in;
-	private final byte[] buffer;
+	private boolean treeMode;
+	
+	private CharsetDecoder utf8Decoder;
+	
+	private InputStream in;
+	private final boolean blocks;
+	private final int capacity;
+	private byte[] streamBuffer;
+	private byte[] buffer;
 	private int position;
 	private int size;
+	
+	// Placeholder of the skipped value being skipped, if any.
+	private SkippedObject skippedRoot;
+	// Next indices to overwrite while decoding a skipped value again (-1 otherwise).
+	private int replayObjects;
+	private int replayStrings;
 
 	public SpearalDecoderImpl(SpearalContext context, InputStream in) {
-		this(context, in, 1024);
+		this(context, in, DEFAULT_CAPACITY);
+	}
+
+	public SpearalDecoderImpl(SpearalContext context, InputStream in, int capacity) {
+		this(context, capacity, true);
+		
+		this.streamBuffer = new byte[capacity];
+		initInput(in);
 	}
 
-	public SpearalDecoderImpl(final SpearalContext context, InputStream in, int capacity) {
+	public SpearalDecoderImpl(SpearalContext context, byte[] bytes, int offset, int length) {
+		this(context, bytes, offset, length, true);
+	}
+
+	/**
+	 * @param blocks <code>false</code> if the bytes to decode are never written
+	 * as blocks, even if a {@link BlockCodec} is configured (framed sessions).
+	 */
+	SpearalDecoderImpl(SpearalContext context, byte[] bytes, int offset, int length, boolean blocks) {
+		this(context, DEFAULT_CAPACITY, blocks);
+		
+		checkBounds(bytes, offset, length);
+		
+		this.streamBuffer = null;
+		initInput(bytes, offset, length);
+	}
+
+	private SpearalDecoderImpl(final SpearalContext context, int capacity, boolean blocks) {
 		this.sharedStrings = new ArrayList<String>(64);
 		this.sharedObjects = new ArrayList<Object>(64);
 		
@@ -86,6 +156,8 @@ public class SpearalDecoderImpl implements ExtendedSpearalDecoder {
 		this.descriptors = new EqualityMap<String, Type, ClassDescriptor>(new ValueProvider<String, Type, ClassDescriptor>() {
 			@Override
 			public ClassDescriptor createValue(SpearalContext context, String key, Type targetType) {
+				if (context instanceof SpearalContextImpl)
+					return ((SpearalContextImpl)context).getClassDescriptor(key, targetType);
 				return ClassDescriptor.forDescription(context, key, targetType);
 			}
 		});
@@ -113,10 +185,14 @@ public class SpearalDecoderImpl implements ExtendedSpearalDecoder {
 		});
 
 		this.context = context;
-		this.in = in;
-		this.buffer = new byte[capacity];
-		this.position = 0;
-		this.size = 0;
+		this.blocks = blocks;
+		this.capacity = capacity;
+		
+		this.skippedRoot = null;
+		this.replayObjects = -1;
+		this.replayStrings = -1;
+		
+		initSharedStrings();
 	}
 	
 	@Override
@@ -124,6 +200,24 @@ public class SpearalDecoderImpl implements ExtendedSpearalDecoder {
 		return context;
 	}
 
+	@Override
+	public boolean isTreeMode() {
+		return treeMode;
+	}
+
+	@Override
+	public void setTreeMode(boolean treeMode) {
+		this.treeMode = treeMode;
+	}
+
+	/**
+	 * Restores the per-use settings of this decoder (tree mode) to their
+	 * defaults, so a recycled decoder behaves like a new one.
+	 */
+	public void resetSettings() {
+		treeMode = false;
+	}
+
 	public Path getPath() {
 		return path;
 	}
@@ -138,25 +232,123 @@ public class SpearalDecoderImpl implements ExtendedSpearalDecoder {
 		return partialObjectsMap;
 	}
 
+	@Override
+	public void reset(InputStream in) {
+		clear();
+		initInput(in);
+	}
+
+	@Override
+	public void reset(byte[] bytes, int offset, int length) {
+		checkBounds(bytes, offset, length);
+		
+		clear();
+		initInput(bytes, offset, length);
+	}
+	
+	/**
+	 * Starts decoding a new frame: objects references are cleared, strings
+	 * references are kept.
+	 */
+	void resetFrame(byte[] bytes, int offset, int length) {
+		checkBounds(bytes, offset, length);
+		
+		sharedObjects.clear();
+		path.clear();
+		partialObjectsMap.clear();
+		
+		this.in = null;
+		this.buffer = bytes;
+		this.position = offset;
+		this.size = offset + length;
+	}
+	
+	private void clear() {
+		initSharedStrings();
+		sharedObjects.clear();
+		
+		skippedRoot = null;
+		replayObjects = -1;
+		replayStrings = -1;
+		
+		path.clear();
+		partialObjectsMap.clear();
+		
+		descriptors.clear();
+		bigIntegers.clear();
+		bigDecimals.clear();
+	}
+
 	@Override
 	public Object readAny() throws IOException {
-		return readAny(readNextByte(), null);
+		return readAny(readValueType(), null);
 	}
 
 	@SuppressWarnings("unchecked")
 	@Override
 	public <T> T readAny(Type targetType) throws IOException {
-		return (T)readAny(readNextByte(), targetType);
+		return (T)readAny(readValueType(), targetType);
 	}
 
 	@Override
 	public void skipAny()  throws IOException {
-		readAny();
+		skipAny(readValueType());
 	}
 	
 	@Override
 	public void printAny(SpearalPrinter printer) throws IOException {
-		printAny(printer, readNextByte());
+		printAny(printer, readValueType());
+	}
+	
+	private void initInput(InputStream in) {
+		if (in != null && streamBuffer == null)
+			streamBuffer = new byte[capacity];
+		
+		BlockCodec codec = (blocks ? context.getBlockCodec() : null);
+		this.in = (in != null && codec != null ? new BlockInputStream(in, codec) : in);
+		this.buffer = streamBuffer;
+		this.position = 0;
+		this.size = 0;
+	}
+	
+	private void initInput(byte[] bytes, int offset, int length) {
+		// Block-framed bytes are read as any other block stream.
+		if (blocks && context.getBlockCodec() != null) {
+			initInput(new ByteArrayInputStream(bytes, offset, length));
+			return;
+		}
+		
+		this.in = null;
+		this.buffer = bytes;
+		this.position = offset;
+		this.size = offset + length;
+	}
+	
+	private void initSharedStrings() {
+		sharedStrings.clear();
+		
+		String[] dictionary = context.getDictionaryStrings();
+		if (dictionary.length > 0)
+			sharedStrings.addAll(Arrays.asList(dictionary));
+	}
+	
+	int readValueType() throws IOException {
+		int parameterizedType = readNextByte();
+		while (parameterizedType == SpearalType.RESET.id()) {
+			if (path.size != 0)
+				throw new IOException("Unexpected references reset at: " + path);
+			resetReferences();
+			parameterizedType = readNextByte();
+		}
+		return parameterizedType;
+	}
+	
+	void resetReferences() {
+		initSharedStrings();
+		sharedObjects.clear();
+		
+		bigIntegers.clear();
+		bigDecimals.clear();
 	}
 
 	@Override
@@ -239,6 +431,11 @@ public class SpearalDecoderImpl implements ExtendedSpearalDecoder {
 			}
 			break;
 			
+		case PACKED_ARRAY:
+			value = readPackedArray(parameterizedType, targetType);
+			convert = false;
+			break;
+			
 		case MAP:
 			value = readMap(parameterizedType, targetType);
 			convert = (targetType != null && !Map.class.isAssignableFrom(TypeUtil.classOfType(targetType)));
@@ -272,7 +469,129 @@ public class SpearalDecoderImpl implements ExtendedSpearalDecoder {
 
 	@Override
 	public void skipAny(int parameterizedType) throws IOException {
-		readAny(parameterizedType);
+		skipData(parameterizedType);
+	}
+	
+	/**
+	 * Skips a value at the byte level: referenceable values (byte arrays,
+	 * collections, packed arrays, maps and beans) are not decoded. If one of
+	 * them is referenced later on, the skipped value is decoded again from
+	 * its offset when the input is in memory, and the reference is illegal
+	 * otherwise.
+	 */
+	void skipData(int parameterizedType) throws IOException {
+		// Offset of the parameterized type, read by the caller.
+		final int offset = (in == null ? position - 1 : -1);
+		final int strings = sharedStrings.size();
+		final SkippedObject parent = skippedRoot;
+		
+		int indexOrLength;
+		
+		switch (SpearalType.valueOf(parameterizedType)) {
+		
+		case NULL:
+		case TRUE:
+		case FALSE:
+			return;
+		
+		case INTEGRAL:
+			skipBytes((parameterizedType & 0x07) + 1);
+			return;
+
+		case BIG_INTEGRAL:
+		case BIG_FLOATING:
+			indexOrLength = readIndexOrLength(parameterizedType);
+			if (!isStringReference(parameterizedType))
+				readBigNumberData(indexOrLength);
+			return;
+			
+		case FLOATING:
+			skipBytes((parameterizedType & 0x08) != 0 ? (parameterizedType & 0x03) + 1 : 8);
+			return;
+			
+		case STRING:
+		case CLASS:
+			readStringData(parameterizedType);
+			return;
+		
+		case BYTE_ARRAY:
+			indexOrLength = readIndexOrLength(parameterizedType);
+			if (!isObjectReference(parameterizedType)) {
+				shareSkippedObject(offset, strings);
+				skipBytes(indexOrLength);
+			}
+			return;
+
+		case DATE_TIME:
+			skipDateTime(parameterizedType);
+			return;
+			
+		case COLLECTION:
+			indexOrLength = readIndexOrLength(parameterizedType);
+			if (!isObjectReference(parameterizedType)) {
+				skippedRoot = shareSkippedObject(offset, strings);
+				for (int i = 0; i < indexOrLength; i++)
+					skipData(readNextByte());
+				skippedRoot = parent;
+			}
+			return;
+			
+		case PACKED_ARRAY:
+			indexOrLength = readIndexOrLength(parameterizedType);
+			if (!isObjectReference(parameterizedType)) {
+				shareSkippedObject(offset, strings);
+				skipPackedArrayData(readNextByte(), indexOrLength);
+			}
+			return;
+			
+		case MAP:
+			indexOrLength = readIndexOrLength(parameterizedType);
+			if (!isObjectReference(parameterizedType)) {
+				skippedRoot = shareSkippedObject(offset, strings);
+				for (int i = 0; i < indexOrLength; i++) {
+					skipData(readNextByte());
+					skipData(readNextByte());
+				}
+				skippedRoot = parent;
+			}
+			return;
+			
+		case ENUM:
+			readStringData(parameterizedType);
+			readStringData(readNextByte());
+			return;
+			
+		case BEAN:
+			indexOrLength = readIndexOrLength(parameterizedType);
+			if (!isObjectReference(parameterizedType)) {
+				String classDescription = readStringData(parameterizedType, indexOrLength);
+				skippedRoot = shareSkippedObject(offset, strings);
+				int count = ClassDescriptionUtil.propertiesCount(classDescription);
+				for (int i = 0; i < count; i++)
+					skipData(readNextByte());
+				skippedRoot = parent;
+			}
+			return;
+		}
+		
+		throw new RuntimeException("Unexpected parameterized type: " + parameterizedType);
+	}
+	
+	private void skipDateTime(int parameterizedType) throws IOException {
+		if ((parameterizedType & 0x08) != 0) {
+			ensureAvailable(2);
+			int month = (buffer[position] & 0xff);
+			position += 2;
+			skipBytes(((month >>> 4) & 0x03) + 1);
+		}
+		
+		if ((parameterizedType & 0x04) != 0) {
+			ensureAvailable(3);
+			int hours = (buffer[position] & 0xff);
+			position += 3;
+			if ((parameterizedType & 0x03) != 0)
+				skipBytes((hours >>> 5) + 1);
+		}
 	}
 
 	public void printAny(SpearalPrinter printer, int parameterizedType) throws IOException {
@@ -318,6 +637,9 @@ public class SpearalDecoderImpl implements ExtendedSpearalDecoder {
 		case COLLECTION:
 			printCollection(printer, parameterizedType);
 			return;
+		case PACKED_ARRAY:
+			printPackedArray(printer, parameterizedType);
+			return;
 		case MAP:
 			printMap(printer, parameterizedType);
 			return;
@@ -376,13 +698,7 @@ public class SpearalDecoderImpl implements ExtendedSpearalDecoder {
 	
 	@Override
 	public BigInteger readBigIntegral(int parameterizedType) throws IOException {
-		final int indexOrLength = readIndexOrLength(parameterizedType);
-		String representation;
-		if (isStringReference(parameterizedType))
-			representation = sharedStrings.get(indexOrLength);
-		else
-			representation = readBigNumberData(indexOrLength);
-		return bigIntegers.putIfAbsent(context, representation);
+		return bigIntegers.putIfAbsent(context, readBigNumber(parameterizedType));
 	}
 	
 	void printBigIntegral(SpearalPrinter printer, int parameterizedType) throws IOException {
@@ -430,13 +746,7 @@ public class SpearalDecoderImpl implements ExtendedSpearalDecoder {
 
 	@Override
 	public BigDecimal readBigFloating(int parameterizedType) throws IOException {
-		final int indexOrLength = readIndexOrLength(parameterizedType);
-		String representation;
-		if (isStringReference(parameterizedType))
-			representation = sharedStrings.get(indexOrLength);
-		else
-			representation = readBigNumberData(indexOrLength);
-		return bigDecimals.putIfAbsent(context, representation);
+		return bigDecimals.putIfAbsent(context, readBigNumber(parameterizedType));
 	}
 	
 	void printBigFloating(SpearalPrinter printer, int parameterizedType) throws IOException {
@@ -461,10 +771,10 @@ public class SpearalDecoderImpl implements ExtendedSpearalDecoder {
 		final int indexOrLength = readIndexOrLength(parameterizedType);
 
 		if (isObjectReference(parameterizedType))
-			return (byte[])sharedObjects.get(indexOrLength);
+			return (byte[])getSharedObject(indexOrLength);
 		
 		byte[] bytes = new byte[indexOrLength];
-		sharedObjects.add(bytes);
+		shareObject(bytes);
 		readFully(bytes, 0, indexOrLength);
 		return bytes;
 	}
@@ -547,7 +857,7 @@ public class SpearalDecoderImpl implements ExtendedSpearalDecoder {
 		final int indexOrLength = readIndexOrLength(parameterizedType);
 
 		if (isObjectReference(parameterizedType))
-			return sharedObjects.get(indexOrLength);
+			return getSharedObject(indexOrLength);
 		
 		Object value = null;
 		Type elementType = null;
@@ -563,19 +873,22 @@ public class SpearalDecoderImpl implements ExtendedSpearalDecoder {
 		else
 			value = new ArrayList<Object>(indexOrLength);
 		
-		sharedObjects.add(value);
+		shareObject(value);
 		
 		if (value.getClass().isArray()) {
-			ArrayPathSegmentImpl segment = new ArrayPathSegmentImpl(value);
-			path.push(segment);
-			for (segment.index = 0; segment.index < indexOrLength; segment.index++)
-				Array.set(value, segment.index, readAny(elementType));
-			path.pop();
+			Class<?> componentType = value.getClass().getComponentType();
+			if (componentType.isPrimitive())
+				readPrimitiveArrayItems(value, componentType, indexOrLength);
+			else {
+				ArrayPathSegmentImpl segment = path.pushArray(value);
+				for (segment.index = 0; segment.index < indexOrLength; segment.index++)
+					Array.set(value, segment.index, readAny(elementType));
+				path.pop();
+			}
 		}
 		else {
 			Collection<Object> collection = (Collection<Object>)value;
-			CollectionPathSegmentImpl segment = new CollectionPathSegmentImpl(collection);
-			path.push(segment);
+			CollectionPathSegmentImpl segment = path.pushCollection(collection);
 			for (segment.index = 0; segment.index < indexOrLength; segment.index++)
 				collection.add(readAny(elementType));
 			path.pop();
@@ -584,6 +897,95 @@ public class SpearalDecoderImpl implements ExtendedSpearalDecoder {
 		return value;
 	}
 	
+	private void readPrimitiveArrayItems(Object value, Class<?> componentType, int length) throws IOException {
+		int parameterizedType;
+		
+		if (componentType == int.class) {
+			int[] array = (int[])value;
+			for (int i = 0; i < length; i++) {
+				parameterizedType = readNextByte();
+				if (SpearalType.valueOf(parameterizedType) == SpearalType.INTEGRAL)
+					array[i] = (int)readIntegral(parameterizedType);
+				else
+					array[i] = ((Integer)readAny(parameterizedType, int.class)).intValue();
+			}
+		}
+		else if (componentType == long.class) {
+			long[] array = (long[])value;
+			for (int i = 0; i < length; i++) {
+				parameterizedType = readNextByte();
+				if (SpearalType.valueOf(parameterizedType) == SpearalType.INTEGRAL)
+					array[i] = readIntegral(parameterizedType);
+				else
+					array[i] = ((Long)readAny(parameterizedType, long.class)).longValue();
+			}
+		}
+		else if (componentType == double.class) {
+			double[] array = (double[])value;
+			for (int i = 0; i < length; i++) {
+				parameterizedType = readNextByte();
+				if (SpearalType.valueOf(parameterizedType) == SpearalType.FLOATING)
+					array[i] = readFloating(parameterizedType);
+				else
+					array[i] = ((Double)readAny(parameterizedType, double.class)).doubleValue();
+			}
+		}
+		else if (componentType == boolean.class) {
+			boolean[] array = (boolean[])value;
+			for (int i = 0; i < length; i++) {
+				parameterizedType = readNextByte();
+				switch (SpearalType.valueOf(parameterizedType)) {
+				case TRUE:
+					array[i] = true;
+					break;
+				case FALSE:
+					array[i] = false;
+					break;
+				default:
+					array[i] = ((Boolean)readAny(parameterizedType, boolean.class)).booleanValue();
+					break;
+				}
+			}
+		}
+		else if (componentType == short.class) {
+			short[] array = (short[])value;
+			for (int i = 0; i < length; i++) {
+				parameterizedType = readNextByte();
+				if (SpearalType.valueOf(parameterizedType) == SpearalType.INTEGRAL)
+					array[i] = (short)readIntegral(parameterizedType);
+				else
+					array[i] = ((Short)readAny(parameterizedType, short.class)).shortValue();
+			}
+		}
+		else if (componentType == float.class) {
+			float[] array = (float[])value;
+			for (int i = 0; i < length; i++) {
+				parameterizedType = readNextByte();
+				if (SpearalType.valueOf(parameterizedType) == SpearalType.FLOATING)
+					array[i] = (float)readFloating(parameterizedType);
+				else
+					array[i] = ((Float)readAny(parameterizedType, float.class)).floatValue();
+			}
+		}
+		else if (componentType == char.class) {
+			char[] array = (char[])value;
+			for (int i = 0; i < length; i++)
+				array[i] = ((Character)readAny(readNextByte(), char.class)).charValue();
+		}
+		else if (componentType == byte.class) {
+			byte[] array = (byte[])value;
+			for (int i = 0; i < length; i++) {
+				parameterizedType = readNextByte();
+				if (SpearalType.valueOf(parameterizedType) == SpearalType.INTEGRAL)
+					array[i] = (byte)readIntegral(parameterizedType);
+				else
+					array[i] = ((Byte)readAny(parameterizedType, byte.class)).byteValue();
+			}
+		}
+		else
+			throw new RuntimeException("Unexpected primitive type: " + componentType);
+	}
+	
 	private void printCollection(SpearalPrinter printer, int parameterizedType) throws IOException {
 		final int indexOrLength = readIndexOrLength(parameterizedType);
 		
@@ -612,7 +1014,7 @@ public class SpearalDecoderImpl implements ExtendedSpearalDecoder {
 		final int indexOrLength = readIndexOrLength(parameterizedType);
 		
 		if (isObjectReference(parameterizedType)) {
-			property.set(holder, sharedObjects.get(indexOrLength));
+			property.set(holder, getSharedObject(indexOrLength));
 			return;
 		}
 		
@@ -621,24 +1023,267 @@ public class SpearalDecoderImpl implements ExtendedSpearalDecoder {
 			value.clear();
 		else
 			value = (Collection<Object>)property.init(this, holder);
-		sharedObjects.add(value);
+		shareObject(value);
 		
+		readCollectionItems(value, indexOrLength, property);
+	}
+	
+	@SuppressWarnings("unchecked")
+	@Override
+	public Object readCollectionValue(int parameterizedType, Collection<?> value, Property property)
+		throws IOException, InstantiationException, IllegalAccessException {
+		
+		final int indexOrLength = readIndexOrLength(parameterizedType);
+		
+		if (isObjectReference(parameterizedType))
+			return getSharedObject(indexOrLength);
+		
+		if (value != null)
+			value.clear();
+		else
+			value = (Collection<?>)context.instantiate(property, null);
+		shareObject(value);
+		
+		readCollectionItems((Collection<Object>)value, indexOrLength, property);
+		return value;
+	}
+	
+	private void readCollectionItems(Collection<Object> value, int length, Property property) throws IOException {
 		Type elementType = TypeUtil.getElementType(property.getGenericType());
 		
-		CollectionPathSegmentImpl segment = new CollectionPathSegmentImpl(value);
-		path.push(segment);
-		for (segment.index = 0; segment.index < indexOrLength; segment.index++)
+		CollectionPathSegmentImpl segment = path.pushCollection(value);
+		for (segment.index = 0; segment.index < length; segment.index++)
 			value.add(readAny(elementType));
 		path.pop();
 	}
 
+	@SuppressWarnings("unchecked")
+	@Override
+	public Object readPackedArray(int parameterizedType, Type targetType) throws IOException {
+		final int indexOrLength = readIndexOrLength(parameterizedType);
+		
+		if (isObjectReference(parameterizedType))
+			return getSharedObject(indexOrLength);
+		
+		final int index = reserveSharedObject();
+		
+		final Object array = readPackedArrayData(readNextByte(), indexOrLength);
+		
+		Object value = array;
+		if (targetType != null && targetType != array.getClass()) {
+			Class<?> targetClass = TypeUtil.classOfType(targetType);
+			if (!targetClass.isInstance(array)) {
+				if (targetClass.isArray() || Collection.class.isAssignableFrom(targetClass)) {
+					try {
+						value = context.instantiate(targetType, Integer.valueOf(indexOrLength));
+					}
+					catch (Exception e) {
+						throw new RuntimeException("Couldn't instantiate type: " + targetType, e);
+					}
+					Type elementType = TypeUtil.getElementType(targetType);
+					if (value.getClass().isArray()) {
+						for (int i = 0; i < indexOrLength; i++)
+							Array.set(value, i, context.convert(Array.get(array, i), elementType));
+					}
+					else {
+						Collection<Object> collection = (Collection<Object>)value;
+						for (int i = 0; i < indexOrLength; i++)
+							collection.add(context.convert(Array.get(array, i), elementType));
+					}
+				}
+				else
+					value = context.convert(array, targetType);
+			}
+		}
+		
+		if (index != -1)
+			sharedObjects.set(index, value);
+		return value;
+	}
+	
+	Object readPackedArrayData(int packedType, int length) throws IOException {
+		PackedArrayType type = PackedArrayType.valueOf(packedType);
+		
+		// In memory, the length is checked against the remaining bytes. From a stream,
+		// arrays grow as elements are actually read, so a forged length cannot make
+		// the decoder allocate more than the data it receives.
+		int capacity = packedArrayCapacity(type, length);
+		
+		switch (type) {
+		case INT: {
+			int[] array = new int[capacity];
+			for (int i = 0; i < length; i++) {
+				if (i == array.length)
+					array = Arrays.copyOf(array, grow(i, length));
+				int v = (int)readVarint(MAX_INT_VARINT_SHIFT);
+				array[i] = (v >>> 1) ^ -(v & 1);
+			}
+			return array;
+		}
+		case LONG: {
+			long[] array = new long[capacity];
+			for (int i = 0; i < length; i++) {
+				if (i == array.length)
+					array = Arrays.copyOf(array, grow(i, length));
+				long v = readVarint(MAX_LONG_VARINT_SHIFT);
+				array[i] = (v >>> 1) ^ -(v & 1L);
+			}
+			return array;
+		}
+		case SHORT: {
+			short[] array = new short[capacity];
+			for (int i = 0; i < length; i++) {
+				if (i == array.length)
+					array = Arrays.copyOf(array, grow(i, length));
+				int v = (int)readVarint(MAX_INT_VARINT_SHIFT);
+				array[i] = (short)((v >>> 1) ^ -(v & 1));
+			}
+			return array;
+		}
+		case DOUBLE: {
+			double[] array = new double[capacity];
+			for (int i = 0; i < length; i++) {
+				if (i == array.length)
+					array = Arrays.copyOf(array, grow(i, length));
+				ensureAvailable(8);
+				array[i] = Double.longBitsToDouble(readLongData());
+			}
+			return array;
+		}
+		case FLOAT: {
+			float[] array = new float[capacity];
+			for (int i = 0; i < length; i++) {
+				if (i == array.length)
+					array = Arrays.copyOf(array, grow(i, length));
+				ensureAvailable(4);
+				array[i] = Float.intBitsToFloat(readUnsignedIntegerValue(3));
+			}
+			return array;
+		}
+		case BOOLEAN: {
+			// Capacities are multiples of 8 (or the length itself), so a byte of bits always fits.
+			boolean[] array = new boolean[capacity];
+			for (int i = 0; i < length; i += 8) {
+				if (i == array.length)
+					array = Arrays.copyOf(array, grow(i, length));
+				int bits = readNextByte();
+				for (int j = 0, max = Math.min(8, length - i); j < max; j++)
+					array[i + j] = ((bits & (1 << j)) != 0);
+			}
+			return array;
+		}
+		}
+		throw new RuntimeException("Unexpected packed array type: " + packedType);
+	}
+	
+	private int packedArrayCapacity(PackedArrayType type, int length) throws IOException {
+		if (length < 0)
+			throw new IOException("Illegal packed array length: " + (length & 0xffffffffL));
+		
+		if (in != null)
+			return Math.min(length, PACKED_ARRAY_STREAM_CAPACITY);
+		
+		long minSize;
+		switch (type) {
+		case DOUBLE:
+			minSize = length * 8L;
+			break;
+		case FLOAT:
+			minSize = length * 4L;
+			break;
+		case BOOLEAN:
+			minSize = (length + 7L) / 8L;
+			break;
+		default:
+			minSize = length;
+			break;
+		}
+		if (minSize > size - position)
+			throw new IOException("Illegal packed array length: " + length + " (only " + (size - position) + " bytes left)");
+		return length;
+	}
+	
+	private static int grow(int capacity, int length) {
+		return (int)Math.min(capacity * 2L, length);
+	}
+	
+	void skipPackedArrayData(int packedType, int length) throws IOException {
+		PackedArrayType type = PackedArrayType.valueOf(packedType);
+		if (length < 0)
+			throw new IOException("Illegal packed array length: " + (length & 0xffffffffL));
+		
+		switch (type) {
+		case INT:
+		case SHORT:
+			for (int i = 0; i < length; i++)
+				readVarint(MAX_INT_VARINT_SHIFT);
+			return;
+		case LONG:
+			for (int i = 0; i < length; i++)
+				readVarint(MAX_LONG_VARINT_SHIFT);
+			return;
+		case DOUBLE:
+			skipBytes(length * 8L);
+			return;
+		case FLOAT:
+			skipBytes(length * 4L);
+			return;
+		case BOOLEAN:
+			skipBytes((length + 7L) / 8L);
+			return;
+		}
+		throw new RuntimeException("Unexpected packed array type: " + packedType);
+	}
+	
+	private void printPackedArray(SpearalPrinter printer, int parameterizedType) throws IOException {
+		final int indexOrLength = readIndexOrLength(parameterizedType);
+		
+		if (isObjectReference(parameterizedType))
+			printer.printPackedArray(sharedObjects.get(indexOrLength), indexOrLength, true);
+		else {
+			Object array = readPackedArrayData(readNextByte(), indexOrLength);
+			sharedObjects.add(array);
+			printer.printPackedArray(array, sharedObjects.size() - 1, false);
+		}
+	}
+	
+	private long readVarint(int maxShift) throws IOException {
+		final byte[] buffer = this.buffer;
+		
+		if (size - position >= 10) {
+			int position = this.position;
+			long v = 0L;
+			for (int shift = 0; ; shift += 7) {
+				if (shift > maxShift)
+					throw new IOException("Malformed varint (too many bytes) at: " + position);
+				int b = buffer[position++];
+				v |= (long)(b & 0x7f) << shift;
+				if (b >= 0)
+					break;
+			}
+			this.position = position;
+			return v;
+		}
+		
+		long v = 0L;
+		for (int shift = 0; ; shift += 7) {
+			if (shift > maxShift)
+				throw new IOException("Malformed varint (too many bytes)");
+			int b = readNextByte();
+			v |= (long)(b & 0x7f) << shift;
+			if ((b & 0x80) == 0)
+				break;
+		}
+		return v;
+	}
+
 	@SuppressWarnings("unchecked")
 	@Override
 	public Map<?, ?> readMap(int parameterizedType, Type targetType) throws IOException {
 		final int indexOrLength = readIndexOrLength(parameterizedType);
 		
 		if (isObjectReference(parameterizedType))
-			return (Map<?, ?>)sharedObjects.get(indexOrLength);
+			return (Map<?, ?>)getSharedObject(indexOrLength);
 		
 		Map<Object, Object> value = null;
 		Type keyType = null;
@@ -657,10 +1302,9 @@ public class SpearalDecoderImpl implements ExtendedSpearalDecoder {
 		else
 			value = new LinkedHashMap<Object, Object>(indexOrLength);
 		
-		sharedObjects.add(value);
+		shareObject(value);
 		
-		MapPathSegmentImpl segment = new MapPathSegmentImpl(value);
-		path.push(segment);
+		MapPathSegmentImpl segment = path.pushMap(value);
 		for (int i = 0; i < indexOrLength; i++) {
 			segment.key = null;
 			Object key = readAny(keyType);
@@ -705,7 +1349,7 @@ public class SpearalDecoderImpl implements ExtendedSpearalDecoder {
 		final int indexOrLength = readIndexOrLength(parameterizedType);
 		
 		if (isObjectReference(parameterizedType)) {
-			property.set(holder, sharedObjects.get(indexOrLength));
+			property.set(holder, getSharedObject(indexOrLength));
 			return;
 		}
 		
@@ -714,15 +1358,38 @@ public class SpearalDecoderImpl implements ExtendedSpearalDecoder {
 			value.clear();
 		else
 			value = (Map<Object, Object>)property.init(this, holder);
-		sharedObjects.add(value);
+		shareObject(value);
 
+		readMapEntries(value, indexOrLength, property);
+	}
+	
+	@SuppressWarnings("unchecked")
+	@Override
+	public Object readMapValue(int parameterizedType, Map<?, ?> value, Property property)
+		throws IOException, InstantiationException, IllegalAccessException {
+		
+		final int indexOrLength = readIndexOrLength(parameterizedType);
+		
+		if (isObjectReference(parameterizedType))
+			return getSharedObject(indexOrLength);
+		
+		if (value != null)
+			value.clear();
+		else
+			value = (Map<?, ?>)context.instantiate(property, null);
+		shareObject(value);
+		
+		readMapEntries((Map<Object, Object>)value, indexOrLength, property);
+		return value;
+	}
+	
+	private void readMapEntries(Map<Object, Object> value, int length, Property property) throws IOException {
 		Type[] keyValueTypes = TypeUtil.getKeyValueType(property.getGenericType());
 		Type keyType = keyValueTypes[0];
 		Type valType = keyValueTypes[1];
 		
-		MapPathSegmentImpl segment = new MapPathSegmentImpl(value);
-		path.push(segment);
-		for (int i = 0; i < indexOrLength; i++) {
+		MapPathSegmentImpl segment = path.pushMap(value);
+		for (int i = 0; i < length; i++) {
 			segment.key = null;
 			Object key = readAny(keyType);
 			segment.key = key;
@@ -763,7 +1430,7 @@ public class SpearalDecoderImpl implements ExtendedSpearalDecoder {
 		final int indexOrLength = readIndexOrLength(parameterizedType);
 		
 		if (isObjectReference(parameterizedType)) {
-			Object value = sharedObjects.get(indexOrLength);
+			Object value = getSharedObject(indexOrLength);
 			partialObjectsMap.appendIfPresent(value, path.peek());
 			return value;
 		}
@@ -773,24 +1440,29 @@ public class SpearalDecoderImpl implements ExtendedSpearalDecoder {
 
 		try {
 			Class<?> cls = descriptor.cls;
+			BeanReader reader = descriptor.reader;
 			
 			Object value;
 			if (cls == ClassNotFound.class)
 				value = new ClassNotFound(classDescription);
 			else if (!descriptor.partial)
-				value = context.instantiate(cls, null);
+				value = (reader != null ? reader.instantiate(context) : context.instantiate(cls, null));
 			else {
 				value = context.instantiatePartial(cls, descriptor.properties);
 				partialObjectsMap.put(value, path.peek());
 			}
-			sharedObjects.add(value);
+			shareObject(value);
 			
-			BeanPathSegmentImpl segment = new BeanPathSegmentImpl(value);
-			path.push(segment);
-			for (Property property : descriptor.properties) {
+			final Property[] properties = descriptor.properties;
+			
+			BeanPathSegmentImpl segment = path.pushBean(value);
+			for (int i = 0; i < properties.length; i++) {
+				Property property = properties[i];
 				segment.property = property;
 				int propertyType = readNextByte();
-				if (property != null)
+				if (reader != null)
+					reader.read(this, value, i, propertyType);
+				else if (property != null)
 					property.read(this, value, propertyType);
 				else
 					skipAny(propertyType);
@@ -829,12 +1501,108 @@ public class SpearalDecoderImpl implements ExtendedSpearalDecoder {
 		}
 	}
 	
-	private int readNextByte() throws IOException {
+	String readBigNumber(int parameterizedType) throws IOException {
+		final int indexOrLength = readIndexOrLength(parameterizedType);
+		if (isStringReference(parameterizedType))
+			return sharedStrings.get(indexOrLength);
+		return readBigNumberData(indexOrLength);
+	}
+	
+	private void shareObject(Object value) {
+		if (treeMode)
+			return;
+		if (replayObjects != -1)
+			sharedObjects.set(replayObjects++, value);
+		else
+			sharedObjects.add(value);
+	}
+	
+	private int reserveSharedObject() {
+		if (treeMode)
+			return -1;
+		if (replayObjects != -1)
+			return replayObjects++;
+		sharedObjects.add(null);
+		return sharedObjects.size() - 1;
+	}
+	
+	private SkippedObject shareSkippedObject(int offset, int strings) {
+		SkippedObject skipped = skippedRoot;
+		if (skipped == null) {
+			if (offset == -1)
+				skipped = SKIPPED_OBJECT;
+			else
+				skipped = new SkippedObject(replayObjects != -1 ? replayObjects : sharedObjects.size(), offset, strings);
+		}
+		shareObject(skipped);
+		return skipped;
+	}
+	
+	int addSkippedObject() {
+		sharedObjects.add(SKIPPED_OBJECT);
+		return sharedObjects.size() - 1;
+	}
+	
+	private Object getSharedObject(int index) throws IOException {
+		if (treeMode)
+			throw new IOException("Unexpected object reference in tree mode: " + index);
+		Object value = sharedObjects.get(index);
+		while (value instanceof SkippedObject) {
+			readSkippedObject(index, (SkippedObject)value);
+			value = sharedObjects.get(index);
+		}
+		return value;
+	}
+	
+	/**
+	 * Decodes again the skipped value containing the object at
+	 * <code>index</code>, putting its objects and strings back at the indices
+	 * they were given when the value was skipped.
+	 */
+	private void readSkippedObject(int index, SkippedObject skipped) throws IOException {
+		if (skipped.offset == -1)
+			throw new IOException("Illegal reference to a skipped object: " + index);
+		
+		final int position = this.position;
+		final SkippedObject skippedRoot = this.skippedRoot;
+		final int replayObjects = this.replayObjects;
+		final int replayStrings = this.replayStrings;
+		
+		this.position = skipped.offset;
+		this.skippedRoot = null;
+		this.replayObjects = skipped.index;
+		this.replayStrings = skipped.strings;
+		
+		readAny(readNextByte(), null);
+		
+		this.position = position;
+		this.skippedRoot = skippedRoot;
+		this.replayObjects = replayObjects;
+		this.replayStrings = replayStrings;
+	}
+	
+	private void shareString(String value) {
+		if (replayStrings != -1)
+			replayStrings++;
+		else
+			sharedStrings.add(value);
+	}
+	
+	void skipBytes(long count) throws IOException {
+		while (count > 0) {
+			int chunk = (int)Math.min(count, buffer.length);
+			ensureAvailable(chunk);
+			position += chunk;
+			count -= chunk;
+		}
+	}
+	
+	int readNextByte() throws IOException {
 		ensureAvailable(1);
 		return (buffer[position++] & 0xff);
 	}
 	
-	private int readIndexOrLength(int parameterizedType) throws IOException {
+	int readIndexOrLength(int parameterizedType) throws IOException {
 		int length0 = (parameterizedType & 0x03);
 		ensureAvailable(length0 + 1);
 		return readUnsignedIntegerValue(length0);
@@ -862,7 +1630,7 @@ public class SpearalDecoderImpl implements ExtendedSpearalDecoder {
 		return readStringData(parameterizedType, indexOrLength);
 	}
 	
-	private String readStringData(int parameterizedType, int indexOrLength) throws IOException {
+	String readStringData(int parameterizedType, int indexOrLength) throws IOException {
 		if (isStringReference(parameterizedType))
 			return sharedStrings.get(indexOrLength);
 		
@@ -872,16 +1640,13 @@ public class SpearalDecoderImpl implements ExtendedSpearalDecoder {
 		String value;
 		if (indexOrLength <= buffer.length) {
 			ensureAvailable(indexOrLength);
-			value = new String(buffer, position, indexOrLength, UTF8);
+			value = decodeString(buffer, position, indexOrLength);
 			position += indexOrLength;
 		}
-		else {
-			byte[] bytes = new byte[indexOrLength];
-			readFully(bytes, 0, indexOrLength);
-			value = new String(bytes, UTF8);
-		}
+		else
+			value = readLongStringData(indexOrLength);
 		
-		sharedStrings.add(value);
+		shareString(value);
 		
 		return value;
 	}
@@ -902,6 +1667,53 @@ public class SpearalDecoderImpl implements ExtendedSpearalDecoder {
 		return new StringData(value, sharedStrings.size() - 1, false);
 	}
 	
+	@SuppressWarnings("deprecation")
+	private static String decodeString(byte[] bytes, int offset, int length) {
+		final int end = offset + length;
+		for (int i = offset; i < end; i++) {
+			if (bytes[i] < 0)
+				return new String(bytes, offset, length, UTF8);
+		}
+		return new String(bytes, 0, offset, length);
+	}
+	
+	private String readLongStringData(int length) throws IOException {
+		CharsetDecoder decoder = utf8Decoder;
+		if (decoder == null) {
+			decoder = UTF8.newDecoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+			utf8Decoder = decoder;
+		}
+		else
+			decoder.reset();
+		
+		char[] chars = new char[length];
+		CharBuffer out = CharBuffer.wrap(chars);
+		
+		int remaining = length;
+		while (remaining > 0) {
+			if (position == size)
+				fillBuffer(1);
+			
+			final int count = Math.min(remaining, size - position);
+			final boolean last = (count == remaining);
+			
+			ByteBuffer in = ByteBuffer.wrap(buffer, position, count);
+			decoder.decode(in, out, last);
+			
+			final int consumed = in.position() - position;
+			position += consumed;
+			remaining -= consumed;
+			
+			if (!last && consumed < count)
+				fillBuffer(count - consumed + 1);
+		}
+		decoder.flush(out);
+		
+		return new String(chars, 0, out.position());
+	}
+	
 	private String readBigNumberData(int length) throws IOException {
 		char[] chars = new char[length];
 		
@@ -928,7 +1740,7 @@ public class SpearalDecoderImpl implements ExtendedSpearalDecoder {
 		this.position = position;
 		
 		String representation = new String(chars);
-		sharedStrings.add(representation);
+		shareString(representation);
 		return representation;
 	}
 
@@ -951,7 +1763,7 @@ public class SpearalDecoderImpl implements ExtendedSpearalDecoder {
 		return v;
 	}
 
-	private void readFully(byte[] b, int off, int len) throws IOException {
+	void readFully(byte[] b, int off, int len) throws IOException {
 		if (b == null)
 			throw new NullPointerException();
 		if (off < 0 || len < 0 || len > b.length - off)
@@ -972,6 +1784,9 @@ public class SpearalDecoderImpl implements ExtendedSpearalDecoder {
 				position = size;
 			}
 			
+			if (in == null)
+				throw new EOFException();
+			
 			while (len > 0) {
 				int count = in.read(b, off, len);
 				if (count == len)
@@ -984,12 +1799,36 @@ public class SpearalDecoderImpl implements ExtendedSpearalDecoder {
 		}
 	}
 	
+	boolean isEndOfStream() throws IOException {
+		if (position < size)
+			return false;
+		if (in == null)
+			return true;
+		
+		position = 0;
+		size = 0;
+		
+		int read;
+		do {
+			read = in.read(buffer, 0, buffer.length);
+		}
+		while (read == 0);
+		
+		if (read == -1)
+			return true;
+		size = read;
+		return false;
+	}
+	
 	private void ensureAvailable(int count) throws IOException {
 		if (size - position < count)
 			fillBuffer(count);
 	}
 
 	private void fillBuffer(int count) throws IOException {
+		if (in == null)
+			throw new EOFException();
+		
 		if (position > 0) {
 			size -= position;
 			System.arraycopy(buffer, position, buffer, 0, size);
@@ -1005,66 +1844,19 @@ public class SpearalDecoderImpl implements ExtendedSpearalDecoder {
 		while (size < count);
 	}
 	
-	private static boolean isObjectReference(int parameterizedType) {
-		return ((parameterizedType & 0x08) != 0);
+	private static void checkBounds(byte[] bytes, int offset, int length) {
+		if (bytes == null)
+			throw new NullPointerException();
+		if (offset < 0 || length < 0 || length > bytes.length - offset)
+			throw new IndexOutOfBoundsException();
 	}
 	
-	private static boolean isStringReference(int parameterizedType) {
-		return ((parameterizedType & 0x04) != 0);
+	static boolean isObjectReference(int parameterizedType) {
+		return ((parameterizedType & 0x08) != 0);
 	}
 	
-	private static class ClassDescriptor {
-		
-		public final Class<?> cls;
-		public final Property[] properties;
-		public final boolean partial;
-
-		public static ClassDescriptor forDescription(SpearalContext context, String description, Type targetType) {
-			String classNames = ClassDescriptionUtil.classNames(description);
-			String[] propertyNames = ClassDescriptionUtil.splitPropertyNames(description);
-
-			Class<?> cls = context.loadClass(classNames, targetType);
-			
-			if (cls == null) {
-				Property[] classNotFoundProperties = new Property[propertyNames.length];
-				for (int i = 0; i < propertyNames.length; i++) {
-					String propertyName = propertyNames[i];
-					classNotFoundProperties[i] = new ClassNotFoundProperty(propertyName);
-				}
-				return new ClassDescriptor(ClassNotFound.class, classNotFoundProperties, false);
-			}
-
-			
-			Property[] properties = context.getProperties(cls);
-
-			Property[] serializedProperties = new Property[propertyNames.length];
-			boolean partial = false;
-			
-			propertiesLoop:
-			for (Property property : properties) {
-				String propertyName = property.getName();
-				for (int i = 0; i < propertyNames.length; i++) {
-					if (propertyName.equals(propertyNames[i])) {
-						serializedProperties[i] = property;
-						continue propertiesLoop;
-					}
-				}
-				partial = true;
-			}
-			
-			if (Proxy.isProxyClass(cls)) {
-				partial = true;
-				cls = context.loadClass(classNames + "," + PartialObjectProxy.class.getName(), targetType);
-			}
-			
-			return new ClassDescriptor(cls, serializedProperties, partial);
-		}
-		
-		public ClassDescriptor(Class<?> cls, Property[] properties, boolean partial) {
-			this.cls = cls;
-			this.properties = properties;
-			this.partial = partial;
-		}
+	static boolean isStringReference(int parameterizedType) {
+		return ((parameterizedType & 0x04) != 0);
 	}
 	
 	public static class ClassNotFound extends HashMap<String, Object> {
@@ -1082,114 +1874,9 @@ public class SpearalDecoderImpl implements ExtendedSpearalDecoder {
 		}
 	}
 	
-	private static class ClassNotFoundProperty implements Property {
-
-		private final String name;
-		
-		public ClassNotFoundProperty(String name) {
-			this.name = name;
-		}
-
-		@Override
-		public String getName() {
-			return name;
-		}
-
-		@Override
-		public Class<?> getType() {
-			return Object.class;
-		}
-
-		@Override
-		public Type getGenericType() {
-			return Object.class;
-		}
-
-		@Override
-		public boolean hasField() {
-			return false;
-		}
-
-		@Override
-		public Field getField() {
-			return null;
-		}
-
-		@Override
-		public boolean hasGetter() {
-			return false;
-		}
-
-		@Override
-		public Method getGetter() {
-			return null;
-		}
-
-		@Override
-		public boolean hasSetter() {
-			return false;
-		}
-
-		@Override
-		public Method getSetter() {
-			return null;
-		}
-
-		@Override
-		public Class<?> getDeclaringClass() {
-			return ClassNotFound.class;
-		}
-
-		@Override
-		public Object init(ExtendedSpearalDecoder decoder, Object holder)
-			throws InstantiationException, IllegalAccessException, InvocationTargetException {
-			return null;
-		}
-
-		@Override
-		public Object get(Object holder)
-			throws IllegalAccessException, InvocationTargetException {
-			return ((ClassNotFound)holder).get(name);
-		}
-
-		@Override
-		public void set(Object holder, Object value)
-			throws IllegalAccessException, InvocationTargetException {
-			((ClassNotFound)holder).put(name, value);
-		}
-
-		@Override
-		public boolean isAnnotationPresent(Class<? extends Annotation> annotationClass) {
-			return false;
-		}
-
-		@Override
-		public <A extends Annotation> A getAnnotation(Class<A> annotationClass) {
-			return null;
-		}
-
-		@Override
-		public boolean isReadOnly() {
-			return false;
-		}
-
-		@Override
-		public void write(ExtendedSpearalEncoder encoder, Object holder)
-			throws IOException, IllegalAccessException, InvocationTargetException {
-			throw new UnsupportedOperationException();
-		}
-
-		@Override
-		public void read(ExtendedSpearalDecoder decoder, Object holder, int parameterizedType)
-			throws IOException, InstantiationException, IllegalAccessException, InvocationTargetException {
-			
-			set(holder, decoder.readAny(parameterizedType));
-		}
-	}
-	
 	public static class CollectionPathSegmentImpl implements CollectionPathSegment {
 		
-		private final Collection<?> collection;
+		private Collection<?> collection;
 		private int index;
 		
 		public CollectionPathSegmentImpl(Collection<?> collection) {
@@ -1219,7 +1906,7 @@ public class SpearalDecoderImpl implements ExtendedSpearalDecoder {
 	
 	public static class ArrayPathSegmentImpl implements ArrayPathSegment {
 		
-		private final Object array;
+		private Object array;
 		private int index;
 		
 		public ArrayPathSegmentImpl(Object array) {
@@ -1249,7 +1936,7 @@ public class SpearalDecoderImpl implements ExtendedSpearalDecoder {
 	
 	public static class MapPathSegmentImpl implements MapPathSegment {
 		
-		private final Map<?, ?> map;
+		private Map<?, ?> map;
 		private Object key;
 
 		public MapPathSegmentImpl(Map<?, ?> map) {
@@ -1286,7 +1973,7 @@ public class SpearalDecoderImpl implements ExtendedSpearalDecoder {
 	
 	public static class BeanPathSegmentImpl implements BeanPathSegment {
 		
-		private final Object bean;
+		private Object bean;
 		private Property property;
 
 		public BeanPathSegmentImpl(Object bean) {
@@ -1314,16 +2001,91 @@ public class SpearalDecoderImpl implements ExtendedSpearalDecoder {
 		}
 	}
 	
+	/**
+	 * Segments are pooled by depth and reused, so that walking the decoded
+	 * graph doesn't allocate anything (segments are copied when recorded in
+	 * the partial objects map).
+	 */
 	private static class PathImpl implements Path {
 		
 		private static final int DEFAULT_SIZE_INCREMENT = 8;
 		
 		private PathSegment[] segments;
-		private int size; 
+		private int size;
+		
+		private BeanPathSegmentImpl[] beanSegments;
+		private CollectionPathSegmentImpl[] collectionSegments;
+		private ArrayPathSegmentImpl[] arraySegments;
+		private MapPathSegmentImpl[] mapSegments;
 		
 		public PathImpl() {
 			this.segments = new PathSegment[0];
 			this.size = 0;
+			
+			this.beanSegments = new BeanPathSegmentImpl[0];
+			this.collectionSegments = new CollectionPathSegmentImpl[0];
+			this.arraySegments = new ArrayPathSegmentImpl[0];
+			this.mapSegments = new MapPathSegmentImpl[0];
+		}
+		
+		public BeanPathSegmentImpl pushBean(Object bean) {
+			if (size >= beanSegments.length)
+				beanSegments = Arrays.copyOf(beanSegments, size + DEFAULT_SIZE_INCREMENT);
+			
+			BeanPathSegmentImpl segment = beanSegments[size];
+			if (segment == null)
+				beanSegments[size] = segment = new BeanPathSegmentImpl(bean);
+			else {
+				segment.bean = bean;
+				segment.property = null;
+			}
+			push(segment);
+			return segment;
+		}
+		
+		public CollectionPathSegmentImpl pushCollection(Collection<?> collection) {
+			if (size >= collectionSegments.length)
+				collectionSegments = Arrays.copyOf(collectionSegments, size + DEFAULT_SIZE_INCREMENT);
+			
+			CollectionPathSegmentImpl segment = collectionSegments[size];
+			if (segment == null)
+				collectionSegments[size] = segment = new CollectionPathSegmentImpl(collection);
+			else {
+				segment.collection = collection;
+				segment.index = 0;
+			}
+			push(segment);
+			return segment;
+		}
+		
+		public ArrayPathSegmentImpl pushArray(Object array) {
+			if (size >= arraySegments.length)
+				arraySegments = Arrays.copyOf(arraySegments, size + DEFAULT_SIZE_INCREMENT);
+			
+			ArrayPathSegmentImpl segment = arraySegments[size];
+			if (segment == null)
+				arraySegments[size] = segment = new ArrayPathSegmentImpl(array);
+			else {
+				segment.array = array;
+				segment.index = 0;
+			}
+			push(segment);
+			return segment;
+		}
+		
+		public MapPathSegmentImpl pushMap(Map<?, ?> map) {
+			if (size >= mapSegments.length)
+				mapSegments = Arrays.copyOf(mapSegments, size + DEFAULT_SIZE_INCREMENT);
+			
+			MapPathSegmentImpl segment = mapSegments[size];
+			if (segment == null)
+				mapSegments[size] = segment = new MapPathSegmentImpl(map);
+			else {
+				segment.map = map;
+				segment.key = null;
+			}
+			push(segment);
+			return segment;
 		}
 
 		@Override
@@ -1353,6 +2115,33 @@ public class SpearalDecoderImpl implements ExtendedSpearalDecoder {
 		public PathSegment peek() {
 			return (size == 0 ? null : segments[size - 1]);
 		}
+		
+		public void clear() {
+			Arrays.fill(segments, 0, size, null);
+			size = 0;
+			
+			// Don't retain decoded objects in pooled segments.
+			for (BeanPathSegmentImpl segment : beanSegments) {
+				if (segment != null) {
+					segment.bean = null;
+					segment.property = null;
+				}
+			}
+			for (CollectionPathSegmentImpl segment : collectionSegments) {
+				if (segment != null)
+					segment.collection = null;
+			}
+			for (ArrayPathSegmentImpl segment : arraySegments) {
+				if (segment != null)
+					segment.array = null;
+			}
+			for (MapPathSegmentImpl segment : mapSegments) {
+				if (segment != null) {
+					segment.map = null;
+					segment.key = null;
+				}
+			}
+		}
 
 		@Override
 		public String toString() {
@@ -18,42 +18,65 @@
 package org.spearal.impl;
 
 import static org.spearal.impl.SharedConstants.BIG_NUMBER_ALPHA_MIRROR;
-import static org.spearal.impl.SharedConstants.UTF8;
 
 import java.io.IOException;
 import java.io.OutputStream;
 import java.lang.reflect.Array;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.IdentityHashMap;
 import java.util.Map;
 
+import org.spearal.SpearalByteArrayEncoder;
 import org.spearal.SpearalContext;
 import org.spearal.SpearalPropertyFilter;
+import org.spearal.configuration.BlockCodec;
 import org.spearal.configuration.FilteredBeanDescriptorFactory.FilteredBeanDescriptor;
 import org.spearal.configuration.PropertyFactory.Property;
 import org.spearal.impl.cache.IdentityIndexMap;
 import org.spearal.impl.cache.StringIndexMap;
+import org.spearal.impl.io.BlockWriter;
+import org.spearal.impl.io.GrowableByteArrayOutputStream;
+import org.spearal.impl.util.UTF8Util;
 
 /**
  * @author Franck WOLFF
  */
-public class SpearalEncoderImpl implements ExtendedSpearalEncoder {
+public class SpearalEncoderImpl implements ExtendedSpearalEncoder, SpearalByteArrayEncoder {
+
+	private static final int MIN_UTF8_CHUNK_BYTES = 6;
 
 	private final SpearalContext context;
-	private final SpearalPropertyFilter propertyFilter;
-	private final OutputStream out;
+	private SpearalPropertyFilterImpl defaultPropertyFilter;
+	private SpearalPropertyFilter propertyFilter;
+	private OutputStream out;
+	private boolean inMemory;
+	private final boolean blocks;
+	private BlockWriter blockWriter;
+	private GrowableByteArrayOutputStream blockBuffer;
 	
 	private final StringIndexMap sharedStrings;
+	private String[] dictionary;
 	private final IdentityIndexMap sharedObjects;
 	private final Map<Class<?>, FilteredBeanDescriptor> descriptors;
 	
-	private final byte[] buffer;
+	private final int initialCapacity;
+	private byte[] buffer;
+	private boolean bufferExposed;
 	private int position;
 	
 	private int depth;
 	
+	private boolean treeMode;
+	private Object[] ancestors;
+	private int ancestorsCount;
+	
+	private int referencesWindow;
+	
 	public SpearalEncoderImpl(SpearalContext context, OutputStream out) {
 		this(context, null, out, 1024);
 	}
@@ -66,19 +89,43 @@ public class SpearalEncoderImpl implements ExtendedSpearalEncoder {
 		this(context, request, out, 1024);
 	}
 	
-	public SpearalEncoderImpl(final SpearalContext context, SpearalPropertyFilter propertyFilter, OutputStream out, int capacity) {
+	public SpearalEncoderImpl(SpearalContext context, SpearalPropertyFilter propertyFilter, OutputStream out, int capacity) {
+		this(context, propertyFilter, out, capacity, true);
+	}
+	
+	/**
+	 * @param blocks <code>false</code> if the encoded bytes must never be written
+	 * as blocks, even if a {@link BlockCodec} is configured (framed sessions).
+	 */
+	SpearalEncoderImpl(final SpearalContext context, SpearalPropertyFilter propertyFilter, OutputStream out, int capacity, boolean blocks) {
 		this.context = context;
-		this.propertyFilter = (propertyFilter != null ? propertyFilter : new SpearalPropertyFilterImpl(context));
-		this.out = out;
+		if (propertyFilter == null)
+			propertyFilter = this.defaultPropertyFilter = new SpearalPropertyFilterImpl(context);
+		this.propertyFilter = propertyFilter;
+		this.blocks = blocks;
 		
 		this.sharedStrings = new StringIndexMap();
+		this.dictionary = context.getDictionaryStrings();
+		initSharedStrings();
 		this.sharedObjects = new IdentityIndexMap();
 		this.descriptors = new IdentityHashMap<Class<?>, FilteredBeanDescriptor>(32);
 
+		this.initialCapacity = capacity;
 		this.buffer = new byte[capacity];
+		this.bufferExposed = false;
         this.position = 0;
         
+        this.blockWriter = null;
+        this.blockBuffer = null;
+        initOutput(out);
+        
         this.depth = 0;
+        
+        this.treeMode = false;
+        this.ancestors = null;
+        this.ancestorsCount = 0;
+        
+        this.referencesWindow = 0;
 	}
 	
 	@Override
@@ -91,8 +138,181 @@ public class SpearalEncoderImpl implements ExtendedSpearalEncoder {
 		return propertyFilter;
 	}
 
+	@Override
+	public boolean isTreeMode() {
+		return treeMode;
+	}
+
+	@Override
+	public void setTreeMode(boolean treeMode) {
+		if (treeMode && ancestors == null)
+			ancestors = new Object[16];
+		this.treeMode = treeMode;
+	}
+
+	@Override
+	public int getReferencesWindow() {
+		return referencesWindow;
+	}
+
+	@Override
+	public void setReferencesWindow(int maxReferences) {
+		this.referencesWindow = maxReferences;
+	}
+
+	/**
+	 * Restores the per-use settings of this encoder (tree mode, references
+	 * window) to their defaults, so a recycled encoder behaves like a new one.
+	 */
+	public void resetSettings() {
+		treeMode = false;
+		referencesWindow = 0;
+	}
+
+	/**
+	 * Drops the internal buffer of this encoder if it was handed out by
+	 * {@link #getBuffer()} or {@link #toByteBuffer()} (so the caller's view is
+	 * never overwritten by a next use of this encoder), or if it grew beyond
+	 * <code>maxCapacity</code> bytes. A new buffer of the initial capacity is
+	 * allocated in both cases.
+	 */
+	public void recycleBuffer(int maxCapacity) {
+		if (bufferExposed || buffer.length > maxCapacity)
+			buffer = new byte[initialCapacity];
+		if (blockBuffer != null && (bufferExposed || blockBuffer.getBuffer().length > maxCapacity)) {
+			GrowableByteArrayOutputStream recycled = new GrowableByteArrayOutputStream(initialCapacity);
+			if (out == blockBuffer)
+				out = recycled;
+			blockBuffer = recycled;
+		}
+		bufferExposed = false;
+		position = 0;
+	}
+
+	@Override
+	public void resetReferences() throws IOException {
+		if (depth != 0)
+			throw new IllegalStateException("References can only be reset between root values");
+		
+		initSharedStrings();
+		sharedObjects.clear();
+		
+		ensureCapacity(1);
+		buffer[position++] = (byte)SpearalType.RESET.id();
+		flushBuffer();
+	}
+
+	@Override
+	public void reset(OutputStream out) {
+		reset(out, null);
+	}
+
+	@Override
+	public void reset(OutputStream out, SpearalPropertyFilter propertyFilter) {
+		if (propertyFilter == null) {
+			if (defaultPropertyFilter == null)
+				defaultPropertyFilter = new SpearalPropertyFilterImpl(context);
+			else
+				defaultPropertyFilter.clear();
+			propertyFilter = defaultPropertyFilter;
+		}
+		this.propertyFilter = propertyFilter;
+		
+		position = 0;
+		initOutput(out);
+		
+		dictionary = context.getDictionaryStrings();
+		initSharedStrings();
+		sharedObjects.clear();
+		descriptors.clear();
+		
+		depth = 0;
+		
+		if (ancestorsCount > 0) {
+			Arrays.fill(ancestors, 0, ancestorsCount, null);
+			ancestorsCount = 0;
+		}
+	}
+
+	/**
+	 * Starts a new frame: objects references are cleared, strings references
+	 * are kept.
+	 */
+	void resetFrame() {
+		sharedObjects.clear();
+		
+		position = 0;
+		depth = 0;
+		
+		if (ancestorsCount > 0) {
+			Arrays.fill(ancestors, 0, ancestorsCount, null);
+			ancestorsCount = 0;
+		}
+	}
+
+	@Override
+	public byte[] getBuffer() {
+		checkInMemory();
+		bufferExposed = true;
+		if (blockWriter == null)
+			return buffer;
+		flushBlocks();
+		return blockBuffer.getBuffer();
+	}
+
+	@Override
+	public int size() {
+		checkInMemory();
+		if (blockWriter == null)
+			return position;
+		flushBlocks();
+		return blockBuffer.size();
+	}
+
+	@Override
+	public byte[] toByteArray() {
+		checkInMemory();
+		if (blockWriter == null)
+			return Arrays.copyOf(buffer, position);
+		flushBlocks();
+		return blockBuffer.toByteArray();
+	}
+
+	@Override
+	public ByteBuffer toByteBuffer() {
+		return ByteBuffer.wrap(getBuffer(), 0, size());
+	}
+
+	@Override
+	public void writeTo(OutputStream out) throws IOException {
+		checkInMemory();
+		if (blockWriter == null)
+			out.write(buffer, 0, position);
+		else {
+			flushBlocks();
+			blockBuffer.writeTo(out);
+		}
+	}
+
+	@Override
+	public void writeTo(WritableByteChannel channel) throws IOException {
+		checkInMemory();
+		ByteBuffer bytes;
+		if (blockWriter == null)
+			bytes = ByteBuffer.wrap(buffer, 0, position);
+		else {
+			flushBlocks();
+			bytes = ByteBuffer.wrap(blockBuffer.getBuffer(), 0, blockBuffer.size());
+		}
+		while (bytes.hasRemaining())
+			channel.write(bytes);
+	}
+
 	@Override
 	public void writeAny(Object o) throws IOException {
+		if (depth == 0 && referencesWindow > 0 && sharedStrings.size() - dictionary.length + sharedObjects.size() >= referencesWindow)
+			resetReferences();
+		
 		++depth;
 		
 		if (o == null)
@@ -402,18 +622,133 @@ public class SpearalEncoderImpl implements ExtendedSpearalEncoder {
 		if (!putAndWriteObjectReference(SpearalType.COLLECTION.id(), value)) {
 			final int size = Array.getLength(value);
 			writeTypeUint(SpearalType.COLLECTION.id(), size);
-			for (int i = 0; i < size; i++)
-				writeAny(Array.get(value, i));
+			
+			final Class<?> componentType = value.getClass().getComponentType();
+			if (componentType.isPrimitive())
+				writePrimitiveArrayItems(value, componentType);
+			else {
+				enterNode(value);
+				Object[] array = (Object[])value;
+				for (int i = 0; i < size; i++)
+					writeAny(array[i]);
+				exitNode();
+			}
 		}
 	}
+	
+	@Override
+	public void writePackedArray(Object value) throws IOException {
+		if (!putAndWriteObjectReference(SpearalType.PACKED_ARRAY.id(), value)) {
+			final PackedArrayType type = PackedArrayType.valueOf(value.getClass().getComponentType());
+			if (type == null)
+				throw new IllegalArgumentException("Not a packable array: " + value.getClass());
+			
+			writeTypeUint(SpearalType.PACKED_ARRAY.id(), Array.getLength(value));
+			ensureCapacity(1);
+			buffer[position++] = (byte)type.id();
+			
+			switch (type) {
+			case INT:
+				for (int item : (int[])value)
+					writeVarint(((item << 1) ^ (item >> 31)) & 0xffffffffL);
+				break;
+			case LONG:
+				for (long item : (long[])value)
+					writeVarint((item << 1) ^ (item >> 63));
+				break;
+			case SHORT:
+				for (short item : (short[])value)
+					writeVarint(((item << 1) ^ (item >> 31)) & 0xffffffffL);
+				break;
+			case DOUBLE:
+				for (double item : (double[])value) {
+					ensureCapacity(8);
+					writeLongData(Double.doubleToLongBits(item));
+				}
+				break;
+			case FLOAT:
+				for (float item : (float[])value) {
+					ensureCapacity(4);
+					writeUnsignedIntValue(Float.floatToIntBits(item), 3);
+				}
+				break;
+			case BOOLEAN:
+				boolean[] booleans = (boolean[])value;
+				for (int i = 0; i < booleans.length; i += 8) {
+					int bits = 0;
+					for (int j = 0, max = Math.min(8, booleans.length - i); j < max; j++) {
+						if (booleans[i + j])
+							bits |= (1 << j);
+					}
+					ensureCapacity(1);
+					buffer[position++] = (byte)bits;
+				}
+				break;
+			}
+		}
+	}
+	
+	private void writeVarint(long value) throws IOException {
+		ensureCapacity(10);
+		
+		final byte[] buffer = this.buffer;
+		int position = this.position;
+		
+		while ((value & ~0x7fL) != 0L) {
+			buffer[position++] = (byte)(value | 0x80);
+			value >>>= 7;
+		}
+		buffer[position++] = (byte)value;
+		
+		this.position = position;
+	}
+	
+	private void writePrimitiveArrayItems(Object value, Class<?> componentType) throws IOException {
+		if (componentType == int.class) {
+			for (int item : (int[])value)
+				writeInt(item);
+		}
+		else if (componentType == long.class) {
+			for (long item : (long[])value)
+				writeLong(item);
+		}
+		else if (componentType == double.class) {
+			for (double item : (double[])value)
+				writeDouble(item);
+		}
+		else if (componentType == boolean.class) {
+			for (boolean item : (boolean[])value)
+				writeBoolean(item);
+		}
+		else if (componentType == short.class) {
+			for (short item : (short[])value)
+				writeShort(item);
+		}
+		else if (componentType == float.class) {
+			for (float item : (float[])value)
+				writeFloat(item);
+		}
+		else if (componentType == char.class) {
+			for (char item : (char[])value)
+				writeChar(item);
+		}
+		else if (componentType == byte.class) {
+			for (byte item : (byte[])value)
+				writeByte(item);
+		}
+		else
+			throw new RuntimeException("Unexpected primitive type: " + componentType);
+	}
 
 	@Override
 	public void writeCollection(Collection<?> value) throws IOException {
 		if (!putAndWriteObjectReference(SpearalType.COLLECTION.id(), value)) {
 			final int size = value.size();
 			writeTypeUint(SpearalType.COLLECTION.id(), size);
+			enterNode(value);
 			for (Object item : value)
 				writeAny(item);
+			exitNode();
 		}
 	}
 
@@ -422,10 +757,12 @@ public class SpearalEncoderImpl implements ExtendedSpearalEncoder {
 		if (!putAndWriteObjectReference(SpearalType.MAP.id(), value)) {
 			final int size = value.size();
 			writeTypeUint(SpearalType.MAP.id(), size);
+			enterNode(value);
 			for (Map.Entry<?, ?> entry : value.entrySet()) {
 				writeAny(entry.getKey());
 				writeAny(entry.getValue());
 			}
+			exitNode();
 		}
 	}
 
@@ -447,13 +784,14 @@ public class SpearalEncoderImpl implements ExtendedSpearalEncoder {
 			
 			FilteredBeanDescriptor descriptor = descriptors.get(cls);
 			if (descriptor == null) {
-				descriptor = context.createDescriptor(propertyFilter, value);
+				descriptor = context.getDescriptor(propertyFilter, value);
 				if (descriptor.isCacheable())
 					descriptors.put(cls, descriptor);
 			}
 			
 			writeStringData(SpearalType.BEAN.id(), descriptor.getDescription());
 			
+			enterNode(value);
 			for (Property property : descriptor.getProperties()) {
 				if (property == null)
 					continue;
@@ -467,6 +805,7 @@ public class SpearalEncoderImpl implements ExtendedSpearalEncoder {
 					throw new IOException(e);
 				}
 			}
+			exitNode();
 		}
 	}
 	
@@ -479,11 +818,44 @@ public class SpearalEncoderImpl implements ExtendedSpearalEncoder {
         }
     	
     	if (!putAndWriteStringReference(type, s)) {
-        	byte[] bytes = s.getBytes(UTF8);
-        	writeTypeUint(type, bytes.length);
-        	writeBytes(bytes);
+    		final int length = s.length();
+    		final int asciiLength = UTF8Util.asciiLength(s);
+    		final int utf8Length = (asciiLength == length ? length : UTF8Util.utf8Length(s, asciiLength));
+        	writeTypeUint(type, utf8Length);
+        	writeUTF8Data(s, utf8Length, asciiLength == length);
         }
     }
+    
+    private void writeUTF8Data(String s, int utf8Length, boolean ascii) throws IOException {
+    	final int length = s.length();
+    	
+    	if (out == null || utf8Length <= buffer.length) {
+    		ensureCapacity(utf8Length);
+    		if (ascii)
+    			position = UTF8Util.encodeASCII(s, 0, length, buffer, position);
+    		else
+    			position = UTF8Util.encodeUTF8(s, 0, length, buffer, position);
+    		return;
+    	}
+    	
+    	// Chunks hold at least 2 chars (3 bytes max each), so a surrogate pair is never split.
+    	ensureCapacity(MIN_UTF8_CHUNK_BYTES);
+    	
+    	final int chunk = (ascii ? buffer.length : buffer.length / 3);
+    	for (int i = 0; i < length; ) {
+    		flushBuffer();
+    		
+    		int end = Math.min(length, i + chunk);
+    		if (ascii)
+    			position = UTF8Util.encodeASCII(s, i, end, buffer, position);
+    		else {
+    			if (end < length && Character.isHighSurrogate(s.charAt(end - 1)))
+    				end--;
+    			position = UTF8Util.encodeUTF8(s, i, end, buffer, position);
+    		}
+    		i = end;
+    	}
+    }
 	
 	private static String exponentize(BigInteger value) {
 		String representation = value.toString(10);
@@ -503,15 +875,15 @@ public class SpearalEncoderImpl implements ExtendedSpearalEncoder {
         	final int length = representation.length();
         	writeTypeUint(type, length);
         	
-	    	final byte[] buffer = this.buffer;
-	    	final int bufferLength = buffer.length;
+	    	byte[] buffer = this.buffer;
 	    	int position = this.position;
 	
 	    	for (int i = 0; i < length; ) {
-	    		if (position >= bufferLength) {
-	    			this.position = bufferLength;
-	    			flushBuffer();
-	    			position = 0;
+	    		if (position >= buffer.length) {
+	    			this.position = position;
+	    			ensureCapacity(((length - i) / 2) + 1);
+	    			buffer = this.buffer;
+	    			position = this.position;
 	    		}
 	    		int b = (BIG_NUMBER_ALPHA_MIRROR[representation.charAt(i++)] << 4);
 	    		if (i == length) {
@@ -526,6 +898,9 @@ public class SpearalEncoderImpl implements ExtendedSpearalEncoder {
 	}
 	
 	private boolean putAndWriteObjectReference(int type, Object o) throws IOException {
+		if (treeMode)
+			return false;
+		
 		int index = sharedObjects.putIfAbsent(o);
 		if (index != -1) {
 			writeTypeUint(type | 0x08, index);
@@ -534,6 +909,66 @@ public class SpearalEncoderImpl implements ExtendedSpearalEncoder {
 		return false;
 	}
 	
+	private void initOutput(OutputStream out) {
+		BlockCodec codec = (blocks ? context.getBlockCodec() : null);
+		if (codec == null)
+			blockWriter = null;
+		else if (blockWriter == null || blockWriter.getCodec() != codec)
+			blockWriter = new BlockWriter(codec);
+		
+		inMemory = (out == null);
+		if (inMemory && blockWriter != null) {
+			// In-memory encoders write their blocks into a growable array.
+			if (blockBuffer == null)
+				blockBuffer = new GrowableByteArrayOutputStream(initialCapacity);
+			else
+				blockBuffer.reset();
+			out = blockBuffer;
+		}
+		this.out = out;
+	}
+	
+	private void flushBlocks() {
+		try {
+			flushBuffer();
+		}
+		catch (IOException e) {
+			throw new RuntimeException("Internal error", e);
+		}
+	}
+	
+	private void writeOut(byte[] bytes, int offset, int length) throws IOException {
+		if (blockWriter != null)
+			blockWriter.write(out, bytes, offset, length);
+		else
+			out.write(bytes, offset, length);
+	}
+	
+	private void initSharedStrings() {
+		sharedStrings.clear();
+		for (String s : dictionary)
+			sharedStrings.putIfAbsent(s);
+	}
+	
+	private void enterNode(Object o) throws IOException {
+		if (!treeMode)
+			return;
+		
+		// Tree mode: only check for cycles along the current path.
+		for (int i = 0; i < ancestorsCount; i++) {
+			if (ancestors[i] == o)
+				throw new IOException("Cycle detected in tree mode: " + o.getClass().getName() + " at depth " + i);
+		}
+		if (ancestorsCount == ancestors.length)
+			ancestors = Arrays.copyOf(ancestors, ancestors.length << 1);
+		ancestors[ancestorsCount++] = o;
+	}
+	
+	private void exitNode() {
+		if (treeMode)
+			ancestors[--ancestorsCount] = null;
+	}
+	
 	private boolean putAndWriteStringReference(int type, String s) throws IOException {
 		int index = sharedStrings.putIfAbsent(s);
 		if (index != -1) {
@@ -602,26 +1037,45 @@ public class SpearalEncoderImpl implements ExtendedSpearalEncoder {
 	}
 
     private void ensureCapacity(int capacity) throws IOException {
-		if (buffer.length - position < capacity)
-			flushBuffer();
+		if (buffer.length - position < capacity) {
+			if (out != null)
+				flushBuffer();
+			// Buffers smaller than a single write must grow, even when flushed.
+			if (buffer.length - position < capacity)
+				growBuffer(capacity);
+		}
 	}
+    
+    private void growBuffer(int capacity) {
+    	buffer = Arrays.copyOf(buffer, Math.max(buffer.length << 1, position + capacity));
+    }
 	
     private void flushBuffer() throws IOException {
-		if (position > 0) {
-			out.write(buffer, 0, position);
+		if (position > 0 && out != null) {
+			writeOut(buffer, 0, position);
 			position = 0;
 		}
 	}
     
+    private void checkInMemory() {
+    	if (!inMemory)
+    		throw new IllegalStateException("Not an in-memory encoder");
+    }
+    
     private void writeBytes(byte[] bytes) throws IOException {
     	if (bytes.length > 0) {
 	    	if (buffer.length - position >= bytes.length) {
 	    		System.arraycopy(bytes, 0, buffer, position, bytes.length);
 	    		position += bytes.length;
 	    	}
+	    	else if (out == null) {
+	    		growBuffer(bytes.length);
+	    		System.arraycopy(bytes, 0, buffer, position, bytes.length);
+	    		position += bytes.length;
+	    	}
 	    	else {
 	    		flushBuffer();
-	    		out.write(bytes, 0, bytes.length);
+	    		writeOut(bytes, 0, bytes.length);
 	    	}
     	}
     }
@@ -0,0 +1,126 @@
+/**
+ * == @Spearal ==>
+ * 
+ * Copyright (C) 2014 Franck WOLFF & William DRAI (http://www.spearal.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spearal.impl;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.Map;
+
+import org.spearal.SpearalContext;
+import org.spearal.SpearalDecoder.PathSegment;
+import org.spearal.SpearalFramedDecoder;
+
+/**
+ * @author Franck WOLFF
+ */
+public class SpearalFramedDecoderImpl implements SpearalFramedDecoder {
+	
+	public static final int DEFAULT_MAX_FRAME_SIZE = 16 * 1024 * 1024;
+	
+	private static final int DEFAULT_CAPACITY = 1024;
+
+	private final SpearalDecoderImpl decoder;
+	private final InputStream in;
+	private final int maxFrameSize;
+	private byte[] frame;
+	
+	public SpearalFramedDecoderImpl(SpearalContext context, InputStream in) {
+		this(context, in, DEFAULT_MAX_FRAME_SIZE);
+	}
+	
+	public SpearalFramedDecoderImpl(SpearalContext context, InputStream in, int maxFrameSize) {
+		if (in == null)
+			throw new NullPointerException("in cannot be null");
+		if (maxFrameSize <= 0)
+			throw new IllegalArgumentException("Illegal max frame size: " + maxFrameSize);
+		
+		this.frame = new byte[Math.min(DEFAULT_CAPACITY, maxFrameSize)];
+		this.decoder = new SpearalDecoderImpl(context, frame, 0, 0, false);
+		this.in = in;
+		this.maxFrameSize = maxFrameSize;
+	}
+	
+	public int getMaxFrameSize() {
+		return maxFrameSize;
+	}
+
+	@Override
+	public SpearalContext getContext() {
+		return decoder.getContext();
+	}
+
+	@Override
+	public boolean nextFrame() throws IOException {
+		int b = in.read();
+		if (b == -1)
+			return false;
+		
+		int length = 0;
+		for (int shift = 0; ; shift += 7) {
+			if (shift > 28)
+				throw new IOException("Illegal frame length");
+			length |= (b & 0x7f) << shift;
+			if ((b & 0x80) == 0)
+				break;
+			if ((b = in.read()) == -1)
+				throw new EOFException();
+		}
+		if (length < 0 || length > maxFrameSize)
+			throw new IOException("Illegal frame length: " + length + " (max " + maxFrameSize + ")");
+		
+		if (length > frame.length)
+			frame = new byte[(int)Math.min(Math.max(length, (long)frame.length << 1), maxFrameSize)];
+		for (int offset = 0; offset < length; ) {
+			int read = in.read(frame, offset, length - offset);
+			if (read == -1)
+				throw new EOFException();
+			offset += read;
+		}
+		
+		decoder.resetFrame(frame, 0, length);
+		return true;
+	}
+
+	@Override
+	public boolean isEndOfFrame() throws IOException {
+		return decoder.isEndOfStream();
+	}
+
+	@Override
+	public Object readAny() throws IOException {
+		return decoder.readAny();
+	}
+
+	@Override
+	public <T> T readAny(Type targetType) throws IOException {
+		return decoder.readAny(targetType);
+	}
+
+	@Override
+	public boolean containsPartialObjects() {
+		return decoder.containsPartialObjects();
+	}
+
+	@Override
+	public Map<Object, List<PathSegment>> getPartialObjectsMap() {
+		return decoder.getPartialObjectsMap();
+	}
+}
@@ -0,0 +1,92 @@
+/**
+ * == @Spearal ==>
+ * 
+ * Copyright (C) 2014 Franck WOLFF & William DRAI (http://www.spearal.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spearal.impl;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.spearal.SpearalContext;
+import org.spearal.SpearalFramedEncoder;
+import org.spearal.SpearalPropertyFilter;
+
+/**
+ * @author Franck WOLFF
+ */
+public class SpearalFramedEncoderImpl implements SpearalFramedEncoder {
+
+	private final SpearalEncoderImpl encoder;
+	private final OutputStream out;
+	private final byte[] header;
+	
+	public SpearalFramedEncoderImpl(SpearalContext context, OutputStream out) {
+		this(context, null, out);
+	}
+	
+	public SpearalFramedEncoderImpl(SpearalContext context, SpearalPropertyFilter propertyFilter, OutputStream out) {
+		if (out == null)
+			throw new NullPointerException("out cannot be null");
+		
+		this.encoder = new SpearalEncoderImpl(context, propertyFilter, null, 1024, false);
+		this.out = out;
+		this.header = new byte[5];
+	}
+
+	@Override
+	public SpearalContext getContext() {
+		return encoder.getContext();
+	}
+
+	@Override
+	public SpearalPropertyFilter getPropertyFilter() {
+		return encoder.getPropertyFilter();
+	}
+
+	@Override
+	public void writeAny(Object o) throws IOException {
+		encoder.writeAny(o);
+	}
+
+	@Override
+	public void flush() throws IOException {
+		int size = encoder.size();
+		if (size > 0) {
+			int length = 0;
+			for (int value = size; ; value >>>= 7) {
+				if ((value & ~0x7f) == 0) {
+					header[length++] = (byte)value;
+					break;
+				}
+				header[length++] = (byte)((value & 0x7f) | 0x80);
+			}
+			out.write(header, 0, length);
+			encoder.writeTo(out);
+			encoder.resetFrame();
+		}
+		out.flush();
+	}
+
+	@Override
+	public int getReferencesWindow() {
+		return encoder.getReferencesWindow();
+	}
+
+	@Override
+	public void setReferencesWindow(int maxReferences) {
+		encoder.setReferencesWindow(maxReferences);
+	}
+}
@@ -19,6 +19,7 @@ package org.spearal.impl;
 
 import java.io.IOException;
 import java.io.PrintStream;
+import java.lang.reflect.Array;
 
 import org.spearal.SpearalPrinter;
 
@@ -120,6 +121,26 @@ public class SpearalPrinterImpl implements SpearalPrinter {
 		}
 	}
 
+	@Override
+	public void printPackedArray(Object value, int index, boolean reference) throws IOException {
+		if (reference)
+			out.printf("(^%d)", index);
+		else {
+			final int length = Array.getLength(value);
+			out.printf("<#%d> %s[", index, value.getClass().getComponentType().getName());
+			for (int i = 0; i < length; i++) {
+				if (i > 0)
+					out.print(", ");
+				out.print(Array.get(value, i));
+				if (i >= maxByteArrayLength) {
+					out.printf(" (and %d more...)", length - i);
+					break;
+				}
+			}
+			out.print(']');
+		}
+	}
+
 	@Override
 	public void printCollectionStart(int index, int length) throws IOException {
 		out.printf("<#%d> [", index);
@@ -62,6 +62,10 @@ public class SpearalPropertyFilterImpl implements SpearalPropertyFilter {
 		this.propertiesMap.put(cls, properties);
 	}
 
+	public void clear() {
+		propertiesMap.clear();
+	}
+
 	@Override
 	public Property[] get(Class<?> cls) {
 		Property[] properties = propertiesMap.get(cls);
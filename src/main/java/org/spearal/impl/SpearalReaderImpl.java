@@ -0,0 +1,404 @@
+/**
+ * == @Spearal ==>
+ * 
+ * Copyright (C) 2014 Franck WOLFF & William DRAI (http://www.spearal.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spearal.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.spearal.SpearalContext;
+import org.spearal.SpearalReader;
+import org.spearal.impl.util.ClassDescriptionUtil;
+
+/**
+ * @author Franck WOLFF
+ */
+public class SpearalReaderImpl implements SpearalReader {
+	
+	private static final int DEFAULT_DEPTH_INCREMENT = 8;
+
+	private static final int COLLECTION = 0;
+	private static final int MAP = 1;
+	private static final int BEAN = 2;
+	
+	private final SpearalDecoderImpl decoder;
+	private final Map<String, String[]> propertyNames;
+	
+	private int[] kinds;
+	private int[] indexes;
+	private int[] lengths;
+	private int[] steps;
+	private String[][] names;
+	private int depth;
+	
+	private Event event;
+	private boolean booleanValue;
+	private long longValue;
+	private double doubleValue;
+	private String stringValue;
+	private String className;
+	private SpearalDateTime dateTime;
+	private int size;
+	private int index;
+	private int pendingBytes;
+	private int pendingPackedType;
+
+	public SpearalReaderImpl(SpearalContext context, InputStream in) {
+		this.decoder = new SpearalDecoderImpl(context, in);
+		this.propertyNames = new HashMap<String, String[]>();
+		
+		this.kinds = new int[DEFAULT_DEPTH_INCREMENT];
+		this.indexes = new int[DEFAULT_DEPTH_INCREMENT];
+		this.lengths = new int[DEFAULT_DEPTH_INCREMENT];
+		this.steps = new int[DEFAULT_DEPTH_INCREMENT];
+		this.names = new String[DEFAULT_DEPTH_INCREMENT][];
+		this.depth = 0;
+		
+		this.pendingPackedType = -1;
+	}
+
+	@Override
+	public SpearalContext getContext() {
+		return decoder.getContext();
+	}
+
+	@Override
+	public void reset(InputStream in) {
+		decoder.reset(in);
+		propertyNames.clear();
+		
+		Arrays.fill(names, 0, depth, null);
+		depth = 0;
+		
+		event = null;
+		stringValue = null;
+		className = null;
+		dateTime = null;
+		pendingBytes = 0;
+		pendingPackedType = -1;
+	}
+
+	@Override
+	public Event next() throws IOException {
+		skipPending();
+		
+		stringValue = null;
+		className = null;
+		dateTime = null;
+		
+		if (depth == 0) {
+			while (!decoder.isEndOfStream()) {
+				int parameterizedType = decoder.readNextByte();
+				if (parameterizedType != SpearalType.RESET.id())
+					return readValue(parameterizedType);
+				decoder.resetReferences();
+			}
+			return (event = Event.END_OF_STREAM);
+		}
+		
+		final int top = depth - 1;
+		final int step = steps[top];
+		
+		switch (kinds[top]) {
+		case COLLECTION:
+			if (step == lengths[top])
+				return end(Event.COLLECTION_END);
+			break;
+		case MAP:
+			if (step == (lengths[top] << 1))
+				return end(Event.MAP_END);
+			break;
+		default:
+			if (step == (lengths[top] << 1))
+				return end(Event.BEAN_END);
+			if ((step & 1) == 0) {
+				steps[top] = step + 1;
+				index = indexes[top];
+				stringValue = names[top][step >>> 1];
+				return (event = Event.PROPERTY);
+			}
+			break;
+		}
+		
+		steps[top] = step + 1;
+		return readValue(decoder.readNextByte());
+	}
+
+	@Override
+	public void skip() throws IOException {
+		if (event == null)
+			return;
+		
+		switch (event) {
+		case BYTE_ARRAY:
+		case PACKED_ARRAY:
+			skipPending();
+			break;
+			
+		case COLLECTION_START:
+			skipContainer(lengths[depth - 1], Event.COLLECTION_END);
+			break;
+		case MAP_START:
+			skipContainer(lengths[depth - 1] << 1, Event.MAP_END);
+			break;
+		case BEAN_START:
+			skipContainer(lengths[depth - 1], Event.BEAN_END);
+			break;
+			
+		case PROPERTY:
+			if ((steps[depth - 1] & 1) == 1) {
+				decoder.skipData(decoder.readNextByte());
+				steps[depth - 1]++;
+			}
+			break;
+			
+		default:
+			break;
+		}
+	}
+
+	@Override
+	public Event getEvent() {
+		return event;
+	}
+
+	@Override
+	public int getDepth() {
+		return depth;
+	}
+
+	@Override
+	public boolean getBoolean() {
+		return booleanValue;
+	}
+
+	@Override
+	public long getLong() {
+		return longValue;
+	}
+
+	@Override
+	public double getDouble() {
+		return doubleValue;
+	}
+
+	@Override
+	public String getString() {
+		return stringValue;
+	}
+
+	@Override
+	public String getClassName() {
+		return className;
+	}
+
+	@Override
+	public SpearalDateTime getDateTime() {
+		return dateTime;
+	}
+
+	@Override
+	public int getSize() {
+		return size;
+	}
+
+	@Override
+	public int getIndex() {
+		return index;
+	}
+
+	@Override
+	public byte[] readByteArray() throws IOException {
+		if (event != Event.BYTE_ARRAY)
+			throw new IllegalStateException("Not a byte array: " + event);
+		if (pendingBytes == 0 && size > 0)
+			throw new IllegalStateException("Byte array already consumed");
+		
+		byte[] bytes = new byte[size];
+		decoder.readFully(bytes, 0, size);
+		pendingBytes = 0;
+		return bytes;
+	}
+	
+	@Override
+	public Object readPackedArray() throws IOException {
+		if (event != Event.PACKED_ARRAY)
+			throw new IllegalStateException("Not a packed array: " + event);
+		if (pendingPackedType == -1)
+			throw new IllegalStateException("Packed array already consumed");
+		
+		Object array = decoder.readPackedArrayData(pendingPackedType, size);
+		pendingPackedType = -1;
+		return array;
+	}
+	
+	private void skipPending() throws IOException {
+		if (pendingBytes > 0) {
+			decoder.skipBytes(pendingBytes);
+			pendingBytes = 0;
+		}
+		else if (pendingPackedType != -1) {
+			decoder.skipPackedArrayData(pendingPackedType, size);
+			pendingPackedType = -1;
+		}
+	}
+	
+	private Event readValue(int parameterizedType) throws IOException {
+		int indexOrLength;
+		
+		switch (SpearalType.valueOf(parameterizedType)) {
+		
+		case NULL:
+			return (event = Event.NULL);
+		
+		case TRUE:
+			booleanValue = true;
+			return (event = Event.BOOLEAN);
+		case FALSE:
+			booleanValue = false;
+			return (event = Event.BOOLEAN);
+		
+		case INTEGRAL:
+			longValue = decoder.readIntegral(parameterizedType);
+			return (event = Event.INTEGRAL);
+		case BIG_INTEGRAL:
+			stringValue = decoder.readBigNumber(parameterizedType);
+			return (event = Event.BIG_INTEGRAL);
+		
+		case FLOATING:
+			doubleValue = decoder.readFloating(parameterizedType);
+			return (event = Event.FLOATING);
+		case BIG_FLOATING:
+			stringValue = decoder.readBigNumber(parameterizedType);
+			return (event = Event.BIG_FLOATING);
+			
+		case STRING:
+			stringValue = decoder.readString(parameterizedType);
+			return (event = Event.STRING);
+			
+		case BYTE_ARRAY:
+			indexOrLength = decoder.readIndexOrLength(parameterizedType);
+			if (SpearalDecoderImpl.isObjectReference(parameterizedType)) {
+				index = indexOrLength;
+				return (event = Event.BYTE_ARRAY_REFERENCE);
+			}
+			index = decoder.addSkippedObject();
+			size = indexOrLength;
+			pendingBytes = indexOrLength;
+			return (event = Event.BYTE_ARRAY);
+			
+		case DATE_TIME:
+			dateTime = decoder.readDateTime(parameterizedType);
+			return (event = Event.DATE_TIME);
+			
+		case COLLECTION:
+			indexOrLength = decoder.readIndexOrLength(parameterizedType);
+			if (SpearalDecoderImpl.isObjectReference(parameterizedType)) {
+				index = indexOrLength;
+				return (event = Event.COLLECTION_REFERENCE);
+			}
+			push(COLLECTION, indexOrLength, null);
+			return (event = Event.COLLECTION_START);
+			
+		case PACKED_ARRAY:
+			indexOrLength = decoder.readIndexOrLength(parameterizedType);
+			if (SpearalDecoderImpl.isObjectReference(parameterizedType)) {
+				index = indexOrLength;
+				return (event = Event.PACKED_ARRAY_REFERENCE);
+			}
+			index = decoder.addSkippedObject();
+			size = indexOrLength;
+			pendingPackedType = decoder.readNextByte();
+			return (event = Event.PACKED_ARRAY);
+			
+		case MAP:
+			indexOrLength = decoder.readIndexOrLength(parameterizedType);
+			if (SpearalDecoderImpl.isObjectReference(parameterizedType)) {
+				index = indexOrLength;
+				return (event = Event.MAP_REFERENCE);
+			}
+			push(MAP, indexOrLength, null);
+			return (event = Event.MAP_START);
+			
+		case ENUM:
+			className = decoder.readString(parameterizedType);
+			stringValue = decoder.readString(decoder.readNextByte());
+			return (event = Event.ENUM);
+			
+		case CLASS:
+			className = decoder.readString(parameterizedType);
+			return (event = Event.CLASS);
+			
+		case BEAN:
+			indexOrLength = decoder.readIndexOrLength(parameterizedType);
+			if (SpearalDecoderImpl.isObjectReference(parameterizedType)) {
+				index = indexOrLength;
+				return (event = Event.BEAN_REFERENCE);
+			}
+			String description = decoder.readStringData(parameterizedType, indexOrLength);
+			String[] beanPropertyNames = propertyNames.get(description);
+			if (beanPropertyNames == null) {
+				beanPropertyNames = ClassDescriptionUtil.splitPropertyNames(description);
+				propertyNames.put(description, beanPropertyNames);
+			}
+			push(BEAN, beanPropertyNames.length, beanPropertyNames);
+			stringValue = description;
+			return (event = Event.BEAN_START);
+		}
+		
+		throw new RuntimeException("Unexpected parameterized type: " + parameterizedType);
+	}
+	
+	private void push(int kind, int length, String[] propertyNames) {
+		if (depth == kinds.length) {
+			int newLength = depth + DEFAULT_DEPTH_INCREMENT;
+			kinds = Arrays.copyOf(kinds, newLength);
+			indexes = Arrays.copyOf(indexes, newLength);
+			lengths = Arrays.copyOf(lengths, newLength);
+			steps = Arrays.copyOf(steps, newLength);
+			names = Arrays.copyOf(names, newLength);
+		}
+		
+		index = decoder.addSkippedObject();
+		size = length;
+		
+		kinds[depth] = kind;
+		indexes[depth] = index;
+		lengths[depth] = length;
+		steps[depth] = 0;
+		names[depth] = propertyNames;
+		depth++;
+	}
+	
+	private Event end(Event end) {
+		depth--;
+		index = indexes[depth];
+		names[depth] = null;
+		return (event = end);
+	}
+	
+	private void skipContainer(int count, Event end) throws IOException {
+		if (steps[depth - 1] != 0)
+			return;
+		for (int i = 0; i < count; i++)
+			decoder.skipData(decoder.readNextByte());
+		end(end);
+	}
+}
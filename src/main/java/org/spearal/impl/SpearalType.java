@@ -29,6 +29,9 @@ public enum SpearalType {
 	TRUE(0x01),
 	FALSE(0x02),
 	
+	// Between root values only: clears strings and objects references.
+	RESET(0x03),
+	
 	// 4 bits of parameters (0x10...0xf0).
 
 	INTEGRAL(0x10),
@@ -48,7 +51,9 @@ public enum SpearalType {
 	
 	ENUM(0xa0),
 	CLASS(0xb0),
-	BEAN(0xc0);
+	BEAN(0xc0),
+	
+	PACKED_ARRAY(0xd0);
 	
 	private static final SpearalType[] SIO_TYPES;
 	static {
@@ -17,6 +17,8 @@
  */
 package org.spearal.impl.cache;
 
+import java.util.Arrays;
+
 
 /**
  * @author Franck WOLFF
@@ -42,6 +44,14 @@ public abstract class AbstractAnyMap<K, P, V> extends AbstractMap implements Any
 		
 		entries = new Entry[capacity];
 	}
+	
+	@Override
+	public void clear() {
+		if (size > 0) {
+			Arrays.fill(entries, null);
+			size = 0;
+		}
+	}
 
 	
 	public ValueProvider<K, P, V> getProvider() {
@@ -17,6 +17,8 @@
  */
 package org.spearal.impl.cache;
 
+import java.util.Arrays;
+
 /**
  * @author Franck WOLFF
  */
@@ -38,6 +40,14 @@ public abstract class AbstractIndexMap<K> extends AbstractMap implements IndexMa
 		
 		this.entries = new Entry[capacity];
 	}
+	
+	@Override
+	public void clear() {
+		if (size > 0) {
+			Arrays.fill(entries, null);
+			size = 0;
+		}
+	}
     
 	@Override
 	public String toString() {
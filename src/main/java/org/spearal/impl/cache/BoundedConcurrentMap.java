@@ -0,0 +1,95 @@
+/**
+ * == @Spearal ==>
+ * 
+ * Copyright (C) 2014 Franck WOLFF & William DRAI (http://www.spearal.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spearal.impl.cache;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.spearal.SpearalContext;
+import org.spearal.impl.cache.AnyMap.ValueProvider;
+
+/**
+ * A thread-safe cache whose size is bounded, so keys coming from untrusted
+ * input (decoded class descriptions for example) cannot make it grow forever.
+ * When the maximum size is reached, a small batch of arbitrary entries is
+ * evicted before the new one is added: the cache is never emptied at once,
+ * so hot entries are very unlikely to be recomputed all together.
+ * 
+ * @author Franck WOLFF
+ */
+public final class BoundedConcurrentMap<K, P, V> {
+
+	private final ValueProvider<K, P, V> provider;
+	private final int maxSize;
+	private final int evictionBatchSize;
+	private final ConcurrentHashMap<K, V> map;
+	
+	public BoundedConcurrentMap(int maxSize, ValueProvider<K, P, V> provider) {
+		if (maxSize <= 0)
+			throw new IllegalArgumentException("Illegal max size: " + maxSize);
+		
+		this.provider = provider;
+		this.maxSize = maxSize;
+		this.evictionBatchSize = Math.max(1, maxSize >>> 6);
+		this.map = new ConcurrentHashMap<K, V>(Math.min(maxSize, 64));
+	}
+	
+	public V get(K key) {
+		return map.get(key);
+	}
+	
+	public V getOrPutIfAbsent(SpearalContext context, K key, P param) {
+		V value = map.get(key);
+		if (value == null) {
+			value = provider.createValue(context, key, param);
+			
+			if (map.size() >= maxSize)
+				evict();
+			
+			V previous = map.putIfAbsent(key, value);
+			if (previous != null)
+				value = previous;
+		}
+		return value;
+	}
+	
+	private void evict() {
+		int count = evictionBatchSize;
+		for (Iterator<K> keys = map.keySet().iterator(); count > 0 && keys.hasNext(); count--) {
+			keys.next();
+			keys.remove();
+		}
+	}
+	
+	public int getMaxSize() {
+		return maxSize;
+	}
+	
+	public int size() {
+		return map.size();
+	}
+	
+	public void clear() {
+		map.clear();
+	}
+	
+	@Override
+	public String toString() {
+		return map.toString();
+	}
+}
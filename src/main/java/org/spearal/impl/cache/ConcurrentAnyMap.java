@@ -0,0 +1,239 @@
+/**
+ * == @Spearal ==>
+ * 
+ * Copyright (C) 2014 Franck WOLFF & William DRAI (http://www.spearal.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spearal.impl.cache;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.spearal.SpearalContext;
+import org.spearal.impl.cache.AnyMap.ValueProvider;
+
+/**
+ * A thread-safe cache with lock-free reads. Entries are immutable and
+ * published through an {@link AtomicReferenceArray}, so a lookup never
+ * blocks. On a miss, the value provider runs outside of any lock: a pending
+ * value registered in a {@link ConcurrentHashMap} makes other threads missing
+ * the same key wait for it (so the provider is still called only once per
+ * key), while misses on other keys proceed in parallel. A thread whose wait
+ * would close a cycle of creators waiting for each other creates the value
+ * itself instead (see {@link PendingValue}). The new entry is then prepended
+ * to its bucket under a short lock (the table is doubled when it becomes too
+ * crowded).
+ * 
+ * @author Franck WOLFF
+ */
+public final class ConcurrentAnyMap<K, P, V> {
+	
+	private static final int MAXIMUM_CAPACITY = 1 << 30;
+	private static final int DEFAULT_INITIAL_CAPACITY = 1 << 4;
+	private static final float DEFAULT_LOAD_FACTOR = 0.75f;
+
+	private final boolean identity;
+	private final ValueProvider<K, P, V> provider;
+	
+	private final ConcurrentHashMap<Object, PendingValue<V>> pending;
+	
+	private volatile AtomicReferenceArray<Entry<K, V>> entries;
+	private volatile int size;
+	private int threshold;
+	
+	public ConcurrentAnyMap(boolean identity, ValueProvider<K, P, V> provider) {
+		this.identity = identity;
+		this.provider = provider;
+		this.pending = new ConcurrentHashMap<Object, PendingValue<V>>();
+		this.entries = new AtomicReferenceArray<Entry<K, V>>(DEFAULT_INITIAL_CAPACITY);
+		this.size = 0;
+		this.threshold = (int)(DEFAULT_INITIAL_CAPACITY * DEFAULT_LOAD_FACTOR);
+	}
+	
+	public V get(K key) {
+		int hash = hash(key);
+		AtomicReferenceArray<Entry<K, V>> entries = this.entries;
+		for (Entry<K, V> entry = entries.get(hash & (entries.length() - 1));
+			entry != null;
+			entry = entry.next) {
+			
+			if (matches(entry, key, hash))
+				return entry.value;
+		}
+		return null;
+	}
+	
+	public V putIfAbsent(SpearalContext context, K key, P param) {
+		V value = get(key);
+		if (value != null)
+			return value;
+		
+		Object pendingKey = (identity ? new IdentityKey(key) : key);
+		PendingValue<V> pendingValue = new PendingValue<V>();
+		PendingValue<V> otherPendingValue = pending.putIfAbsent(pendingKey, pendingValue);
+		if (otherPendingValue != null) {
+			value = otherPendingValue.get();
+			if (value != null)
+				return value;
+			// Waiting would deadlock: create the value in this thread.
+			return create(context, key, param);
+		}
+		
+		try {
+			// Another thread may have published the value since our first lookup.
+			value = get(key);
+			if (value == null)
+				value = create(context, key, param);
+			pendingValue.set(value);
+			return value;
+		}
+		catch (RuntimeException e) {
+			pendingValue.fail(e);
+			throw e;
+		}
+		catch (Error e) {
+			pendingValue.fail(e);
+			throw e;
+		}
+		finally {
+			pending.remove(pendingKey);
+		}
+	}
+	
+	private V create(SpearalContext context, K key, P param) {
+		V value = provider.createValue(context, key, param);
+		if (value == null)
+			throw new NullPointerException("Provider returned null for key: " + key);
+		return insert(key, value);
+	}
+	
+	private synchronized V insert(K key, V value) {
+		int hash = hash(key);
+		AtomicReferenceArray<Entry<K, V>> entries = this.entries;
+		int index = hash & (entries.length() - 1);
+		Entry<K, V> head = entries.get(index);
+		for (Entry<K, V> entry = head; entry != null; entry = entry.next) {
+			if (matches(entry, key, hash))
+				return entry.value;
+		}
+		
+		entries.set(index, new Entry<K, V>(key, hash, value, head));
+		if (++size > threshold)
+			resize();
+		return value;
+	}
+	
+	public V getOrPutIfAbsent(SpearalContext context, K key) {
+		V value = get(key);
+		return (value != null ? value : putIfAbsent(context, key, null));
+	}
+	
+	public V getOrPutIfAbsent(SpearalContext context, K key, P param) {
+		V value = get(key);
+		return (value != null ? value : putIfAbsent(context, key, param));
+	}
+	
+	public int size() {
+		return size;
+	}
+	
+	@Override
+	public String toString() {
+		AtomicReferenceArray<Entry<K, V>> entries = this.entries;
+		boolean first = true;
+
+		StringBuilder sb = new StringBuilder(256);
+		sb.append('{');
+		for (int i = 0; i < entries.length(); i++) {
+			for (Entry<K, V> entry = entries.get(i); entry != null; entry = entry.next) {
+				if (first)
+					first = false;
+				else
+					sb.append(", ");
+				sb.append(entry.key).append('=').append(entry.value);
+			}
+		}
+		sb.append('}');
+		return sb.toString();
+	}
+	
+	private int hash(K key) {
+		return (identity ? System.identityHashCode(key) : key.hashCode());
+	}
+	
+	private boolean matches(Entry<K, V> entry, K key, int hash) {
+		return (identity ? key == entry.key : (hash == entry.hash && key.equals(entry.key)));
+	}
+	
+	private void resize() {
+		AtomicReferenceArray<Entry<K, V>> oldEntries = entries;
+		
+		int oldCapacity = oldEntries.length();
+		if (oldCapacity == MAXIMUM_CAPACITY) {
+			threshold = Integer.MAX_VALUE;
+			return;
+		}
+		
+		int newCapacity = oldCapacity << 1;
+		int indexMask = newCapacity - 1;
+		
+		AtomicReferenceArray<Entry<K, V>> newEntries = new AtomicReferenceArray<Entry<K, V>>(newCapacity);
+		for (int i = 0; i < oldCapacity; i++) {
+			for (Entry<K, V> entry = oldEntries.get(i); entry != null; entry = entry.next) {
+				int index = entry.hash & indexMask;
+				newEntries.set(index, new Entry<K, V>(entry.key, entry.hash, entry.value, newEntries.get(index)));
+			}
+		}
+		
+		entries = newEntries;
+		threshold = (int)Math.min(newCapacity * DEFAULT_LOAD_FACTOR, MAXIMUM_CAPACITY + 1);
+	}
+
+	private static final class IdentityKey {
+		
+		private final Object key;
+		
+		public IdentityKey(Object key) {
+			this.key = key;
+		}
+		
+		@Override
+		public int hashCode() {
+			return System.identityHashCode(key);
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			return (obj instanceof IdentityKey && ((IdentityKey)obj).key == key);
+		}
+	}
+
+	private static final class Entry<K, V> {
+		
+		public final K key;
+		public final int hash;
+		public final V value;
+		public final Entry<K, V> next;
+		
+		public Entry(K key, int hash, V value, Entry<K, V> next) {
+			if (key == null)
+				throw new NullPointerException();
+			
+			this.key = key;
+			this.hash = hash;
+			this.value = value;
+			this.next = next;
+		}
+	}
+}
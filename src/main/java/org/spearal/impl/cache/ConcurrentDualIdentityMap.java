@@ -0,0 +1,227 @@
+/**
+ * == @Spearal ==>
+ * 
+ * Copyright (C) 2014 Franck WOLFF & William DRAI (http://www.spearal.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spearal.impl.cache;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.spearal.SpearalContext;
+
+/**
+ * The two keys, identity based, counterpart of {@link ConcurrentAnyMap}:
+ * lock-free reads, values created outside of any lock (only misses on the
+ * same keys wait for each other) and in place inserts.
+ * 
+ * @author Franck WOLFF
+ */
+public final class ConcurrentDualIdentityMap<K1, K2, V> {
+	
+	private static final int MAXIMUM_CAPACITY = 1 << 30;
+	private static final int DEFAULT_INITIAL_CAPACITY = 1 << 4;
+	private static final float DEFAULT_LOAD_FACTOR = 0.75f;
+
+	private final DualIdentityMap.ValueProvider<K1, K2, V> provider;
+	
+	private final ConcurrentHashMap<DualKey, PendingValue<V>> pending;
+	
+	private volatile AtomicReferenceArray<Entry<K1, K2, V>> entries;
+	private volatile int size;
+	private int threshold;
+	
+	public ConcurrentDualIdentityMap(DualIdentityMap.ValueProvider<K1, K2, V> provider) {
+		this.provider = provider;
+		this.pending = new ConcurrentHashMap<DualKey, PendingValue<V>>();
+		this.entries = new AtomicReferenceArray<Entry<K1, K2, V>>(DEFAULT_INITIAL_CAPACITY);
+		this.size = 0;
+		this.threshold = (int)(DEFAULT_INITIAL_CAPACITY * DEFAULT_LOAD_FACTOR);
+	}
+	
+	public V get(K1 key1, K2 key2) {
+		int hash = hash(key1, key2);
+		AtomicReferenceArray<Entry<K1, K2, V>> entries = this.entries;
+		for (Entry<K1, K2, V> entry = entries.get(hash & (entries.length() - 1));
+			entry != null;
+			entry = entry.next) {
+			
+			if (key1 == entry.key1 && key2 == entry.key2)
+				return entry.value;
+		}
+		return null;
+	}
+	
+	public V putIfAbsent(SpearalContext context, K1 key1, K2 key2) {
+		V value = get(key1, key2);
+		if (value != null)
+			return value;
+		
+		DualKey pendingKey = new DualKey(key1, key2);
+		PendingValue<V> pendingValue = new PendingValue<V>();
+		PendingValue<V> otherPendingValue = pending.putIfAbsent(pendingKey, pendingValue);
+		if (otherPendingValue != null) {
+			value = otherPendingValue.get();
+			if (value != null)
+				return value;
+			// Waiting would deadlock: create the value in this thread.
+			return create(context, key1, key2);
+		}
+		
+		try {
+			// Another thread may have published the value since our first lookup.
+			value = get(key1, key2);
+			if (value == null)
+				value = create(context, key1, key2);
+			pendingValue.set(value);
+			return value;
+		}
+		catch (RuntimeException e) {
+			pendingValue.fail(e);
+			throw e;
+		}
+		catch (Error e) {
+			pendingValue.fail(e);
+			throw e;
+		}
+		finally {
+			pending.remove(pendingKey);
+		}
+	}
+	
+	private V create(SpearalContext context, K1 key1, K2 key2) {
+		V value = provider.createValue(context, key1, key2);
+		if (value == null)
+			throw new NullPointerException("Provider returned null for keys: " + key1 + ", " + key2);
+		return insert(key1, key2, value);
+	}
+	
+	private synchronized V insert(K1 key1, K2 key2, V value) {
+		int hash = hash(key1, key2);
+		AtomicReferenceArray<Entry<K1, K2, V>> entries = this.entries;
+		int index = hash & (entries.length() - 1);
+		Entry<K1, K2, V> head = entries.get(index);
+		for (Entry<K1, K2, V> entry = head; entry != null; entry = entry.next) {
+			if (key1 == entry.key1 && key2 == entry.key2)
+				return entry.value;
+		}
+		
+		entries.set(index, new Entry<K1, K2, V>(key1, key2, hash, value, head));
+		if (++size > threshold)
+			resize();
+		return value;
+	}
+	
+	public V getOrPutIfAbsent(SpearalContext context, K1 key1, K2 key2) {
+		V value = get(key1, key2);
+		return (value != null ? value : putIfAbsent(context, key1, key2));
+	}
+	
+	public int size() {
+		return size;
+	}
+	
+	@Override
+	public String toString() {
+		AtomicReferenceArray<Entry<K1, K2, V>> entries = this.entries;
+		boolean first = true;
+
+		StringBuilder sb = new StringBuilder(256);
+		sb.append('{');
+		for (int i = 0; i < entries.length(); i++) {
+			for (Entry<K1, K2, V> entry = entries.get(i); entry != null; entry = entry.next) {
+				if (first)
+					first = false;
+				else
+					sb.append(", ");
+				sb.append(entry.key1).append('#').append(entry.key2).append('=').append(entry.value);
+			}
+		}
+		sb.append('}');
+		return sb.toString();
+	}
+	
+	private void resize() {
+		AtomicReferenceArray<Entry<K1, K2, V>> oldEntries = entries;
+		
+		int oldCapacity = oldEntries.length();
+		if (oldCapacity == MAXIMUM_CAPACITY) {
+			threshold = Integer.MAX_VALUE;
+			return;
+		}
+		
+		int newCapacity = oldCapacity << 1;
+		int indexMask = newCapacity - 1;
+		
+		AtomicReferenceArray<Entry<K1, K2, V>> newEntries = new AtomicReferenceArray<Entry<K1, K2, V>>(newCapacity);
+		for (int i = 0; i < oldCapacity; i++) {
+			for (Entry<K1, K2, V> entry = oldEntries.get(i); entry != null; entry = entry.next) {
+				int index = entry.hash & indexMask;
+				newEntries.set(index, new Entry<K1, K2, V>(entry.key1, entry.key2, entry.hash, entry.value, newEntries.get(index)));
+			}
+		}
+		
+		entries = newEntries;
+		threshold = (int)Math.min(newCapacity * DEFAULT_LOAD_FACTOR, MAXIMUM_CAPACITY + 1);
+	}
+	
+	private static int hash(Object key1, Object key2) {
+		return System.identityHashCode(key1) + System.identityHashCode(key2);
+	}
+
+	private static final class DualKey {
+		
+		private final Object key1;
+		private final Object key2;
+		
+		public DualKey(Object key1, Object key2) {
+			this.key1 = key1;
+			this.key2 = key2;
+		}
+		
+		@Override
+		public int hashCode() {
+			return hash(key1, key2);
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof DualKey))
+				return false;
+			DualKey that = (DualKey)obj;
+			return (that.key1 == key1 && that.key2 == key2);
+		}
+	}
+
+	private static final class Entry<K1, K2, V> {
+		
+		public final K1 key1;
+		public final K2 key2;
+		public final int hash;
+		public final V value;
+		public final Entry<K1, K2, V> next;
+		
+		public Entry(K1 key1, K2 key2, int hash, V value, Entry<K1, K2, V> next) {
+			if (key1 == null && key2 == null)
+				throw new NullPointerException();
+			
+			this.key1 = key1;
+			this.key2 = key2;
+			this.hash = hash;
+			this.value = value;
+			this.next = next;
+		}
+	}
+}
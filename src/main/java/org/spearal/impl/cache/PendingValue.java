@@ -0,0 +1,113 @@
+/**
+ * == @Spearal ==>
+ * 
+ * Copyright (C) 2014 Franck WOLFF & William DRAI (http://www.spearal.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spearal.impl.cache;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A value being created by one thread, that other threads asking for the
+ * same key wait for. Used by the concurrent caches so that value providers
+ * run outside of any lock, and only threads missing the same key contend.
+ * <br>
+ * Providers may ask for other keys while creating a value, so two creators
+ * could end up waiting for each other (directly or through other creators).
+ * Every waiting thread is registered with the value it waits for, and a
+ * thread that would close such a cycle does not wait: {@link #get()} returns
+ * <code>null</code> and the caller creates the value itself.
+ * 
+ * @author Franck WOLFF
+ */
+final class PendingValue<V> {
+	
+	private static final ConcurrentHashMap<Thread, PendingValue<?>> waiting =
+		new ConcurrentHashMap<Thread, PendingValue<?>>();
+
+	private final Thread creator;
+	
+	private boolean done;
+	private V value;
+	private Throwable failure;
+	
+	public PendingValue() {
+		this.creator = Thread.currentThread();
+	}
+	
+	public synchronized void set(V value) {
+		this.value = value;
+		this.done = true;
+		notifyAll();
+	}
+	
+	public synchronized void fail(Throwable failure) {
+		this.failure = failure;
+		this.done = true;
+		notifyAll();
+	}
+	
+	public V get() {
+		Thread current = Thread.currentThread();
+		if (creator == current)
+			throw new IllegalStateException("Recursive value creation for the same key");
+		
+		// Register before looking for a cycle: of two threads closing the
+		// same cycle, at least the last one to register sees it.
+		waiting.put(current, this);
+		boolean interrupted = false;
+		try {
+			if (isWaitingFor(current))
+				return null;
+			
+			synchronized (this) {
+				while (!done) {
+					try {
+						wait();
+					}
+					catch (InterruptedException e) {
+						interrupted = true;
+					}
+				}
+			}
+		}
+		finally {
+			waiting.remove(current);
+			if (interrupted)
+				Thread.currentThread().interrupt();
+		}
+		
+		if (failure instanceof RuntimeException)
+			throw (RuntimeException)failure;
+		if (failure instanceof Error)
+			throw (Error)failure;
+		if (failure != null)
+			throw new RuntimeException(failure);
+		return value;
+	}
+	
+	private boolean isWaitingFor(Thread thread) {
+		Thread owner = creator;
+		for (int i = waiting.size(); i >= 0; i--) {
+			if (owner == thread)
+				return true;
+			PendingValue<?> pendingValue = waiting.get(owner);
+			if (pendingValue == null)
+				return false;
+			owner = pendingValue.creator;
+		}
+		return false;
+	}
+}
@@ -0,0 +1,45 @@
+/**
+ * == @Spearal ==>
+ * 
+ * Copyright (C) 2014 Franck WOLFF & William DRAI (http://www.spearal.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spearal.impl.coder;
+
+import java.io.IOException;
+
+import org.spearal.configuration.CoderProvider;
+import org.spearal.configuration.CoderProvider.Coder;
+import org.spearal.impl.ExtendedSpearalEncoder;
+import org.spearal.impl.PackedArrayType;
+
+/**
+ * Encodes <code>int[]</code>, <code>long[]</code>, <code>short[]</code>, <code>double[]</code>,
+ * <code>float[]</code> and <code>boolean[]</code> values as packed arrays. Not configured by
+ * default: peers must be able to decode the packed array type.
+ * 
+ * @author Franck WOLFF
+ */
+public class PackedArrayCoder implements CoderProvider, Coder {
+
+	@Override
+	public Coder getCoder(Class<?> valueClass) {
+		return (valueClass.isArray() && PackedArrayType.valueOf(valueClass.getComponentType()) != null ? this : null);
+	}
+
+	@Override
+	public void encode(ExtendedSpearalEncoder encoder, Object value) throws IOException {
+		encoder.writePackedArray(value);
+	}
+}
@@ -187,6 +187,14 @@ public class SimpleCodersProvider implements CoderProvider {
 		});
 	}
 
+	/**
+	 * Tells if the given coder is one of the built-in coders of this provider, ie. if no
+	 * custom coder was registered in front of it for the corresponding type.
+	 */
+	public static boolean isSimpleCoder(Coder coder) {
+		return (coder != null && coder.getClass().getEnclosingClass() == SimpleCodersProvider.class);
+	}
+	
 	@Override
 	public Coder getCoder(Class<?> valueClass) {
 		return coders.get(valueClass);
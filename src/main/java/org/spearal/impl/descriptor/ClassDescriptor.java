@@ -0,0 +1,89 @@
+/**
+ * == @Spearal ==>
+ * 
+ * Copyright (C) 2014 Franck WOLFF & William DRAI (http://www.spearal.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spearal.impl.descriptor;
+
+import java.lang.reflect.Proxy;
+import java.lang.reflect.Type;
+
+import org.spearal.SpearalContext;
+import org.spearal.configuration.BeanReaderFactory.BeanReader;
+import org.spearal.configuration.PartialObjectFactory.PartialObjectProxy;
+import org.spearal.configuration.PropertyFactory.Property;
+import org.spearal.impl.SpearalDecoderImpl.ClassNotFound;
+import org.spearal.impl.util.ClassDescriptionUtil;
+
+/**
+ * @author Franck WOLFF
+ */
+public class ClassDescriptor {
+	
+	public final Class<?> cls;
+	public final Property[] properties;
+	public final boolean partial;
+	public final BeanReader reader;
+
+	public static ClassDescriptor forDescription(SpearalContext context, String description, Type targetType) {
+		String classNames = ClassDescriptionUtil.classNames(description);
+		String[] propertyNames = ClassDescriptionUtil.splitPropertyNames(description);
+
+		Class<?> cls = context.loadClass(classNames, targetType);
+		
+		if (cls == null) {
+			Property[] classNotFoundProperties = new Property[propertyNames.length];
+			for (int i = 0; i < propertyNames.length; i++) {
+				String propertyName = propertyNames[i];
+				classNotFoundProperties[i] = new ClassNotFoundProperty(propertyName);
+			}
+			return new ClassDescriptor(ClassNotFound.class, classNotFoundProperties, false, null);
+		}
+
+		
+		Property[] properties = context.getProperties(cls);
+
+		Property[] serializedProperties = new Property[propertyNames.length];
+		boolean partial = false;
+		
+		propertiesLoop:
+		for (Property property : properties) {
+			String propertyName = property.getName();
+			for (int i = 0; i < propertyNames.length; i++) {
+				if (propertyName.equals(propertyNames[i])) {
+					serializedProperties[i] = property;
+					continue propertiesLoop;
+				}
+			}
+			partial = true;
+		}
+		
+		if (Proxy.isProxyClass(cls)) {
+			partial = true;
+			cls = context.loadClass(classNames + "," + PartialObjectProxy.class.getName(), targetType);
+			return new ClassDescriptor(cls, serializedProperties, partial, null);
+		}
+		
+		BeanReader reader = context.createBeanReader(cls, serializedProperties);
+		return new ClassDescriptor(cls, serializedProperties, partial, reader);
+	}
+	
+	public ClassDescriptor(Class<?> cls, Property[] properties, boolean partial, BeanReader reader) {
+		this.cls = cls;
+		this.properties = properties;
+		this.partial = partial;
+		this.reader = reader;
+	}
+}
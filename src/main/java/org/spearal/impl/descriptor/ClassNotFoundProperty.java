@@ -0,0 +1,138 @@
+/**
+ * == @Spearal ==>
+ * 
+ * Copyright (C) 2014 Franck WOLFF & William DRAI (http://www.spearal.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spearal.impl.descriptor;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+
+import org.spearal.configuration.PropertyFactory.Property;
+import org.spearal.impl.ExtendedSpearalDecoder;
+import org.spearal.impl.ExtendedSpearalEncoder;
+import org.spearal.impl.SpearalDecoderImpl.ClassNotFound;
+
+/**
+ * @author Franck WOLFF
+ */
+class ClassNotFoundProperty implements Property {
+
+	private final String name;
+	
+	public ClassNotFoundProperty(String name) {
+		this.name = name;
+	}
+
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public Class<?> getType() {
+		return Object.class;
+	}
+
+	@Override
+	public Type getGenericType() {
+		return Object.class;
+	}
+
+	@Override
+	public boolean hasField() {
+		return false;
+	}
+
+	@Override
+	public Field getField() {
+		return null;
+	}
+
+	@Override
+	public boolean hasGetter() {
+		return false;
+	}
+
+	@Override
+	public Method getGetter() {
+		return null;
+	}
+
+	@Override
+	public boolean hasSetter() {
+		return false;
+	}
+
+	@Override
+	public Method getSetter() {
+		return null;
+	}
+
+	@Override
+	public Class<?> getDeclaringClass() {
+		return ClassNotFound.class;
+	}
+
+	@Override
+	public Object init(ExtendedSpearalDecoder decoder, Object holder)
+		throws InstantiationException, IllegalAccessException, InvocationTargetException {
+		return null;
+	}
+
+	@Override
+	public Object get(Object holder)
+		throws IllegalAccessException, InvocationTargetException {
+		return ((ClassNotFound)holder).get(name);
+	}
+
+	@Override
+	public void set(Object holder, Object value)
+		throws IllegalAccessException, InvocationTargetException {
+		((ClassNotFound)holder).put(name, value);
+	}
+
+	@Override
+	public boolean isAnnotationPresent(Class<? extends Annotation> annotationClass) {
+		return false;
+	}
+
+	@Override
+	public <A extends Annotation> A getAnnotation(Class<A> annotationClass) {
+		return null;
+	}
+
+	@Override
+	public boolean isReadOnly() {
+		return false;
+	}
+
+	@Override
+	public void write(ExtendedSpearalEncoder encoder, Object holder)
+		throws IOException, IllegalAccessException, InvocationTargetException {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public void read(ExtendedSpearalDecoder decoder, Object holder, int parameterizedType)
+		throws IOException, InstantiationException, IllegalAccessException, InvocationTargetException {
+		
+		set(holder, decoder.readAny(parameterizedType));
+	}
+}
@@ -0,0 +1,92 @@
+/**
+ * == @Spearal ==>
+ * 
+ * Copyright (C) 2014 Franck WOLFF & William DRAI (http://www.spearal.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spearal.impl.dictionary;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.spearal.configuration.StringDictionary;
+
+/**
+ * @author Franck WOLFF
+ */
+public class StaticStringDictionary implements StringDictionary {
+	
+	private static final int MAGIC = 0x53534431; // "SSD1"
+	private static final int INITIAL_LOAD_CAPACITY = 1024;
+
+	private final String[] strings;
+	
+	public StaticStringDictionary(Collection<String> strings) {
+		this(strings.toArray(new String[strings.size()]));
+	}
+	
+	public StaticStringDictionary(String... strings) {
+		Set<String> unique = new HashSet<String>(strings.length * 2);
+		for (String s : strings) {
+			if (s == null || s.length() == 0)
+				throw new IllegalArgumentException("Dictionary strings cannot be null or empty");
+			if (!unique.add(s))
+				throw new IllegalArgumentException("Duplicated dictionary string: " + s);
+		}
+		this.strings = strings.clone();
+	}
+
+	/**
+	 * Returns a copy of the strings of this dictionary. Contexts copy them
+	 * once, when the dictionary is configured.
+	 */
+	@Override
+	public String[] getStrings() {
+		return strings.clone();
+	}
+	
+	public void store(OutputStream out) throws IOException {
+		DataOutputStream data = new DataOutputStream(out);
+		data.writeInt(MAGIC);
+		data.writeInt(strings.length);
+		for (String s : strings)
+			data.writeUTF(s);
+		data.flush();
+	}
+	
+	public static StaticStringDictionary load(InputStream in) throws IOException {
+		DataInputStream data = new DataInputStream(in);
+		if (data.readInt() != MAGIC)
+			throw new IOException("Not a string dictionary");
+		
+		int count = data.readInt();
+		if (count < 0)
+			throw new IOException("Illegal dictionary size: " + count);
+		
+		// The count isn't trusted for allocation: a truncated or forged stream
+		// ends with an EOFException before the list grows that large.
+		List<String> strings = new ArrayList<String>(Math.min(count, INITIAL_LOAD_CAPACITY));
+		for (int i = 0; i < count; i++)
+			strings.add(data.readUTF());
+		return new StaticStringDictionary(strings);
+	}
+}
@@ -0,0 +1,148 @@
+/**
+ * == @Spearal ==>
+ * 
+ * Copyright (C) 2014 Franck WOLFF & William DRAI (http://www.spearal.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spearal.impl.dictionary;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.spearal.DefaultSpearalFactory;
+import org.spearal.SpearalFactory;
+import org.spearal.SpearalReader;
+import org.spearal.SpearalReader.Event;
+import org.spearal.impl.util.UTF8Util;
+
+/**
+ * Builds a {@link StaticStringDictionary} from sample payloads: strings found in
+ * several samples are kept, the ones saving the most bytes first (so they get
+ * the shortest references).
+ * 
+ * @author Franck WOLFF
+ */
+public class StringDictionaryTrainer {
+	
+	public static final int DEFAULT_MAX_STRINGS = 256;
+
+	private final SpearalFactory factory;
+	private final Map<String, Integer> samplesCounts;
+	
+	public StringDictionaryTrainer() {
+		this(new DefaultSpearalFactory());
+	}
+	
+	public StringDictionaryTrainer(SpearalFactory factory) {
+		this.factory = factory;
+		this.samplesCounts = new HashMap<String, Integer>();
+	}
+	
+	public void addSample(byte[] sample) throws IOException {
+		addSample(new ByteArrayInputStream(sample));
+	}
+	
+	public void addSample(InputStream sample) throws IOException {
+		Set<String> strings = new HashSet<String>();
+		
+		SpearalReader reader = factory.newReader(sample);
+		for (Event event = reader.next(); event != Event.END_OF_STREAM; event = reader.next()) {
+			switch (event) {
+			case STRING:
+			case BEAN_START:
+				strings.add(reader.getString());
+				break;
+			case ENUM:
+				strings.add(reader.getClassName());
+				strings.add(reader.getString());
+				break;
+			case CLASS:
+				strings.add(reader.getClassName());
+				break;
+			default:
+				break;
+			}
+		}
+		
+		for (String s : strings) {
+			if (s.length() > 0) {
+				Integer count = samplesCounts.get(s);
+				samplesCounts.put(s, Integer.valueOf(count != null ? count.intValue() + 1 : 1));
+			}
+		}
+	}
+	
+	public StaticStringDictionary train(int maxStrings) {
+		final Map<String, Long> scores = new HashMap<String, Long>();
+		for (Map.Entry<String, Integer> entry : samplesCounts.entrySet()) {
+			int count = entry.getValue().intValue();
+			if (count > 1)
+				scores.put(entry.getKey(), Long.valueOf((long)count * UTF8Util.utf8Length(entry.getKey())));
+		}
+		
+		List<String> strings = new ArrayList<String>(scores.keySet());
+		Collections.sort(strings, new Comparator<String>() {
+			@Override
+			public int compare(String s1, String s2) {
+				int result = scores.get(s2).compareTo(scores.get(s1));
+				return (result != 0 ? result : s1.compareTo(s2));
+			}
+		});
+		
+		if (strings.size() > maxStrings)
+			strings = strings.subList(0, maxStrings);
+		return new StaticStringDictionary(strings);
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.err.println("Usage: " + StringDictionaryTrainer.class.getName() + " <output file> <sample file>...");
+			System.exit(1);
+		}
+		
+		StringDictionaryTrainer trainer = new StringDictionaryTrainer();
+		for (int i = 1; i < args.length; i++) {
+			InputStream in = new BufferedInputStream(new FileInputStream(new File(args[i])));
+			try {
+				trainer.addSample(in);
+			}
+			finally {
+				in.close();
+			}
+		}
+		
+		OutputStream out = new BufferedOutputStream(new FileOutputStream(new File(args[0])));
+		try {
+			trainer.train(DEFAULT_MAX_STRINGS).store(out);
+		}
+		finally {
+			out.close();
+		}
+	}
+}
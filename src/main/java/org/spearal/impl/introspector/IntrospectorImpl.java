@@ -35,10 +35,11 @@ import java.util.logging.Logger;
 import org.spearal.SpearalContext;
 import org.spearal.annotation.Exclude;
 import org.spearal.annotation.Include;
+import org.spearal.annotation.Introspected;
 import org.spearal.configuration.Introspector;
 import org.spearal.configuration.PropertyFactory.Property;
 import org.spearal.impl.cache.AnyMap.ValueProvider;
-import org.spearal.impl.cache.CopyOnWriteMap;
+import org.spearal.impl.cache.ConcurrentAnyMap;
 
 /**
  * @author Franck WOLFF
@@ -47,10 +48,10 @@ public class IntrospectorImpl implements Introspector {
 	
 	private static Logger logger = Logger.getLogger(IntrospectorImpl.class.getName());
 
-	private final CopyOnWriteMap<Class<?>, Object, Property[]> cache;
+	private final ConcurrentAnyMap<Class<?>, Object, Property[]> cache;
 
 	public IntrospectorImpl() {
-		this.cache = new CopyOnWriteMap<Class<?>, Object, Property[]>(true,
+		this.cache = new ConcurrentAnyMap<Class<?>, Object, Property[]>(true,
 			new ValueProvider<Class<?>, Object, Property[]>() {
 				@Override
 				public Property[] createValue(SpearalContext context, Class<?> key, Object unused) {
@@ -76,6 +77,40 @@ public class IntrospectorImpl implements Introspector {
 		if (cls == Object.class || cls == null)
 			return ZERO_PROPERTIES;
 		
+		Property[] properties = null;
+		if (cls.isAnnotationPresent(Introspected.class))
+			properties = loadDeclaredProperties(context, cls);
+		if (properties == null)
+			properties = introspectDeclaredProperties(context, cls);
+		
+		Class<?> superCls = cls.getSuperclass();
+		if (superCls == Object.class || superCls == null)
+			return properties;
+		
+		Property[] superProperties = getProperties(context, superCls);
+		return concat(superProperties, properties);
+	}
+	
+	protected Property[] loadDeclaredProperties(SpearalContext context, Class<?> cls) {
+		PropertyTable table = PropertyTable.forClass(cls);
+		if (table == null) {
+			logger.warning("No generated property table for @Introspected class (is org.spearal.processor.IntrospectedProcessor enabled?): " + cls);
+			return null;
+		}
+		
+		try {
+			return table.createProperties(context);
+		}
+		catch (NoSuchFieldException e) {
+			logger.warning("Outdated property table for: " + cls + " (" + e + ")");
+		}
+		catch (NoSuchMethodException e) {
+			logger.warning("Outdated property table for: " + cls + " (" + e + ")");
+		}
+		return null;
+	}
+	
+	protected Property[] introspectDeclaredProperties(SpearalContext context, Class<?> cls) {
 		Field[] declaredFields = cls.getDeclaredFields();
 		Method[] declaredMethods = cls.getDeclaredMethods();
 		
@@ -128,14 +163,7 @@ public class IntrospectorImpl implements Introspector {
 			}
 		}
 		
-		Property[] properties = propertiesMap.values().toArray(ZERO_PROPERTIES);
-		
-		Class<?> superCls = cls.getSuperclass();
-		if (superCls == Object.class || superCls == null)
-			return properties;
-		
-		Property[] superProperties = getProperties(context, superCls);
-		return concat(superProperties, properties);
+		return propertiesMap.values().toArray(ZERO_PROPERTIES);
 	}
 
 	protected Method findGetter(Method[] methods, Class<?> type, String name) {
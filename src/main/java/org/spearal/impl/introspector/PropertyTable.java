@@ -0,0 +1,68 @@
+/**
+ * == @Spearal ==>
+ * 
+ * Copyright (C) 2014 Franck WOLFF & William DRAI (http://www.spearal.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spearal.impl.introspector;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+
+import org.spearal.SpearalContext;
+import org.spearal.configuration.PropertyFactory.Property;
+
+/**
+ * Base class of the property tables generated for classes annotated with
+ * {@link org.spearal.annotation.Introspected}. A table lists the declared
+ * properties of its class, sorted by name, so the selection of fields and
+ * accessors is done at build time. The members themselves are still resolved
+ * by reflection (one lookup by name for each of them) when the table is used.
+ * 
+ * @author Franck WOLFF
+ */
+public abstract class PropertyTable {
+	
+	public static final String SUFFIX = "$SpearalProperties";
+
+	public abstract Property[] createProperties(SpearalContext context)
+		throws NoSuchFieldException, NoSuchMethodException;
+	
+	public static PropertyTable forClass(Class<?> cls) {
+		ClassLoader loader = cls.getClassLoader();
+		if (loader == null)
+			return null;
+		
+		try {
+			Class<?> tableClass = Class.forName(cls.getName() + SUFFIX, true, loader);
+			return (PropertyTable)tableClass.newInstance();
+		}
+		catch (ClassNotFoundException e) {
+			return null;
+		}
+		catch (Exception e) {
+			throw new RuntimeException("Could not create property table for: " + cls, e);
+		}
+	}
+	
+	protected static Field field(Class<?> cls, String name) throws NoSuchFieldException {
+		Field field = cls.getDeclaredField(name);
+		field.setAccessible(true);
+		return field;
+	}
+	
+	protected static Method method(Class<?> cls, String name, Class<?>... parameterTypes) throws NoSuchMethodException {
+		return cls.getDeclaredMethod(name, parameterTypes);
+	}
+}
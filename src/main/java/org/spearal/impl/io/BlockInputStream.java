@@ -0,0 +1,200 @@
+/**
+ * == @Spearal ==>
+ * 
+ * Copyright (C) 2014 Franck WOLFF & William DRAI (http://www.spearal.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spearal.impl.io;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.spearal.configuration.BlockCodec;
+import org.spearal.configuration.BlockCodec.Decompressor;
+
+/**
+ * Reads blocks written by a {@link BlockWriter}. Blocks larger than the codec
+ * maximum block size are rejected before anything is allocated. The underlying
+ * stream is read through an internal buffer (block headers are decoded byte by
+ * byte), so it doesn't need to be buffered, but it may be read ahead past the
+ * last block.
+ * 
+ * @author Franck WOLFF
+ */
+public class BlockInputStream extends InputStream {
+
+	private static final int INPUT_BUFFER_SIZE = 8192;
+
+	private final InputStream in;
+	private final BlockCodec codec;
+	private final byte[] input;
+	private final byte[] single;
+	private int inputPosition;
+	private int inputSize;
+	private Decompressor decompressor;
+	
+	private byte[] compressed;
+	private byte[] block;
+	private int position;
+	private int size;
+	
+	// Raw block bytes still to be read from the underlying stream.
+	private int remaining;
+	
+	public BlockInputStream(InputStream in, BlockCodec codec) {
+		if (in == null)
+			throw new NullPointerException();
+		
+		this.in = in;
+		this.codec = codec;
+		this.input = new byte[INPUT_BUFFER_SIZE];
+		this.single = new byte[1];
+		this.inputPosition = 0;
+		this.inputSize = 0;
+		this.compressed = new byte[0];
+		this.block = new byte[0];
+		this.position = 0;
+		this.size = 0;
+		this.remaining = 0;
+	}
+
+	@Override
+	public int read() throws IOException {
+		if (position < size)
+			return (block[position++] & 0xff);
+		return (read(single, 0, 1) == -1 ? -1 : (single[0] & 0xff));
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (off < 0 || len < 0 || len > b.length - off)
+			throw new IndexOutOfBoundsException();
+		if (len == 0)
+			return 0;
+		
+		if (position == size && remaining == 0 && !nextBlock())
+			return -1;
+		
+		if (remaining > 0) {
+			int read = readInput(b, off, Math.min(len, remaining));
+			if (read == -1)
+				throw new EOFException();
+			remaining -= read;
+			return read;
+		}
+		
+		len = Math.min(len, size - position);
+		System.arraycopy(block, position, b, off, len);
+		position += len;
+		return len;
+	}
+	
+	private boolean nextBlock() throws IOException {
+		int header;
+		do {
+			int b = readInput();
+			if (b == -1)
+				return false;
+			header = readUint(b);
+		}
+		while (header == 0);
+		
+		final int maxBlockSize = codec.getMaxBlockSize();
+		
+		int length = header >>> 1;
+		if (length > maxBlockSize)
+			throw new IOException("Illegal block length: " + length + " (max " + maxBlockSize + ")");
+		if ((header & 1) == 0) {
+			remaining = length;
+			return true;
+		}
+		
+		int id = readByte();
+		if (id != codec.getId())
+			throw new IOException("Unexpected block codec id: " + id + " (expected " + codec.getId() + ")");
+		int uncompressedLength = readUint(readByte());
+		if (uncompressedLength <= 0 || uncompressedLength > maxBlockSize)
+			throw new IOException("Illegal uncompressed block length: " + uncompressedLength + " (max " + maxBlockSize + ")");
+		
+		if (compressed.length < length)
+			compressed = new byte[length];
+		readFully(compressed, length);
+		
+		if (block.length < uncompressedLength)
+			block = new byte[uncompressedLength];
+		if (decompressor == null)
+			decompressor = codec.newDecompressor();
+		decompressor.decompress(compressed, 0, length, block, 0, uncompressedLength);
+		
+		position = 0;
+		size = uncompressedLength;
+		return true;
+	}
+	
+	private int readUint(int b) throws IOException {
+		int value = 0;
+		for (int shift = 0; ; shift += 7) {
+			if (shift > 28)
+				throw new IOException("Illegal block header");
+			value |= (b & 0x7f) << shift;
+			if ((b & 0x80) == 0)
+				return value;
+			b = readByte();
+		}
+	}
+	
+	private int readByte() throws IOException {
+		int b = readInput();
+		if (b == -1)
+			throw new EOFException();
+		return b;
+	}
+	
+	private void readFully(byte[] b, int length) throws IOException {
+		for (int offset = 0; offset < length; ) {
+			int read = readInput(b, offset, length - offset);
+			if (read == -1)
+				throw new EOFException();
+			offset += read;
+		}
+	}
+	
+	private int readInput() throws IOException {
+		if (inputPosition == inputSize && !fillInput())
+			return -1;
+		return (input[inputPosition++] & 0xff);
+	}
+	
+	private int readInput(byte[] b, int off, int len) throws IOException {
+		if (inputPosition == inputSize) {
+			// Large reads bypass the input buffer.
+			if (len >= input.length)
+				return in.read(b, off, len);
+			if (!fillInput())
+				return -1;
+		}
+		len = Math.min(len, inputSize - inputPosition);
+		System.arraycopy(input, inputPosition, b, off, len);
+		inputPosition += len;
+		return len;
+	}
+	
+	private boolean fillInput() throws IOException {
+		int read = in.read(input, 0, input.length);
+		inputPosition = 0;
+		inputSize = Math.max(read, 0);
+		return (read > 0);
+	}
+}
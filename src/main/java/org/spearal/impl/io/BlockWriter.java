@@ -0,0 +1,114 @@
+/**
+ * == @Spearal ==>
+ * 
+ * Copyright (C) 2014 Franck WOLFF & William DRAI (http://www.spearal.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spearal.impl.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.spearal.configuration.BlockCodec;
+import org.spearal.configuration.BlockCodec.Compressor;
+
+/**
+ * Writes blocks of encoded data, each one preceded by an unsigned varint of
+ * <code>(length &lt;&lt; 1) | compressed</code>. Compressed blocks are followed
+ * by the codec id and by an unsigned varint of their uncompressed length. After
+ * an incompressible block, compression isn't tried again for the next 1, 2,
+ * 4... blocks (up to {@link #MAX_SKIPPED_BLOCKS}). Writes larger than the codec
+ * maximum block size are split into several blocks.
+ * 
+ * @author Franck WOLFF
+ */
+public class BlockWriter {
+	
+	public static final int MAX_SKIPPED_BLOCKS = 32;
+
+	private final BlockCodec codec;
+	private Compressor compressor;
+	
+	private byte[] block;
+	private final byte[] header;
+	
+	private int backoff;
+	private int skipped;
+	
+	public BlockWriter(BlockCodec codec) {
+		this.codec = codec;
+		this.block = new byte[0];
+		this.header = new byte[11];
+		this.backoff = 0;
+		this.skipped = 0;
+	}
+	
+	public BlockCodec getCodec() {
+		return codec;
+	}
+	
+	public void write(OutputStream out, byte[] bytes, int offset, int length) throws IOException {
+		final int maxBlockSize = codec.getMaxBlockSize();
+		while (length > maxBlockSize) {
+			writeBlock(out, bytes, offset, maxBlockSize);
+			offset += maxBlockSize;
+			length -= maxBlockSize;
+		}
+		if (length > 0)
+			writeBlock(out, bytes, offset, length);
+	}
+	
+	private void writeBlock(OutputStream out, byte[] bytes, int offset, int length) throws IOException {
+		if (length >= codec.getMinBlockSize()) {
+			if (skipped > 0)
+				skipped--;
+			else {
+				if (compressor == null)
+					compressor = codec.newCompressor();
+				
+				// Only keep blocks saving at least 1/16th of their size.
+				int maxLength = length - (length >>> 4);
+				if (block.length < maxLength)
+					block = new byte[maxLength];
+				
+				int compressed = compressor.compress(bytes, offset, length, block, 0, maxLength);
+				if (compressed != -1) {
+					backoff = 0;
+					
+					int position = writeUint(header, 0, (compressed << 1) | 1);
+					header[position++] = (byte)codec.getId();
+					position = writeUint(header, position, length);
+					out.write(header, 0, position);
+					out.write(block, 0, compressed);
+					return;
+				}
+				
+				backoff = (backoff == 0 ? 1 : Math.min(backoff << 1, MAX_SKIPPED_BLOCKS));
+				skipped = backoff;
+			}
+		}
+		
+		out.write(header, 0, writeUint(header, 0, length << 1));
+		out.write(bytes, offset, length);
+	}
+	
+	private static int writeUint(byte[] bytes, int position, int value) {
+		while ((value & ~0x7f) != 0) {
+			bytes[position++] = (byte)((value & 0x7f) | 0x80);
+			value >>>= 7;
+		}
+		bytes[position++] = (byte)value;
+		return position;
+	}
+}
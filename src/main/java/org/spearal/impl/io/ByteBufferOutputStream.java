@@ -0,0 +1,54 @@
+/**
+ * == @Spearal ==>
+ * 
+ * Copyright (C) 2014 Franck WOLFF & William DRAI (http://www.spearal.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spearal.impl.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * @author Franck WOLFF
+ */
+public class ByteBufferOutputStream extends OutputStream {
+
+	private final ByteBuffer buffer;
+	
+	public ByteBufferOutputStream(ByteBuffer buffer) {
+		if (buffer == null)
+			throw new NullPointerException();
+		this.buffer = buffer;
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		if (!buffer.hasRemaining())
+			throw new IOException("Buffer overflow");
+		buffer.put((byte)b);
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		if (b == null)
+			throw new NullPointerException();
+		if (off < 0 || len < 0 || len > b.length - off)
+			throw new IndexOutOfBoundsException();
+		if (len > buffer.remaining())
+			throw new IOException("Buffer overflow: " + len + " > " + buffer.remaining());
+		buffer.put(b, off, len);
+	}
+}
@@ -0,0 +1,54 @@
+/**
+ * == @Spearal ==>
+ * 
+ * Copyright (C) 2014 Franck WOLFF & William DRAI (http://www.spearal.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spearal.impl.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * @author Franck WOLFF
+ */
+public class ChannelOutputStream extends OutputStream {
+
+	private final WritableByteChannel channel;
+	
+	public ChannelOutputStream(WritableByteChannel channel) {
+		if (channel == null)
+			throw new NullPointerException();
+		this.channel = channel;
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		write(new byte[]{ (byte)b }, 0, 1);
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		ByteBuffer bytes = ByteBuffer.wrap(b, off, len);
+		while (bytes.hasRemaining())
+			channel.write(bytes);
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+}
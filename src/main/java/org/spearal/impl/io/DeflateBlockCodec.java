@@ -0,0 +1,151 @@
+/**
+ * == @Spearal ==>
+ * 
+ * Copyright (C) 2014 Franck WOLFF & William DRAI (http://www.spearal.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spearal.impl.io;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.spearal.configuration.BlockCodec;
+
+/**
+ * A {@link BlockCodec} using the JDK <code>Deflater</code> and <code>Inflater</code>.
+ * Their native resources are not held by compressors and decompressors, which
+ * are never closed: each call borrows an instance from a pool shared by all
+ * encoders and decoders of this codec, and gives it back when it is done.
+ * Instances in excess of the pool size are ended at once.
+ * 
+ * @author Franck WOLFF
+ */
+public class DeflateBlockCodec implements BlockCodec {
+	
+	public static final int ID = 1;
+	public static final int DEFAULT_MIN_BLOCK_SIZE = 256;
+	public static final int DEFAULT_MAX_BLOCK_SIZE = 1024 * 1024;
+	public static final int DEFAULT_MAX_POOLED = 16;
+
+	private final int level;
+	private final int minBlockSize;
+	private final int maxBlockSize;
+	
+	private final BlockingQueue<Deflater> deflaters;
+	private final BlockingQueue<Inflater> inflaters;
+	
+	public DeflateBlockCodec() {
+		this(Deflater.DEFAULT_COMPRESSION, DEFAULT_MIN_BLOCK_SIZE);
+	}
+	
+	public DeflateBlockCodec(int level, int minBlockSize) {
+		this(level, minBlockSize, DEFAULT_MAX_BLOCK_SIZE, DEFAULT_MAX_POOLED);
+	}
+	
+	public DeflateBlockCodec(int level, int minBlockSize, int maxBlockSize, int maxPooled) {
+		if (maxBlockSize <= 0)
+			throw new IllegalArgumentException("Illegal max block size: " + maxBlockSize);
+		
+		this.level = level;
+		this.minBlockSize = minBlockSize;
+		this.maxBlockSize = maxBlockSize;
+		this.deflaters = new ArrayBlockingQueue<Deflater>(maxPooled);
+		this.inflaters = new ArrayBlockingQueue<Inflater>(maxPooled);
+	}
+
+	@Override
+	public int getId() {
+		return ID;
+	}
+
+	@Override
+	public int getMinBlockSize() {
+		return minBlockSize;
+	}
+
+	@Override
+	public int getMaxBlockSize() {
+		return maxBlockSize;
+	}
+
+	@Override
+	public Compressor newCompressor() {
+		return new Compressor() {
+			@Override
+			public int compress(byte[] src, int srcOffset, int srcLength, byte[] dst, int dstOffset, int dstLength) {
+				Deflater deflater = deflaters.poll();
+				if (deflater == null)
+					deflater = new Deflater(level);
+				
+				try {
+					deflater.setInput(src, srcOffset, srcLength);
+					deflater.finish();
+					
+					int length = 0;
+					while (!deflater.finished()) {
+						if (length == dstLength)
+							return -1;
+						length += deflater.deflate(dst, dstOffset + length, dstLength - length);
+					}
+					return length;
+				}
+				finally {
+					deflater.reset();
+					if (!deflaters.offer(deflater))
+						deflater.end();
+				}
+			}
+		};
+	}
+
+	@Override
+	public Decompressor newDecompressor() {
+		return new Decompressor() {
+			@Override
+			public void decompress(byte[] src, int srcOffset, int srcLength, byte[] dst, int dstOffset, int dstLength)
+				throws IOException {
+				
+				Inflater inflater = inflaters.poll();
+				if (inflater == null)
+					inflater = new Inflater();
+				
+				try {
+					inflater.setInput(src, srcOffset, srcLength);
+					
+					int length = 0;
+					while (length < dstLength) {
+						int count = inflater.inflate(dst, dstOffset + length, dstLength - length);
+						if (count == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary()))
+							break;
+						length += count;
+					}
+					if (length != dstLength)
+						throw new IOException("Corrupted block: " + length + " bytes decompressed, expected " + dstLength);
+				}
+				catch (DataFormatException e) {
+					throw new IOException(e);
+				}
+				finally {
+					inflater.reset();
+					if (!inflaters.offer(inflater))
+						inflater.end();
+				}
+			}
+		};
+	}
+}
@@ -0,0 +1,40 @@
+/**
+ * == @Spearal ==>
+ * 
+ * Copyright (C) 2014 Franck WOLFF & William DRAI (http://www.spearal.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spearal.impl.io;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * A <code>ByteArrayOutputStream</code> giving access to its internal buffer.
+ * 
+ * @author Franck WOLFF
+ */
+public class GrowableByteArrayOutputStream extends ByteArrayOutputStream {
+
+	public GrowableByteArrayOutputStream(int size) {
+		super(size);
+	}
+	
+	/**
+	 * Returns the internal buffer of this stream, not a copy: only the first
+	 * {@link #size()} bytes are significant.
+	 */
+	public byte[] getBuffer() {
+		return buf;
+	}
+}
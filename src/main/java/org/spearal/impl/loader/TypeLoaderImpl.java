@@ -26,7 +26,7 @@ import java.util.List;
 import org.spearal.SpearalContext;
 import org.spearal.configuration.TypeLoader;
 import org.spearal.impl.cache.AnyMap.ValueProvider;
-import org.spearal.impl.cache.CopyOnWriteMap;
+import org.spearal.impl.cache.ConcurrentAnyMap;
 import org.spearal.impl.util.ClassDescriptionUtil;
 import org.spearal.impl.util.TypeUtil;
 
@@ -36,7 +36,7 @@ import org.spearal.impl.util.TypeUtil;
 public class TypeLoaderImpl implements TypeLoader, ValueProvider<String, Type, Class<?>> {
 
 	private final ClassLoader classLoader;
-	private final CopyOnWriteMap<String, Type, Class<?>> classesCache;
+	private final ConcurrentAnyMap<String, Type, Class<?>> classesCache;
 	
 	public TypeLoaderImpl() {
 		this(TypeLoaderImpl.class.getClassLoader());
@@ -44,7 +44,7 @@ public class TypeLoaderImpl implements TypeLoader, ValueProvider<String, Type, C
 	
 	public TypeLoaderImpl(final ClassLoader classLoader) {
 		this.classLoader = classLoader;
-		this.classesCache = new CopyOnWriteMap<String, Type, Class<?>>(true, this);
+		this.classesCache = new ConcurrentAnyMap<String, Type, Class<?>>(true, this);
 	}
 
 	@Override
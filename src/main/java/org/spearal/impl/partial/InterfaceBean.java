@@ -0,0 +1,85 @@
+/**
+ * == @Spearal ==>
+ * 
+ * Copyright (C) 2014 Franck WOLFF & William DRAI (http://www.spearal.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spearal.impl.partial;
+
+import org.spearal.configuration.PartialObjectFactory.ExtendedPartialObjectProxy;
+import org.spearal.configuration.PropertyFactory.Property;
+
+/**
+ * Base class of the implementations generated for decoded interface types
+ * (see {@link InterfaceBeanGenerator}). Subclasses hold one real field per
+ * property and a bit mask of the defined properties.
+ * 
+ * @author Franck WOLFF
+ */
+public abstract class InterfaceBean implements ExtendedPartialObjectProxy {
+
+	public abstract InterfaceBeanClass metadata$();
+	
+	public abstract boolean isDefined$(int index);
+	
+	public abstract void define$(int index, boolean defined);
+
+	@Override
+	public boolean $hasUndefinedProperties() {
+		int count = metadata$().properties.length;
+		for (int i = 0; i < count; i++) {
+			if (!isDefined$(i))
+				return true;
+		}
+		return false;
+	}
+
+	@Override
+	public boolean $isDefined(String propertyName) {
+		int index = metadata$().indexOf(propertyName);
+		return (index != -1 && isDefined$(index));
+	}
+
+	@Override
+	public boolean $undefine(String propertyName) {
+		int index = metadata$().indexOf(propertyName);
+		if (index == -1 || !isDefined$(index))
+			return false;
+		define$(index, false);
+		return true;
+	}
+
+	@Override
+	public Property[] $getDefinedProperties() {
+		Property[] properties = metadata$().properties;
+		
+		int count = 0;
+		for (int i = 0; i < properties.length; i++) {
+			if (isDefined$(i))
+				count++;
+		}
+		
+		Property[] definedProperties = new Property[count];
+		for (int i = 0, j = 0; j < count; i++) {
+			if (isDefined$(i))
+				definedProperties[j++] = properties[i];
+		}
+		return definedProperties;
+	}
+
+	@Override
+	public Class<?> $getActualClass() {
+		return metadata$().proxyClass;
+	}
+}
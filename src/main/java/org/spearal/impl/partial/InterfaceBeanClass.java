@@ -0,0 +1,104 @@
+/**
+ * == @Spearal ==>
+ * 
+ * Copyright (C) 2014 Franck WOLFF & William DRAI (http://www.spearal.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spearal.impl.partial;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.spearal.configuration.PropertyFactory.Property;
+
+/**
+ * Metadata shared by all instances of a generated {@link InterfaceBean}
+ * class: the proxy class it stands for and its properties, whose indexes are
+ * the bit positions in the defined properties mask.
+ * 
+ * @author Franck WOLFF
+ */
+public final class InterfaceBeanClass {
+
+	public final Class<?> proxyClass;
+	public final Property[] properties;
+	
+	private final Map<String, Integer> indexes;
+	private volatile Class<?> beanClass;
+	private volatile Template template;
+	
+	public InterfaceBeanClass(Class<?> proxyClass, Property[] properties) {
+		this.proxyClass = proxyClass;
+		this.properties = properties;
+		
+		this.indexes = new HashMap<String, Integer>(properties.length * 2);
+		for (int i = 0; i < properties.length; i++)
+			indexes.put(properties[i].getName(), Integer.valueOf(i));
+	}
+	
+	public Class<?> getBeanClass() {
+		return beanClass;
+	}
+	
+	void setBeanClass(Class<?> beanClass) {
+		this.beanClass = beanClass;
+	}
+	
+	public int indexOf(String propertyName) {
+		Integer index = indexes.get(propertyName);
+		return (index != null ? index.intValue() : -1);
+	}
+
+	public InterfaceBean newInstance(Property[] definedProperties) throws InstantiationException, IllegalAccessException {
+		InterfaceBean bean = (InterfaceBean)beanClass.newInstance();
+		for (int index : indexesOf(definedProperties))
+			bean.define$(index, true);
+		return bean;
+	}
+	
+	private int[] indexesOf(Property[] definedProperties) {
+		// Decoded instances of a class usually share the same properties array.
+		Template template = this.template;
+		if (template == null || template.definedProperties != definedProperties) {
+			int count = 0;
+			int[] indexes = new int[definedProperties.length];
+			for (Property property : definedProperties) {
+				if (property != null) {
+					int index = indexOf(property.getName());
+					if (index != -1)
+						indexes[count++] = index;
+				}
+			}
+			if (count < indexes.length) {
+				int[] trimmed = new int[count];
+				System.arraycopy(indexes, 0, trimmed, 0, count);
+				indexes = trimmed;
+			}
+			template = new Template(definedProperties, indexes);
+			this.template = template;
+		}
+		return template.indexes;
+	}
+	
+	private static final class Template {
+		
+		public final Property[] definedProperties;
+		public final int[] indexes;
+		
+		public Template(Property[] definedProperties, int[] indexes) {
+			this.definedProperties = definedProperties;
+			this.indexes = indexes;
+		}
+	}
+}
@@ -0,0 +1,192 @@
+/**
+ * == @Spearal ==>
+ * 
+ * Copyright (C) 2014 Franck WOLFF & William DRAI (http://www.spearal.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spearal.impl.partial;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javassist.ClassClassPath;
+import javassist.ClassPool;
+import javassist.CtClass;
+import javassist.CtField;
+import javassist.CtNewConstructor;
+import javassist.CtNewMethod;
+import javassist.LoaderClassPath;
+
+import org.spearal.configuration.PartialObjectFactory.PartialObjectProxy;
+import org.spearal.configuration.PropertyFactory.Property;
+
+/**
+ * Generates, for a {@link java.lang.reflect.Proxy} class built from decoded
+ * interface names, a concrete {@link InterfaceBean} subclass implementing the
+ * same interfaces with real fields, so getters and setters of interface typed
+ * beans are plain field accesses instead of invocation handler calls.
+ * 
+ * @author Franck WOLFF
+ */
+final class InterfaceBeanGenerator {
+	
+	private static final AtomicInteger generation = new AtomicInteger();
+	
+	private static final String METADATA = "metadata$";
+	private static final String UNDEFINED_EXCEPTION = "org.spearal.configuration.PartialObjectFactory$UndefinedPropertyException";
+
+	public static boolean canGenerate(Class<?> proxyClass) {
+		ClassLoader classLoader = proxyClass.getClassLoader();
+		if (classLoader == null)
+			return false;
+		
+		for (Class<?> inter : proxyClass.getInterfaces()) {
+			if (!Modifier.isPublic(inter.getModifiers()))
+				return false;
+		}
+		return firstApplicationInterface(proxyClass) != null;
+	}
+
+	public static Class<?> generate(InterfaceBeanClass metadata) throws Exception {
+		Class<?> proxyClass = metadata.proxyClass;
+		Property[] properties = metadata.properties;
+		ClassLoader classLoader = proxyClass.getClassLoader();
+		
+		ClassPool pool = new ClassPool(true);
+		pool.insertClassPath(new ClassClassPath(InterfaceBean.class));
+		pool.insertClassPath(new LoaderClassPath(classLoader));
+		
+		String beanClassName = firstApplicationInterface(proxyClass).getName() + "$$SpearalBean" + generation.incrementAndGet();
+		CtClass beanClass = pool.makeClass(beanClassName, pool.get(InterfaceBean.class.getName()));
+		for (Class<?> inter : proxyClass.getInterfaces()) {
+			if (inter != PartialObjectProxy.class)
+				beanClass.addInterface(pool.get(inter.getName()));
+		}
+		beanClass.addConstructor(CtNewConstructor.defaultConstructor(beanClass));
+		
+		beanClass.addField(CtField.make("public static " + InterfaceBeanClass.class.getName() + " " + METADATA + ";", beanClass));
+		beanClass.addMethod(CtNewMethod.make(
+			"public " + InterfaceBeanClass.class.getName() + " " + METADATA + "() { return " + METADATA + "; }",
+			beanClass
+		));
+		
+		// Defined properties mask (one long per 64 properties).
+		int words = Math.max(1, (properties.length + 63) >>> 6);
+		StringBuilder isDefined = new StringBuilder("public boolean isDefined$(int index) {\nint w = index >>> 6;\nlong m = 1L << index;\n");
+		StringBuilder define = new StringBuilder("public void define$(int index, boolean defined) {\nint w = index >>> 6;\nlong m = 1L << index;\n");
+		for (int w = 0; w < words; w++) {
+			beanClass.addField(CtField.make("private long d$" + w + ";", beanClass));
+			isDefined.append("if (w == ").append(w).append(") return (d$").append(w).append(" & m) != 0L;\n");
+			define.append("if (w == ").append(w).append(") { if (defined) d$").append(w).append(" |= m; else d$").append(w).append(" &= ~m; }\n");
+		}
+		isDefined.append("return false;\n}");
+		define.append('}');
+		beanClass.addMethod(CtNewMethod.make(isDefined.toString(), beanClass));
+		beanClass.addMethod(CtNewMethod.make(define.toString(), beanClass));
+		
+		// Properties fields and accessors.
+		Set<String> implemented = new HashSet<String>();
+		for (int i = 0; i < properties.length; i++) {
+			Property property = properties[i];
+			String type = sourceName(property.getType());
+			String field = "p$" + property.getName();
+			String word = "d$" + (i >>> 6);
+			String mask = "(1L << " + (i & 63) + ")";
+			
+			beanClass.addField(CtField.make("private " + type + " " + field + ";", beanClass));
+			
+			Method getter = property.getGetter();
+			if (getter != null && implemented.add(signature(getter))) {
+				beanClass.addMethod(CtNewMethod.make(
+					"public " + sourceName(getter.getReturnType()) + " " + getter.getName() + "() {\n" +
+					"if ((" + word + " & " + mask + ") == 0L) throw new " + UNDEFINED_EXCEPTION + "(\"" + property.getName() + "\");\n" +
+					"return " + field + ";\n" +
+					"}",
+					beanClass
+				));
+			}
+			
+			Method setter = property.getSetter();
+			if (setter != null && implemented.add(signature(setter))) {
+				beanClass.addMethod(CtNewMethod.make(
+					"public void " + setter.getName() + "(" + sourceName(setter.getParameterTypes()[0]) + " value) {\n" +
+					field + " = value;\n" +
+					word + " |= " + mask + ";\n" +
+					"}",
+					beanClass
+				));
+			}
+		}
+		
+		// Other abstract methods return default values, as the invocation handler did.
+		for (Class<?> inter : proxyClass.getInterfaces()) {
+			if (PartialObjectProxy.class.isAssignableFrom(inter))
+				continue;
+			
+			for (Method method : inter.getMethods()) {
+				if (!Modifier.isAbstract(method.getModifiers()) || !implemented.add(signature(method)))
+					continue;
+				
+				StringBuilder sb = new StringBuilder("public ");
+				sb.append(sourceName(method.getReturnType())).append(' ').append(method.getName()).append('(');
+				Class<?>[] parameterTypes = method.getParameterTypes();
+				for (int i = 0; i < parameterTypes.length; i++) {
+					if (i > 0)
+						sb.append(", ");
+					sb.append(sourceName(parameterTypes[i])).append(" p").append(i);
+				}
+				sb.append(") {\n").append(defaultReturn(method.getReturnType())).append("\n}");
+				beanClass.addMethod(CtNewMethod.make(sb.toString(), beanClass));
+			}
+		}
+		
+		Class<?> cls = beanClass.toClass(classLoader, proxyClass.getProtectionDomain());
+		beanClass.detach();
+		
+		cls.getField(METADATA).set(null, metadata);
+		return cls;
+	}
+	
+	private static Class<?> firstApplicationInterface(Class<?> proxyClass) {
+		for (Class<?> inter : proxyClass.getInterfaces()) {
+			if (inter.getClassLoader() != null && !inter.getName().startsWith("java.") && !PartialObjectProxy.class.isAssignableFrom(inter))
+				return inter;
+		}
+		return null;
+	}
+	
+	private static String signature(Method method) {
+		return method.getName() + Arrays.toString(method.getParameterTypes());
+	}
+	
+	private static String defaultReturn(Class<?> type) {
+		if (type == void.class)
+			return "";
+		if (type == boolean.class)
+			return "return false;";
+		if (type.isPrimitive())
+			return "return (" + type.getName() + ")0;";
+		return "return null;";
+	}
+	
+	private static String sourceName(Class<?> type) {
+		if (type.isArray())
+			return sourceName(type.getComponentType()) + "[]";
+		return type.getName();
+	}
+}
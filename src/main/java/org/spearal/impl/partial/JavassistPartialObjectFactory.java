@@ -17,12 +17,16 @@
  */
 package org.spearal.impl.partial;
 
+import java.io.File;
+import java.io.IOException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import javassist.util.proxy.MethodFilter;
 import javassist.util.proxy.MethodHandler;
@@ -33,54 +37,143 @@ import org.spearal.SpearalContext;
 import org.spearal.configuration.PartialObjectFactory;
 import org.spearal.configuration.PropertyFactory.Property;
 import org.spearal.impl.cache.AnyMap.ValueProvider;
-import org.spearal.impl.cache.CopyOnWriteMap;
+import org.spearal.impl.cache.ConcurrentAnyMap;
 import org.spearal.impl.instantiator.ProxyInstantiator;
 
 /**
  * @author Franck WOLFF
  */
-public class JavassistPartialObjectFactory implements PartialObjectFactory, ValueProvider<Class<?>, Object, Class<?>> {
+public class JavassistPartialObjectFactory implements PreparablePartialObjectFactory {
 
-	private final CopyOnWriteMap<Class<?>, Object, Class<?>> proxyClassesCache;
+	private static final Logger log = Logger.getLogger(JavassistPartialObjectFactory.class.getName());
+
+	private final ConcurrentAnyMap<Class<?>, Object, PartialClass> partialClassesCache;
+	private final ConcurrentAnyMap<Class<?>, Object, InterfaceBeanClass> interfaceBeansCache;
+	private final ProxyClassCache diskCache;
 	
 	public JavassistPartialObjectFactory() {
-		this.proxyClassesCache = new CopyOnWriteMap<Class<?>, Object, Class<?>>(true, this);
+		this(null);
+	}
+	
+	/**
+	 * Creates a factory that saves generated proxy classes in the given
+	 * directory (when not <code>null</code>) and loads them from there, or
+	 * from pre-generated <code>META-INF/spearal/proxies/</code> resources, on
+	 * later runs.
+	 */
+	public JavassistPartialObjectFactory(File cacheDirectory) {
+		this.partialClassesCache = new ConcurrentAnyMap<Class<?>, Object, PartialClass>(true,
+			new ValueProvider<Class<?>, Object, PartialClass>() {
+				@Override
+				public PartialClass createValue(SpearalContext context, Class<?> key, Object unused) {
+					context.getSecurizer().checkDecodable(key);
+					
+					Property[] properties = context.getProperties(key);
+					return new PartialClass(createProxyClass(key, new PartialObjectFilter(properties)), properties);
+				}
+			}
+		);
+		this.interfaceBeansCache = new ConcurrentAnyMap<Class<?>, Object, InterfaceBeanClass>(true,
+			new ValueProvider<Class<?>, Object, InterfaceBeanClass>() {
+				@Override
+				public InterfaceBeanClass createValue(SpearalContext context, Class<?> key, Object unused) {
+					context.getSecurizer().checkDecodable(key);
+					
+					InterfaceBeanClass metadata = new InterfaceBeanClass(key, context.getProperties(key));
+					metadata.setBeanClass(createInterfaceBeanClass(metadata));
+					return metadata;
+				}
+			}
+		);
+		this.diskCache = (cacheDirectory != null ? new ProxyClassCache(cacheDirectory) : null);
 	}
 
-	@Override
-	public Class<?> createValue(SpearalContext context, Class<?> key, Object unused) {
-		context.getSecurizer().checkDecodable(key);
+	/**
+	 * Returns a generated class implementing the interfaces of the given
+	 * {@link Proxy} class, or <code>null</code> if such a class can't be
+	 * generated (decoded instances are then plain {@link Proxy} instances).
+	 */
+	protected Class<?> createInterfaceBeanClass(InterfaceBeanClass metadata) {
+		if (!InterfaceBeanGenerator.canGenerate(metadata.proxyClass))
+			return null;
+		
+		try {
+			return InterfaceBeanGenerator.generate(metadata);
+		}
+		catch (Throwable t) {
+			log.log(Level.FINE, "Could not generate interface bean for: " + metadata.proxyClass, t);
+			return null;
+		}
+	}
+
+	protected Class<?> createProxyClass(Class<?> cls, PartialObjectFilter filter) {
+		String fingerprint = null;
+		if (diskCache != null) {
+			fingerprint = ProxyClassCache.fingerprint(cls, filter.accessors);
+			Class<?> proxyClass = diskCache.load(cls, fingerprint);
+			if (proxyClass != null)
+				return proxyClass;
+		}
 		
 		ProxyFactory proxyFactory = new ProxyFactory();
-		proxyFactory.setFilter(new PartialObjectFilter(context, key));
-		proxyFactory.setSuperclass(key);
+		proxyFactory.setFilter(filter);
+		proxyFactory.setSuperclass(cls);
 		proxyFactory.setInterfaces(new Class<?>[] { ExtendedPartialObjectProxy.class });
-		return proxyFactory.createClass();
+		
+		if (diskCache == null)
+			return proxyFactory.createClass();
+		
+		File work;
+		try {
+			work = diskCache.createWorkDirectory();
+		}
+		catch (IOException e) {
+			log.log(Level.WARNING, "Could not use proxy cache directory: " + diskCache.getDirectory(), e);
+			return proxyFactory.createClass();
+		}
+		
+		proxyFactory.setUseCache(false);
+		proxyFactory.writeDirectory = work.getPath();
+		Class<?> proxyClass = proxyFactory.createClass();
+		diskCache.store(cls, fingerprint, proxyClass, work);
+		return proxyClass;
+	}
+
+	@Override
+	public void prepare(SpearalContext context, Class<?> cls) {
+		if (Proxy.isProxyClass(cls))
+			interfaceBeansCache.getOrPutIfAbsent(context, cls);
+		else
+			partialClassesCache.getOrPutIfAbsent(context, cls);
 	}
 
 	@Override
 	public Object instantiatePartial(SpearalContext context, Class<?> cls, Property[] partialProperties)
 		throws InstantiationException, IllegalAccessException {
 		
-		if (Proxy.isProxyClass(cls))
-			return ProxyInstantiator.instantiatePartial(context, cls, partialProperties);
+		if (Proxy.isProxyClass(cls)) {
+			InterfaceBeanClass metadata = interfaceBeansCache.getOrPutIfAbsent(context, cls);
+			if (metadata.getBeanClass() == null)
+				return ProxyInstantiator.instantiatePartial(context, cls, partialProperties);
+			return metadata.newInstance(partialProperties);
+		}
 		
-		Class<?> proxyClass = proxyClassesCache.getOrPutIfAbsent(context, cls);
-		ProxyObject proxyObject = (ProxyObject)proxyClass.newInstance();
-		proxyObject.setHandler(new PartialObjectProxyHandler(context, cls, partialProperties));
+		PartialClass partialClass = partialClassesCache.getOrPutIfAbsent(context, cls);
+		ProxyObject proxyObject = (ProxyObject)partialClass.proxyClass.newInstance();
+		proxyObject.setHandler(new PartialObjectProxyHandler(partialClass, partialClass.defined(partialProperties)));
 		return proxyObject;
 	}
 	
-	private static class PartialObjectFilter implements MethodFilter {
+	protected static class PartialObjectFilter implements MethodFilter {
 		
-		private static final Method[] partialObjectProxyMethods = PartialObjectProxy.class.getMethods();
+		private static final Method[] partialObjectProxyMethods = ExtendedPartialObjectProxy.class.getMethods();
 
 		private final Set<Method> accessors;
 
-		public PartialObjectFilter(SpearalContext ctx, Class<?> cls) {
+		public PartialObjectFilter(Property[] properties) {
 			this.accessors = new HashSet<Method>();
 			
-			for (Property property : ctx.getProperties(cls)) {
+			for (Property property : properties) {
 				if (property.hasGetter())
 					accessors.add(property.getGetter());
 				if (property.hasSetter())
@@ -102,58 +195,147 @@ public class JavassistPartialObjectFactory implements PartialObjectFactory, Valu
 		}
 	}
 	
+	/**
+	 * Per class dispatch tables: each getter and setter is mapped to the index
+	 * of its property (shifted left, with the lowest bit set for setters).
+	 */
+	private static final class PartialClass {
+		
+		public final Class<?> proxyClass;
+		public final Property[] properties;
+		
+		private final Map<Method, Integer> accessors;
+		private final Map<String, Integer> indexes;
+		
+		private volatile DefinedTemplate template;
+		
+		public PartialClass(Class<?> proxyClass, Property[] properties) {
+			this.proxyClass = proxyClass;
+			this.properties = properties;
+			
+			this.accessors = new HashMap<Method, Integer>(properties.length * 4);
+			this.indexes = new HashMap<String, Integer>(properties.length * 2);
+			for (int i = 0; i < properties.length; i++) {
+				Property property = properties[i];
+				if (property.hasGetter())
+					accessors.put(property.getGetter(), Integer.valueOf(i << 1));
+				if (property.hasSetter())
+					accessors.put(property.getSetter(), Integer.valueOf((i << 1) | 1));
+				indexes.put(property.getName(), Integer.valueOf(i));
+			}
+		}
+		
+		public int indexOf(String propertyName) {
+			Integer index = indexes.get(propertyName);
+			return (index != null ? index.intValue() : -1);
+		}
+		
+		public int accessorOf(Method method) {
+			Integer accessor = accessors.get(method);
+			return (accessor != null ? accessor.intValue() : -1);
+		}
+		
+		public long[] defined(Property[] partialProperties) {
+			// Decoded instances of a class usually share the same properties array.
+			DefinedTemplate template = this.template;
+			if (template == null || template.partialProperties != partialProperties) {
+				long[] defined = new long[(properties.length + 63) >>> 6];
+				for (Property property : partialProperties) {
+					if (property != null) {
+						int index = indexOf(property.getName());
+						if (index != -1)
+							defined[index >>> 6] |= (1L << index);
+					}
+				}
+				template = new DefinedTemplate(partialProperties, defined);
+				this.template = template;
+			}
+			return template.defined.clone();
+		}
+	}
+	
+	private static final class DefinedTemplate {
+		
+		public final Property[] partialProperties;
+		public final long[] defined;
+		
+		public DefinedTemplate(Property[] partialProperties, long[] defined) {
+			this.partialProperties = partialProperties;
+			this.defined = defined;
+		}
+	}
+	
 	private static class PartialObjectProxyHandler implements MethodHandler {
 
-		private final Property[] allProperties;
-		private final Map<String, Property> definedProperties;
+		private final PartialClass partialClass;
+		private final long[] defined;
 
-		public PartialObjectProxyHandler(SpearalContext context, Class<?> cls, Property[] partialProperties) {
-			this.allProperties = context.getProperties(cls);
-			
-			this.definedProperties = new HashMap<String, Property>(partialProperties.length);
-			for (Property property : partialProperties) {
-				if (property != null)
-					this.definedProperties.put(property.getName(), property);
-			}
+		public PartialObjectProxyHandler(PartialClass partialClass, long[] defined) {
+			this.partialClass = partialClass;
+			this.defined = defined;
 		}
 
 		public Object invoke(Object obj, Method method, Method proceed, Object[] args) throws Exception {
+			
+			// Getters and setters.
+			int accessor = partialClass.accessorOf(method);
+			if (accessor != -1) {
+				int index = accessor >>> 1;
+				if ((accessor & 1) != 0) {
+					proceed.invoke(obj, args);
+					defined[index >>> 6] |= (1L << index);
+					return null;
+				}
+				if ((defined[index >>> 6] & (1L << index)) == 0)
+					throw new UndefinedPropertyException(method.toString());
+				return proceed.invoke(obj, args);
+			}
 
 			// Proxy methods.
-			if (method.getDeclaringClass() == PartialObjectProxy.class) {
+			Class<?> declaringClass = method.getDeclaringClass();
+			if (declaringClass == PartialObjectProxy.class || declaringClass == ExtendedPartialObjectProxy.class) {
 				String name = method.getName();
 				if ("$hasUndefinedProperties".equals(name))
-					return Boolean.valueOf(definedProperties.size() < allProperties.length);
+					return Boolean.valueOf(cardinality() < partialClass.properties.length);
 				if ("$isDefined".equals(name) && args.length == 1)
-					return Boolean.valueOf(definedProperties.containsKey(args[0]));
+					return Boolean.valueOf(isDefined(partialClass.indexOf((String)args[0])));
 				if ("$undefine".equals(name) && args.length == 1)
-					return definedProperties.remove(args[0]);
+					return Boolean.valueOf(undefine(partialClass.indexOf((String)args[0])));
 				if ("$getDefinedProperties".equals(name))
-					return definedProperties.values().toArray(new Property[definedProperties.size()]);
+					return getDefinedProperties();
 				if ("$getActualClass".equals(name))
 					return obj.getClass().getSuperclass();
-				throw new UnsupportedOperationException("Internal error: " + method.toString());
 			}
 			
-			// Setters.
-			if (method.getReturnType() == void.class) {
-				for (Property property : allProperties) {
-					if (method.equals(property.getSetter())) {
-						proceed.invoke(obj, args);
-						definedProperties.put(property.getName(), property);
-						return null;
-					}
-				}
-				throw new UnsupportedOperationException("Internal error: " + method.toString());
-			}
-			
-			// Getters.
-			for (Property property : definedProperties.values()) {
-				if (method.equals(property.getGetter()))
-					return proceed.invoke(obj, args);
+			throw new UnsupportedOperationException("Internal error: " + method.toString());
+		}
+		
+		private boolean isDefined(int index) {
+			return index != -1 && (defined[index >>> 6] & (1L << index)) != 0;
+		}
+		
+		private boolean undefine(int index) {
+			if (!isDefined(index))
+				return false;
+			defined[index >>> 6] &= ~(1L << index);
+			return true;
+		}
+		
+		private int cardinality() {
+			int cardinality = 0;
+			for (long word : defined)
+				cardinality += Long.bitCount(word);
+			return cardinality;
+		}
+		
+		private Property[] getDefinedProperties() {
+			Property[] properties = partialClass.properties;
+			Property[] definedProperties = new Property[cardinality()];
+			for (int i = 0, j = 0; j < definedProperties.length; i++) {
+				if ((defined[i >>> 6] & (1L << i)) != 0)
+					definedProperties[j++] = properties[i];
 			}
-			
-			throw new UndefinedPropertyException(method.toString());
+			return definedProperties;
 		}
 	}
 }
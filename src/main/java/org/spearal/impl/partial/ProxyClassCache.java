@@ -0,0 +1,184 @@
+/**
+ * == @Spearal ==>
+ * 
+ * Copyright (C) 2014 Franck WOLFF & William DRAI (http://www.spearal.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spearal.impl.partial;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javassist.bytecode.ClassFile;
+import javassist.util.proxy.FactoryHelper;
+
+/**
+ * Stores the class files of generated partial object proxies, so later runs
+ * load them instead of generating bytecode again. Class files are looked up
+ * first as <code>META-INF/spearal/proxies/&lt;class&gt;-&lt;fingerprint&gt;.class</code>
+ * resources of the bean class loader (pre-generated at build time), then in
+ * the cache directory. The fingerprint covers the proxied accessors and the
+ * constructors of the bean class, so a modified class never reuses a stale
+ * proxy.
+ * 
+ * @author Franck WOLFF
+ */
+final class ProxyClassCache {
+	
+	private static final Logger log = Logger.getLogger(ProxyClassCache.class.getName());
+	
+	public static final String RESOURCE_PREFIX = "META-INF/spearal/proxies/";
+	
+	private static final String FORMAT_VERSION = "2";
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+	
+	private final File directory;
+	
+	public ProxyClassCache(File directory) {
+		this.directory = directory;
+	}
+	
+	public File getDirectory() {
+		return directory;
+	}
+
+	public Class<?> load(Class<?> cls, String fingerprint) {
+		String fileName = fileName(cls, fingerprint);
+		try {
+			byte[] bytes = null;
+			
+			ClassLoader loader = cls.getClassLoader();
+			if (loader != null) {
+				InputStream is = loader.getResourceAsStream(RESOURCE_PREFIX + fileName);
+				if (is != null)
+					bytes = readFully(is);
+			}
+			
+			if (bytes == null) {
+				File file = new File(directory, fileName);
+				if (!file.isFile())
+					return null;
+				bytes = readFully(new FileInputStream(file));
+			}
+			
+			ClassFile classFile = new ClassFile(new DataInputStream(new ByteArrayInputStream(bytes)));
+			return FactoryHelper.toClass(classFile, loader, cls.getProtectionDomain());
+		}
+		catch (Throwable t) {
+			// Unreadable file or name clash with a proxy generated in this JVM: generate a new one.
+			log.log(Level.WARNING, "Could not load cached proxy class " + fileName, t);
+			return null;
+		}
+	}
+	
+	public File createWorkDirectory() throws IOException {
+		if (!directory.isDirectory() && !directory.mkdirs())
+			throw new IOException("Could not create directory: " + directory);
+		
+		File work = File.createTempFile("work", "", directory);
+		if (!work.delete() || !work.mkdir())
+			throw new IOException("Could not create directory: " + work);
+		return work;
+	}
+
+	public void store(Class<?> cls, String fingerprint, Class<?> proxyClass, File work) {
+		try {
+			File generated = new File(work, proxyClass.getName().replace('.', File.separatorChar) + ".class");
+			File file = new File(directory, fileName(cls, fingerprint));
+			if (!generated.renameTo(file) && !file.isFile())
+				log.warning("Could not store proxy class: " + file);
+		}
+		finally {
+			delete(work);
+		}
+	}
+	
+	public static String fingerprint(Class<?> cls, Collection<Method> accessors) {
+		List<String> signatures = new ArrayList<String>(accessors.size() + 4);
+		for (Method accessor : accessors)
+			signatures.add(accessor.toString());
+		for (Constructor<?> constructor : cls.getDeclaredConstructors()) {
+			if (!Modifier.isPrivate(constructor.getModifiers()))
+				signatures.add(constructor.toString());
+		}
+		Collections.sort(signatures);
+		
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-1");
+			digest.update(FORMAT_VERSION.getBytes("UTF-8"));
+			digest.update(cls.getName().getBytes("UTF-8"));
+			for (String signature : signatures) {
+				digest.update((byte)'\n');
+				digest.update(signature.getBytes("UTF-8"));
+			}
+			
+			byte[] hash = digest.digest();
+			char[] chars = new char[16];
+			for (int i = 0; i < 8; i++) {
+				chars[i * 2] = HEX[(hash[i] >>> 4) & 0x0f];
+				chars[i * 2 + 1] = HEX[hash[i] & 0x0f];
+			}
+			return new String(chars);
+		}
+		catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+		catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+	
+	private static String fileName(Class<?> cls, String fingerprint) {
+		return cls.getName() + "-" + fingerprint + ".class";
+	}
+	
+	private static byte[] readFully(InputStream is) throws IOException {
+		try {
+			ByteArrayOutputStream baos = new ByteArrayOutputStream(4096);
+			byte[] buffer = new byte[4096];
+			for (int count = is.read(buffer); count != -1; count = is.read(buffer))
+				baos.write(buffer, 0, count);
+			return baos.toByteArray();
+		}
+		finally {
+			is.close();
+		}
+	}
+	
+	private static void delete(File file) {
+		File[] children = file.listFiles();
+		if (children != null) {
+			for (File child : children)
+				delete(child);
+		}
+		if (!file.delete())
+			file.deleteOnExit();
+	}
+}
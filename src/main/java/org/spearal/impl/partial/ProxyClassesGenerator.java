@@ -0,0 +1,59 @@
+/**
+ * == @Spearal ==>
+ * 
+ * Copyright (C) 2014 Franck WOLFF & William DRAI (http://www.spearal.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spearal.impl.partial;
+
+import java.io.File;
+import java.util.Arrays;
+
+import org.spearal.DefaultSpearalFactory;
+import org.spearal.SpearalContext;
+
+/**
+ * Pre-generates the partial object proxy classes of all classes found in
+ * the given packages, as resources loaded by
+ * {@link JavassistPartialObjectFactory#JavassistPartialObjectFactory(File)}.
+ * Meant to be run at build time, with the output directory being a resources
+ * directory of the application:
+ * 
+ * <pre>
+ * java org.spearal.impl.partial.ProxyClassesGenerator build/resources/main com.acme.model
+ * </pre>
+ * 
+ * @author Franck WOLFF
+ */
+public class ProxyClassesGenerator {
+
+	public static void main(String[] args) {
+		if (args.length < 2) {
+			System.err.println("Usage: " + ProxyClassesGenerator.class.getName() + " <output directory> <package>...");
+			System.exit(1);
+		}
+		
+		generate(new File(args[0]), Thread.currentThread().getContextClassLoader(), Arrays.copyOfRange(args, 1, args.length));
+	}
+	
+	public static void generate(File outputDirectory, ClassLoader classLoader, String... packageNames) {
+		DefaultSpearalFactory factory = new DefaultSpearalFactory();
+		
+		SpearalContext context = factory.getContext();
+		context.configure(new JavassistPartialObjectFactory(new File(outputDirectory, ProxyClassCache.RESOURCE_PREFIX)));
+		
+		for (String packageName : packageNames)
+			context.warmUp(classLoader, packageName);
+	}
+}
@@ -0,0 +1,170 @@
+/**
+ * == @Spearal ==>
+ * 
+ * Copyright (C) 2014 Franck WOLFF & William DRAI (http://www.spearal.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spearal.impl.property;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Type;
+
+import org.spearal.SpearalContext;
+import org.spearal.configuration.BeanReaderFactory.BeanReader;
+import org.spearal.configuration.PropertyFactory.Property;
+import org.spearal.impl.ExtendedSpearalDecoder;
+import org.spearal.impl.SpearalContextImpl;
+import org.spearal.impl.SpearalType;
+import org.spearal.impl.instantiator.ClassInstantiator;
+
+/**
+ * Base class of the bean readers generated by {@link JavassistBeanReaderFactory}.
+ * 
+ * @author Franck WOLFF
+ */
+public abstract class AbstractBeanReader implements BeanReader {
+	
+	protected Class<?> cls;
+	protected Property[] properties;
+	protected Type[] types;
+	
+	void init(Class<?> cls, Property[] properties) {
+		this.cls = cls;
+		this.properties = properties;
+		this.types = new Type[properties.length];
+		for (int i = 0; i < properties.length; i++) {
+			if (properties[i] != null)
+				types[i] = properties[i].getGenericType();
+		}
+	}
+
+	@Override
+	public Object instantiate(SpearalContext context)
+		throws InstantiationException, IllegalAccessException {
+		
+		// Direct instantiation only when the context would use the default class instantiator.
+		if (context instanceof SpearalContextImpl &&
+			((SpearalContextImpl)context).getTypeInstantiator(cls).getClass() == ClassInstantiator.class) {
+			
+			context.getSecurizer().checkDecodable(cls);
+			Object bean = newInstance();
+			if (bean != null)
+				return bean;
+		}
+		return context.instantiate(cls, null);
+	}
+	
+	protected Object newInstance() {
+		return null;
+	}
+	
+	protected final Object readAny(ExtendedSpearalDecoder decoder, int parameterizedType, int index)
+		throws IOException {
+		
+		return decoder.readAny(parameterizedType, types[index]);
+	}
+	
+	protected final void readProperty(ExtendedSpearalDecoder decoder, Object holder, int parameterizedType, int index)
+		throws IOException, InstantiationException, IllegalAccessException, InvocationTargetException {
+		
+		Property property = properties[index];
+		if (property != null)
+			property.read(decoder, holder, parameterizedType);
+		else
+			decoder.skipAny(parameterizedType);
+	}
+	
+	protected static boolean isCollection(int parameterizedType) {
+		return SpearalType.valueOf(parameterizedType) == SpearalType.COLLECTION;
+	}
+	
+	protected static boolean isMap(int parameterizedType) {
+		return SpearalType.valueOf(parameterizedType) == SpearalType.MAP;
+	}
+	
+	protected static boolean readBoolean(ExtendedSpearalDecoder decoder, int parameterizedType)
+		throws IOException {
+		
+		if (parameterizedType == SpearalType.TRUE.id())
+			return true;
+		if (parameterizedType == SpearalType.FALSE.id())
+			return false;
+		return ((Boolean)decoder.readAny(parameterizedType, boolean.class)).booleanValue();
+	}
+	
+	protected static byte readByte(ExtendedSpearalDecoder decoder, int parameterizedType)
+		throws IOException {
+		
+		if (SpearalType.valueOf(parameterizedType) == SpearalType.INTEGRAL)
+			return (byte)decoder.readIntegral(parameterizedType);
+		return ((Byte)decoder.readAny(parameterizedType, byte.class)).byteValue();
+	}
+	
+	protected static short readShort(ExtendedSpearalDecoder decoder, int parameterizedType)
+		throws IOException {
+		
+		if (SpearalType.valueOf(parameterizedType) == SpearalType.INTEGRAL)
+			return (short)decoder.readIntegral(parameterizedType);
+		return ((Short)decoder.readAny(parameterizedType, short.class)).shortValue();
+	}
+	
+	protected static int readInt(ExtendedSpearalDecoder decoder, int parameterizedType)
+		throws IOException {
+		
+		if (SpearalType.valueOf(parameterizedType) == SpearalType.INTEGRAL)
+			return (int)decoder.readIntegral(parameterizedType);
+		return ((Integer)decoder.readAny(parameterizedType, int.class)).intValue();
+	}
+	
+	protected static long readLong(ExtendedSpearalDecoder decoder, int parameterizedType)
+		throws IOException {
+		
+		if (SpearalType.valueOf(parameterizedType) == SpearalType.INTEGRAL)
+			return decoder.readIntegral(parameterizedType);
+		return ((Long)decoder.readAny(parameterizedType, long.class)).longValue();
+	}
+	
+	protected static float readFloat(ExtendedSpearalDecoder decoder, int parameterizedType)
+		throws IOException {
+		
+		if (SpearalType.valueOf(parameterizedType) == SpearalType.FLOATING)
+			return (float)decoder.readFloating(parameterizedType);
+		return ((Float)decoder.readAny(parameterizedType, float.class)).floatValue();
+	}
+	
+	protected static double readDouble(ExtendedSpearalDecoder decoder, int parameterizedType)
+		throws IOException {
+		
+		if (SpearalType.valueOf(parameterizedType) == SpearalType.FLOATING)
+			return decoder.readFloating(parameterizedType);
+		return ((Double)decoder.readAny(parameterizedType, double.class)).doubleValue();
+	}
+	
+	protected static char readChar(ExtendedSpearalDecoder decoder, int parameterizedType)
+		throws IOException {
+		
+		return ((Character)decoder.readAny(parameterizedType, char.class)).charValue();
+	}
+	
+	protected static String readString(ExtendedSpearalDecoder decoder, int parameterizedType)
+		throws IOException {
+		
+		if (SpearalType.valueOf(parameterizedType) == SpearalType.STRING)
+			return decoder.readString(parameterizedType);
+		if (parameterizedType == SpearalType.NULL.id())
+			return null;
+		return (String)decoder.readAny(parameterizedType, String.class);
+	}
+}
@@ -0,0 +1,289 @@
+/**
+ * == @Spearal ==>
+ * 
+ * Copyright (C) 2014 Franck WOLFF & William DRAI (http://www.spearal.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spearal.impl.property;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javassist.ClassClassPath;
+import javassist.ClassPool;
+import javassist.CtClass;
+import javassist.CtNewMethod;
+import javassist.LoaderClassPath;
+
+import org.spearal.SpearalContext;
+import org.spearal.configuration.BeanReaderFactory;
+import org.spearal.configuration.PropertyFactory.Property;
+import org.spearal.impl.instantiator.ClassInstantiator;
+
+/**
+ * A {@link BeanReaderFactory} that generates, with Javassist, one reader class per bean
+ * class and serialized property order. Generated readers assign each property through its
+ * field when it is accessible and not final, through its setter otherwise, with a
+ * type-specialized read call per slot (collections and maps are cleared and refilled
+ * like {@link CollectionProperty} and {@link MapProperty} do). Beans are created with
+ * their no-arg constructor unless the context uses another instantiator than
+ * {@link ClassInstantiator} for the bean class. Properties that cannot be accessed from
+ * the generated code are still read by their {@link Property}.
+ * 
+ * @author Franck WOLFF
+ */
+public class JavassistBeanReaderFactory implements BeanReaderFactory {
+	
+	private static final Logger logger = Logger.getLogger(JavassistBeanReaderFactory.class.getName());
+	
+	private static final AtomicInteger generation = new AtomicInteger();
+	
+	private static final int DEFAULT_MAX_READERS_PER_CLASS = 16;
+	
+	private final int maxReadersPerClass;
+	private final Map<Class<?>, List<AbstractBeanReader>> readers;
+	
+	public JavassistBeanReaderFactory() {
+		this(DEFAULT_MAX_READERS_PER_CLASS);
+	}
+	
+	public JavassistBeanReaderFactory(int maxReadersPerClass) {
+		this.maxReadersPerClass = maxReadersPerClass;
+		this.readers = new HashMap<Class<?>, List<AbstractBeanReader>>();
+	}
+
+	@Override
+	public synchronized BeanReader createBeanReader(SpearalContext context, Class<?> cls, Property[] properties) {
+		if (cls.isInterface() || Proxy.isProxyClass(cls) || cls.getClassLoader() == null || cls.getName().startsWith("java."))
+			return null;
+		
+		List<AbstractBeanReader> classReaders = readers.get(cls);
+		if (classReaders == null) {
+			classReaders = new ArrayList<AbstractBeanReader>();
+			readers.put(cls, classReaders);
+		}
+		
+		for (AbstractBeanReader reader : classReaders) {
+			if (sameProperties(reader.properties, properties))
+				return reader;
+		}
+		
+		if (classReaders.size() >= maxReadersPerClass)
+			return null;
+		
+		AbstractBeanReader reader = null;
+		try {
+			context.getSecurizer().checkDecodable(cls);
+			reader = createReader(cls, properties);
+			reader.init(cls, properties);
+			classReaders.add(reader);
+		}
+		catch (SecurityException e) {
+			throw e;
+		}
+		catch (Throwable t) {
+			logger.log(Level.FINE, "Could not generate bean reader for: " + cls, t);
+		}
+		return reader;
+	}
+	
+	protected AbstractBeanReader createReader(Class<?> cls, Property[] properties) throws Exception {
+		ClassLoader classLoader = cls.getClassLoader();
+		
+		ClassPool pool = new ClassPool(true);
+		pool.insertClassPath(new ClassClassPath(AbstractBeanReader.class));
+		pool.insertClassPath(new LoaderClassPath(classLoader));
+		
+		String beanClassName = cls.getName();
+		String readerClassName = beanClassName + "$$SpearalReader" + generation.incrementAndGet();
+		
+		CtClass readerClass = pool.makeClass(readerClassName, pool.get(AbstractBeanReader.class.getName()));
+		
+		if (hasAccessibleConstructor(cls)) {
+			readerClass.addMethod(CtNewMethod.make(
+				"protected java.lang.Object newInstance() {\n" +
+				"return new " + beanClassName + "();\n" +
+				"}",
+				readerClass
+			));
+		}
+		
+		StringBuilder sb = new StringBuilder(256 + (properties.length * 128));
+		sb.append("public void read(")
+			.append("org.spearal.impl.ExtendedSpearalDecoder decoder, java.lang.Object holder, int index, int parameterizedType) ")
+			.append("throws java.io.IOException, java.lang.InstantiationException, ")
+			.append("java.lang.IllegalAccessException, java.lang.reflect.InvocationTargetException {\n");
+		sb.append(beanClassName).append(" bean = (").append(beanClassName).append(")holder;\n");
+		sb.append("switch (index) {\n");
+		for (int i = 0; i < properties.length; i++)
+			appendCase(sb, cls, properties[i], i);
+		sb.append("default:\n");
+		sb.append("readProperty(decoder, holder, parameterizedType, index);\n");
+		sb.append("}\n}");
+		
+		readerClass.addMethod(CtNewMethod.make(sb.toString(), readerClass));
+		
+		Class<?> readerCls = readerClass.toClass(classLoader, cls.getProtectionDomain());
+		readerClass.detach();
+		
+		return (AbstractBeanReader)readerCls.newInstance();
+	}
+	
+	private static void appendCase(StringBuilder sb, Class<?> cls, Property property, int index) {
+		if (property == null)
+			return;
+		
+		Class<?> type = property.getType();
+		if (!isAccessible(cls, type))
+			return;
+		
+		Field field = property.getField();
+		Method getter = property.getGetter();
+		Method setter = property.getSetter();
+		boolean accessibleField = (field != null && isAccessible(cls, field));
+		String typeName = sourceName(type);
+		
+		// The field when it is accessible and not final, the setter otherwise.
+		String assignment;
+		if (accessibleField && (field.getModifiers() & Modifier.FINAL) == 0)
+			assignment = "bean." + field.getName() + " = (" + typeName + ")%s;\n";
+		else if (setter != null && isAccessible(cls, setter))
+			assignment = "bean." + setter.getName() + "((" + typeName + ")%s);\n";
+		else
+			return;
+		
+		boolean collection = Collection.class.isAssignableFrom(type);
+		if (collection || Map.class.isAssignableFrom(type)) {
+			// Existing collections and maps are cleared and refilled, like CollectionProperty and MapProperty do.
+			String current;
+			if (accessibleField)
+				current = "bean." + field.getName();
+			else if (getter != null && isAccessible(cls, getter))
+				current = "bean." + getter.getName() + "()";
+			else
+				return;
+			
+			String valueType = (collection ? "java.util.Collection" : "java.util.Map");
+			sb.append("case ").append(index).append(":\n");
+			sb.append("if (").append(collection ? "isCollection" : "isMap").append("(parameterizedType)) {\n");
+			sb.append(valueType).append(" current = ").append(current).append(";\n");
+			sb.append("java.lang.Object value = decoder.").append(collection ? "readCollectionValue" : "readMapValue")
+				.append("(parameterizedType, current, properties[").append(index).append("]);\n");
+			sb.append("if (value != current)\n");
+			sb.append(String.format(assignment, "value"));
+			sb.append("}\n");
+			sb.append("else\n");
+			sb.append(String.format(assignment, "readAny(decoder, parameterizedType, " + index + ")"));
+			sb.append("return;\n");
+			return;
+		}
+		
+		String read;
+		if (type.isPrimitive()) {
+			if (type == boolean.class)
+				read = "readBoolean(decoder, parameterizedType)";
+			else if (type == int.class)
+				read = "readInt(decoder, parameterizedType)";
+			else if (type == long.class)
+				read = "readLong(decoder, parameterizedType)";
+			else if (type == double.class)
+				read = "readDouble(decoder, parameterizedType)";
+			else if (type == float.class)
+				read = "readFloat(decoder, parameterizedType)";
+			else if (type == short.class)
+				read = "readShort(decoder, parameterizedType)";
+			else if (type == byte.class)
+				read = "readByte(decoder, parameterizedType)";
+			else
+				read = "readChar(decoder, parameterizedType)";
+		}
+		else if (type == String.class)
+			read = "readString(decoder, parameterizedType)";
+		else
+			read = "readAny(decoder, parameterizedType, " + index + ")";
+		
+		sb.append("case ").append(index).append(":\n");
+		sb.append(String.format(assignment, read));
+		sb.append("return;\n");
+	}
+	
+	private static String sourceName(Class<?> type) {
+		if (type.isArray())
+			return sourceName(type.getComponentType()) + "[]";
+		return type.getName();
+	}
+	
+	private static boolean isAccessible(Class<?> from, Class<?> type) {
+		while (type.isArray())
+			type = type.getComponentType();
+		if (type.isPrimitive() || Modifier.isPublic(type.getModifiers()))
+			return true;
+		return (!Modifier.isPrivate(type.getModifiers()) && samePackage(from, type));
+	}
+	
+	private static boolean isAccessible(Class<?> from, Member member) {
+		int modifiers = member.getModifiers();
+		Class<?> declaringClass = member.getDeclaringClass();
+		
+		if ((modifiers & Modifier.STATIC) != 0 || Modifier.isPrivate(modifiers) || !isAccessible(from, declaringClass))
+			return false;
+		if (Modifier.isPublic(modifiers))
+			return true;
+		return samePackage(from, declaringClass);
+	}
+	
+	private static boolean hasAccessibleConstructor(Class<?> cls) {
+		if ((cls.getModifiers() & Modifier.ABSTRACT) != 0 ||
+			(cls.getEnclosingClass() != null && (cls.getModifiers() & Modifier.STATIC) == 0))
+			return false;
+		
+		for (Constructor<?> constructor : cls.getDeclaredConstructors()) {
+			if (constructor.getParameterTypes().length == 0)
+				return isAccessible(cls, constructor);
+		}
+		return false;
+	}
+	
+	private static boolean samePackage(Class<?> c1, Class<?> c2) {
+		if (c1.getClassLoader() != c2.getClassLoader())
+			return false;
+		String n1 = c1.getName();
+		String n2 = c2.getName();
+		int i1 = n1.lastIndexOf('.');
+		int i2 = n2.lastIndexOf('.');
+		return (i1 == i2 && (i1 == -1 || n1.regionMatches(0, n2, 0, i1)));
+	}
+	
+	private static boolean sameProperties(Property[] properties1, Property[] properties2) {
+		if (properties1.length != properties2.length)
+			return false;
+		for (int i = 0; i < properties1.length; i++) {
+			if (properties1[i] != properties2[i])
+				return false;
+		}
+		return true;
+	}
+}
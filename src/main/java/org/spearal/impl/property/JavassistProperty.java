@@ -0,0 +1,197 @@
+/**
+ * == @Spearal ==>
+ * 
+ * Copyright (C) 2014 Franck WOLFF & William DRAI (http://www.spearal.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spearal.impl.property;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+
+import org.spearal.SpearalContext;
+import org.spearal.configuration.PropertyFactory.Property;
+import org.spearal.impl.ExtendedSpearalDecoder;
+import org.spearal.impl.ExtendedSpearalEncoder;
+
+/**
+ * @author Franck WOLFF
+ */
+public class JavassistProperty implements Property {
+	
+	private final JavassistPropertyFactory factory;
+	private final Property property;
+	private final int index;
+	
+	// Writer of the last context that wrote this property.
+	private volatile ContextWriter writer;
+
+	public JavassistProperty(JavassistPropertyFactory factory, Property property, int index) {
+		this.factory = factory;
+		this.property = property;
+		this.index = index;
+	}
+	
+	public Property getProperty() {
+		return property;
+	}
+	
+	public int getIndex() {
+		return index;
+	}
+
+	@Override
+	public String getName() {
+		return property.getName();
+	}
+
+	@Override
+	public Class<?> getType() {
+		return property.getType();
+	}
+
+	@Override
+	public Type getGenericType() {
+		return property.getGenericType();
+	}
+
+	@Override
+	public boolean hasField() {
+		return property.hasField();
+	}
+
+	@Override
+	public Field getField() {
+		return property.getField();
+	}
+
+	@Override
+	public boolean hasGetter() {
+		return property.hasGetter();
+	}
+
+	@Override
+	public Method getGetter() {
+		return property.getGetter();
+	}
+
+	@Override
+	public boolean hasSetter() {
+		return property.hasSetter();
+	}
+
+	@Override
+	public Method getSetter() {
+		return property.getSetter();
+	}
+
+	@Override
+	public Class<?> getDeclaringClass() {
+		return property.getDeclaringClass();
+	}
+
+	@Override
+	public Object init(ExtendedSpearalDecoder decoder, Object holder)
+		throws InstantiationException, IllegalAccessException, InvocationTargetException {
+		
+		return property.init(decoder, holder);
+	}
+
+	@Override
+	public Object get(Object holder)
+		throws IllegalAccessException, InvocationTargetException {
+		
+		return property.get(holder);
+	}
+
+	@Override
+	public void set(Object holder, Object value)
+		throws IllegalAccessException, InvocationTargetException {
+		
+		property.set(holder, value);
+	}
+
+	@Override
+	public boolean isAnnotationPresent(Class<? extends Annotation> annotationClass) {
+		return property.isAnnotationPresent(annotationClass);
+	}
+
+	@Override
+	public <A extends Annotation> A getAnnotation(Class<A> annotationClass) {
+		return property.getAnnotation(annotationClass);
+	}
+
+	@Override
+	public boolean isReadOnly() {
+		return property.isReadOnly();
+	}
+
+	@Override
+	public void write(ExtendedSpearalEncoder encoder, Object holder)
+		throws IOException, IllegalAccessException, InvocationTargetException {
+		
+		SpearalContext context = encoder.getContext();
+		ContextWriter writer = this.writer;
+		if (writer == null || writer.context != context) {
+			writer = new ContextWriter(context, factory.getWriter(context, property.getDeclaringClass(), index));
+			this.writer = writer;
+		}
+		
+		if (writer.writer != null)
+			writer.writer.write(encoder, holder, index);
+		else
+			property.write(encoder, holder);
+	}
+
+	@Override
+	public void read(ExtendedSpearalDecoder decoder, Object holder, int parameterizedType)
+		throws IOException, InstantiationException, IllegalAccessException, InvocationTargetException {
+		
+		property.read(decoder, holder, parameterizedType);
+	}
+
+	@Override
+	public int hashCode() {
+		return property.hashCode();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj == this)
+			return true;
+		if (!(obj instanceof JavassistProperty))
+			return false;
+		return property.equals(((JavassistProperty)obj).property);
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + ":" + property;
+	}
+	
+	private static class ContextWriter {
+		
+		public final SpearalContext context;
+		public final BeanWriter writer;
+		
+		public ContextWriter(SpearalContext context, BeanWriter writer) {
+			this.context = context;
+			this.writer = writer;
+		}
+	}
+}
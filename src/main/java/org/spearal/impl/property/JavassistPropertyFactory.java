@@ -0,0 +1,282 @@
+/**
+ * == @Spearal ==>
+ * 
+ * Copyright (C) 2014 Franck WOLFF & William DRAI (http://www.spearal.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spearal.impl.property;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javassist.ClassClassPath;
+import javassist.ClassPool;
+import javassist.CtClass;
+import javassist.CtNewMethod;
+import javassist.LoaderClassPath;
+
+import org.spearal.SpearalContext;
+import org.spearal.configuration.PropertyFactory;
+import org.spearal.impl.coder.SimpleCodersProvider;
+
+/**
+ * A {@link PropertyFactory} that generates, with Javassist, one {@link BeanWriter} class
+ * per bean class and per context. Generated writers read the field when it isn't private,
+ * the getter otherwise (private fields of JavaBeans are thus read through their public
+ * getter, while {@link AnyProperty} reads them by reflection), and call the typed
+ * <code>ExtendedSpearalEncoder.writeXxx</code> methods, without reflection or boxing, unless
+ * a custom coder is registered for the value type in the context. Properties with neither
+ * an accessible field nor an accessible getter are still written by reflection.
+ * 
+ * @author Franck WOLFF
+ */
+public class JavassistPropertyFactory extends SimplePropertiesFactory {
+	
+	private static final Logger logger = Logger.getLogger(JavassistPropertyFactory.class.getName());
+	
+	private static final AtomicInteger generation = new AtomicInteger();
+	
+	private final Map<Class<?>, List<JavassistProperty>> properties;
+	private final Map<SpearalContext, Map<Class<?>, WriterHolder>> writers;
+	
+	public JavassistPropertyFactory() {
+		this.properties = new HashMap<Class<?>, List<JavassistProperty>>();
+		this.writers = new WeakHashMap<SpearalContext, Map<Class<?>, WriterHolder>>();
+	}
+
+	@Override
+	public Property createProperty(String name, Field field, Method getter, Method setter) {
+		Property property = super.createProperty(name, field, getter, setter);
+		
+		if (!isAccessible(field) && !isAccessible(getter))
+			return property;
+		
+		Class<?> declaringClass = property.getDeclaringClass();
+		if (declaringClass.getClassLoader() == null || declaringClass.getName().startsWith("java."))
+			return property;
+		
+		synchronized (this) {
+			List<JavassistProperty> classProperties = properties.get(declaringClass);
+			if (classProperties == null) {
+				classProperties = new ArrayList<JavassistProperty>();
+				properties.put(declaringClass, classProperties);
+			}
+			else {
+				// Same member introspected again (subclass, proxy or another context): reuse it.
+				for (JavassistProperty javassistProperty : classProperties) {
+					if (javassistProperty.getProperty().equals(property))
+						return javassistProperty;
+				}
+			}
+			JavassistProperty javassistProperty = new JavassistProperty(this, property, classProperties.size());
+			classProperties.add(javassistProperty);
+			return javassistProperty;
+		}
+	}
+	
+	public synchronized BeanWriter getWriter(SpearalContext context, Class<?> declaringClass, int index) {
+		// Coders, and thus the generated code, depend on the context.
+		Map<Class<?>, WriterHolder> contextWriters = writers.get(context);
+		if (contextWriters == null) {
+			contextWriters = new HashMap<Class<?>, WriterHolder>();
+			writers.put(context, contextWriters);
+		}
+		
+		WriterHolder holder = contextWriters.get(declaringClass);
+		
+		if (holder == null) {
+			List<JavassistProperty> classProperties = properties.get(declaringClass);
+			if (classProperties == null || index >= classProperties.size())
+				return null;
+			
+			BeanWriter writer = null;
+			try {
+				writer = createWriter(context, declaringClass, classProperties);
+			}
+			catch (Throwable t) {
+				logger.log(Level.FINE, "Could not generate bean writer for: " + declaringClass, t);
+			}
+			holder = new WriterHolder(writer, classProperties.size());
+			contextWriters.put(declaringClass, holder);
+		}
+		
+		// Writers are generated once per class and context: properties created afterwards are written by reflection.
+		return (index < holder.count ? holder.writer : null);
+	}
+	
+	protected BeanWriter createWriter(SpearalContext context, Class<?> declaringClass, List<JavassistProperty> classProperties)
+		throws Exception {
+		
+		ClassLoader classLoader = declaringClass.getClassLoader();
+		
+		ClassPool pool = new ClassPool(true);
+		pool.insertClassPath(new ClassClassPath(BeanWriter.class));
+		pool.insertClassPath(new LoaderClassPath(classLoader));
+		
+		String beanClassName = declaringClass.getName();
+		String writerClassName = beanClassName + "$$SpearalWriter" + generation.incrementAndGet();
+		
+		CtClass writerClass = pool.makeClass(writerClassName, pool.get(BeanWriter.class.getName()));
+		
+		StringBuilder sb = new StringBuilder(256 + (classProperties.size() * 128));
+		sb.append("public void write(")
+			.append("org.spearal.impl.ExtendedSpearalEncoder encoder, java.lang.Object holder, int index) ")
+			.append("throws java.io.IOException {\n");
+		sb.append(beanClassName).append(" bean = (").append(beanClassName).append(")holder;\n");
+		sb.append("switch (index) {\n");
+		for (JavassistProperty property : classProperties) {
+			sb.append("case ").append(property.getIndex()).append(": {\n");
+			appendWrite(context, sb, property.getProperty(), "v" + property.getIndex());
+			sb.append("return;\n}\n");
+		}
+		sb.append("default:\n");
+		sb.append("throw new java.lang.IllegalArgumentException(\"Illegal property index: \" + index);\n");
+		sb.append("}\n}");
+		
+		writerClass.addMethod(CtNewMethod.make(sb.toString(), writerClass));
+		
+		Class<?> cls = writerClass.toClass(classLoader, declaringClass.getProtectionDomain());
+		writerClass.detach();
+		
+		return (BeanWriter)cls.newInstance();
+	}
+	
+	private static void appendWrite(SpearalContext context, StringBuilder sb, Property property, String var) {
+		Field field = property.getField();
+		
+		String access = (
+			isAccessible(field)
+			? "bean." + field.getName()
+			: "bean." + property.getGetter().getName() + "()"
+		);
+		
+		Class<?> type = property.getType();
+		
+		if (type.isPrimitive()) {
+			String method;
+			Class<?> wrapper;
+			if (type == boolean.class) {
+				method = "writeBoolean";
+				wrapper = Boolean.class;
+			}
+			else if (type == int.class) {
+				method = "writeInt";
+				wrapper = Integer.class;
+			}
+			else if (type == long.class) {
+				method = "writeLong";
+				wrapper = Long.class;
+			}
+			else if (type == double.class) {
+				method = "writeDouble";
+				wrapper = Double.class;
+			}
+			else if (type == float.class) {
+				method = "writeFloat";
+				wrapper = Float.class;
+			}
+			else if (type == short.class) {
+				method = "writeShort";
+				wrapper = Short.class;
+			}
+			else if (type == byte.class) {
+				method = "writeByte";
+				wrapper = Byte.class;
+			}
+			else {
+				method = "writeChar";
+				wrapper = Character.class;
+			}
+			
+			// Like the PrimitiveXxxProperty classes, boolean, int, long and double values are
+			// always written directly. Other primitives go through coders, like AnyProperty.
+			if (property instanceof PrimitiveBooleanProperty ||
+				property instanceof PrimitiveIntProperty ||
+				property instanceof PrimitiveLongProperty ||
+				property instanceof PrimitiveDoubleProperty ||
+				hasSimpleCoder(context, wrapper))
+				sb.append("encoder.").append(method).append('(').append(access).append(");\n");
+			else
+				sb.append("encoder.writeAny(").append(wrapper.getName()).append(".valueOf(").append(access).append("));\n");
+			return;
+		}
+		
+		String typeName;
+		String write;
+		if (type == String.class) {
+			typeName = "java.lang.String";
+			write = "encoder.writeString(" + var + ")";
+		}
+		else if (type == Integer.class) {
+			typeName = "java.lang.Integer";
+			write = "encoder.writeInt(" + var + ".intValue())";
+		}
+		else if (type == Long.class) {
+			typeName = "java.lang.Long";
+			write = "encoder.writeLong(" + var + ".longValue())";
+		}
+		else if (type == Boolean.class) {
+			typeName = "java.lang.Boolean";
+			write = "encoder.writeBoolean(" + var + ".booleanValue())";
+		}
+		else if (type == Double.class) {
+			typeName = "java.lang.Double";
+			write = "encoder.writeDouble(" + var + ".doubleValue())";
+		}
+		else
+			typeName = write = null;
+		
+		// Other types (collections and maps included) are looked up at runtime, since the
+		// coder to use depends on the actual class of the value.
+		if (typeName == null || !hasSimpleCoder(context, type)) {
+			sb.append("encoder.writeAny(").append(access).append(");\n");
+			return;
+		}
+		
+		sb.append(typeName).append(' ').append(var).append(" = ").append(access).append(";\n");
+		sb.append("if (").append(var).append(" == null) encoder.writeNull();\n");
+		sb.append("else ").append(write).append(";\n");
+	}
+	
+	private static boolean hasSimpleCoder(SpearalContext context, Class<?> type) {
+		return SimpleCodersProvider.isSimpleCoder(context.getCoder(type));
+	}
+	private static boolean isAccessible(Field field) {
+		return (field != null && (field.getModifiers() & Modifier.PRIVATE) == 0);
+	}
+	
+	private static boolean isAccessible(Method method) {
+		return (method != null && (method.getModifiers() & Modifier.PRIVATE) == 0);
+	}
+	
+	private static class WriterHolder {
+		
+		public final BeanWriter writer;
+		public final int count;
+		
+		public WriterHolder(BeanWriter writer, int count) {
+			this.writer = writer;
+			this.count = count;
+		}
+	}
+}
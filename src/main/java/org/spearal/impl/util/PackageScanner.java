@@ -0,0 +1,119 @@
+/**
+ * == @Spearal ==>
+ * 
+ * Copyright (C) 2014 Franck WOLFF & William DRAI (http://www.spearal.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spearal.impl.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.JarURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Lists the classes of a package (and of its subpackages) found by a class
+ * loader, in directories or jar files.
+ * 
+ * @author Franck WOLFF
+ */
+public class PackageScanner {
+	
+	private static final Logger log = Logger.getLogger(PackageScanner.class.getName());
+	
+	private static final String CLASS_SUFFIX = ".class";
+
+	public static List<Class<?>> findClasses(ClassLoader loader, String packageName) {
+		if (loader == null)
+			loader = Thread.currentThread().getContextClassLoader();
+		
+		String path = packageName.replace('.', '/');
+		if (path.length() > 0 && !path.endsWith("/"))
+			path += "/";
+		
+		Set<String> classNames = new LinkedHashSet<String>();
+		try {
+			Enumeration<URL> en = loader.getResources(path);
+			while (en.hasMoreElements()) {
+				URL url = en.nextElement();
+				if ("file".equals(url.getProtocol()))
+					scanDirectory(new File(URLDecoder.decode(url.getPath(), "UTF-8")), path, classNames);
+				else {
+					URLConnection connection = url.openConnection();
+					if (connection instanceof JarURLConnection)
+						scanJar(((JarURLConnection)connection).getJarFile(), path, classNames);
+					else
+						log.warning("Unsupported package location: " + url);
+				}
+			}
+		}
+		catch (IOException e) {
+			throw new RuntimeException("Could not scan package: " + packageName, e);
+		}
+		
+		List<Class<?>> classes = new ArrayList<Class<?>>(classNames.size());
+		for (String className : classNames) {
+			try {
+				Class<?> cls = Class.forName(className, false, loader);
+				if (!cls.isAnonymousClass() && !cls.isLocalClass() && !cls.isSynthetic())
+					classes.add(cls);
+			}
+			catch (Throwable t) {
+				log.log(Level.FINE, "Ignoring class: " + className, t);
+			}
+		}
+		return classes;
+	}
+	
+	private static void scanDirectory(File directory, String path, Set<String> classNames) {
+		File[] files = directory.listFiles();
+		if (files == null)
+			return;
+		
+		for (File file : files) {
+			String name = file.getName();
+			if (file.isDirectory())
+				scanDirectory(file, path + name + "/", classNames);
+			else
+				addClassName(path + name, classNames);
+		}
+	}
+	
+	private static void scanJar(JarFile jar, String path, Set<String> classNames) {
+		Enumeration<JarEntry> entries = jar.entries();
+		while (entries.hasMoreElements()) {
+			JarEntry entry = entries.nextElement();
+			if (!entry.isDirectory() && entry.getName().startsWith(path))
+				addClassName(entry.getName(), classNames);
+		}
+	}
+	
+	private static void addClassName(String resourceName, Set<String> classNames) {
+		if (resourceName.endsWith(CLASS_SUFFIX) && !resourceName.endsWith("package-info" + CLASS_SUFFIX)) {
+			String className = resourceName.substring(0, resourceName.length() - CLASS_SUFFIX.length());
+			classNames.add(className.replace('/', '.'));
+		}
+	}
+}
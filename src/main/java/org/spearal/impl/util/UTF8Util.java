@@ -0,0 +1,96 @@
+/**
+ * == @Spearal ==>
+ * 
+ * Copyright (C) 2014 Franck WOLFF & William DRAI (http://www.spearal.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spearal.impl.util;
+
+/**
+ * UTF-8 encoding helpers, producing the same bytes as <code>String.getBytes("UTF-8")</code>
+ * (unpaired surrogates are encoded as <code>'?'</code>).
+ * 
+ * @author Franck WOLFF
+ */
+public class UTF8Util {
+	
+	public static int asciiLength(String s) {
+		final int length = s.length();
+		
+		int i = 0;
+		while (i < length && s.charAt(i) < 0x80)
+			i++;
+		return i;
+	}
+	
+	public static int utf8Length(String s) {
+		return utf8Length(s, asciiLength(s));
+	}
+	
+	public static int utf8Length(String s, int asciiLength) {
+		final int length = s.length();
+		
+		int i = asciiLength;
+		int utf8Length = i;
+		for (; i < length; i++) {
+			char c = s.charAt(i);
+			if (c < 0x80)
+				utf8Length++;
+			else if (c < 0x800)
+				utf8Length += 2;
+			else if (c < Character.MIN_SURROGATE || c > Character.MAX_SURROGATE)
+				utf8Length += 3;
+			else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))) {
+				utf8Length += 4;
+				i++;
+			}
+			else
+				utf8Length++;
+		}
+		return utf8Length;
+	}
+	
+	public static int encodeASCII(String s, int from, int to, byte[] bytes, int position) {
+		for (int i = from; i < to; i++)
+			bytes[position++] = (byte)s.charAt(i);
+		return position;
+	}
+	
+	public static int encodeUTF8(String s, int from, int to, byte[] bytes, int position) {
+		for (int i = from; i < to; i++) {
+			char c = s.charAt(i);
+			if (c < 0x80)
+				bytes[position++] = (byte)c;
+			else if (c < 0x800) {
+				bytes[position++] = (byte)(0xc0 | (c >>> 6));
+				bytes[position++] = (byte)(0x80 | (c & 0x3f));
+			}
+			else if (c < Character.MIN_SURROGATE || c > Character.MAX_SURROGATE) {
+				bytes[position++] = (byte)(0xe0 | (c >>> 12));
+				bytes[position++] = (byte)(0x80 | ((c >>> 6) & 0x3f));
+				bytes[position++] = (byte)(0x80 | (c & 0x3f));
+			}
+			else if (Character.isHighSurrogate(c) && i + 1 < to && Character.isLowSurrogate(s.charAt(i + 1))) {
+				int codePoint = Character.toCodePoint(c, s.charAt(++i));
+				bytes[position++] = (byte)(0xf0 | (codePoint >>> 18));
+				bytes[position++] = (byte)(0x80 | ((codePoint >>> 12) & 0x3f));
+				bytes[position++] = (byte)(0x80 | ((codePoint >>> 6) & 0x3f));
+				bytes[position++] = (byte)(0x80 | (codePoint & 0x3f));
+			}
+			else
+				bytes[position++] = (byte)'?';
+		}
+		return position;
+	}
+}
@@ -0,0 +1,323 @@
+/**
+ * == @Spearal ==>
+ * 
+ * Copyright (C) 2014 Franck WOLFF & William DRAI (http://www.spearal.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spearal.processor;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic.Kind;
+
+import org.spearal.annotation.Exclude;
+import org.spearal.annotation.Include;
+import org.spearal.annotation.Introspected;
+import org.spearal.impl.introspector.PropertyTable;
+
+/**
+ * Generates a {@link PropertyTable} for each class annotated with
+ * {@link Introspected}. The selection of properties and accessors mirrors
+ * the one of {@link org.spearal.impl.introspector.IntrospectorImpl}.
+ * <p>
+ * This processor isn't registered as a service, so it never runs unless it is
+ * requested explicitly, either with <code>-processor</code> or by putting the
+ * <code>spearal-java-processor</code> jar on the processor path.
+ * 
+ * @author Franck WOLFF
+ */
+@SupportedAnnotationTypes("org.spearal.annotation.Introspected")
+public class IntrospectedProcessor extends AbstractProcessor {
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+		for (Element element : roundEnv.getElementsAnnotatedWith(Introspected.class)) {
+			if (element.getKind() != ElementKind.CLASS) {
+				error(element, "@Introspected can only be applied to classes");
+				continue;
+			}
+			
+			TypeElement type = (TypeElement)element;
+			if (!isAccessible(type)) {
+				error(element, "@Introspected classes must be top-level or static nested classes, and not private");
+				continue;
+			}
+			
+			try {
+				generate(type, collectProperties(type));
+			}
+			catch (IOException e) {
+				error(element, "Could not generate property table: " + e);
+			}
+		}
+		return true;
+	}
+	
+	private boolean isAccessible(TypeElement type) {
+		for (Element element = type; element instanceof TypeElement; element = element.getEnclosingElement()) {
+			TypeElement enclosing = (TypeElement)element;
+			Set<Modifier> modifiers = enclosing.getModifiers();
+			if (modifiers.contains(Modifier.PRIVATE))
+				return false;
+			if (enclosing.getNestingKind() == NestingKind.MEMBER) {
+				if (!modifiers.contains(Modifier.STATIC))
+					return false;
+			}
+			else if (enclosing.getNestingKind() != NestingKind.TOP_LEVEL)
+				return false;
+		}
+		return true;
+	}
+	
+	private SortedMap<String, PropertyModel> collectProperties(TypeElement type) {
+		List<VariableElement> fields = ElementFilter.fieldsIn(type.getEnclosedElements());
+		List<ExecutableElement> methods = ElementFilter.methodsIn(type.getEnclosedElements());
+		
+		SortedMap<String, PropertyModel> properties = new TreeMap<String, PropertyModel>();
+		for (VariableElement field : fields) {
+			Set<Modifier> modifiers = field.getModifiers();
+			if (!modifiers.contains(Modifier.STATIC) &&
+				!modifiers.contains(Modifier.TRANSIENT) &&
+				field.getAnnotation(Exclude.class) == null) {
+				
+				String name = field.getSimpleName().toString();
+				TypeMirror fieldType = field.asType();
+				
+				ExecutableElement getter = findGetter(methods, fieldType, name);
+				ExecutableElement setter = findSetter(methods, fieldType, name);
+				
+				properties.put(name, new PropertyModel(name, name, getter, setter));
+			}
+		}
+		
+		for (ExecutableElement getter : methods) {
+			TypeMirror returnType = getter.getReturnType();
+			if (isAccessor(getter) &&
+				returnType.getKind() != TypeKind.VOID &&
+				getter.getAnnotation(Include.class) != null &&
+				getter.getParameters().isEmpty()) {
+				
+				String name = null;
+				
+				String methodName = getter.getSimpleName().toString();
+				if (returnType.getKind() == TypeKind.BOOLEAN && methodName.startsWith("is"))
+					name = decapitalize(methodName.substring(2));
+				else if (methodName.startsWith("get"))
+					name = decapitalize(methodName.substring(3));
+				
+				if (name == null || name.length() == 0) {
+					processingEnv.getMessager().printMessage(Kind.WARNING,
+						"Ignoring method annotated with @Include (illegal property getter name): " + methodName, getter);
+					continue;
+				}
+				if (properties.containsKey(name))
+					continue;
+				
+				ExecutableElement setter = findSetter(methods, returnType, name);
+				
+				properties.put(name, new PropertyModel(name, null, getter, setter));
+			}
+		}
+		
+		return properties;
+	}
+	
+	private ExecutableElement findGetter(List<ExecutableElement> methods, TypeMirror type, String name) {
+		final String isName = "is" + name;
+		final String getName = "get" + name;
+		
+		ExecutableElement looseMatch = null;
+		
+		for (ExecutableElement method : methods) {
+			if (isAccessor(method) &&
+				isSameType(method.getReturnType(), type) &&
+				method.getParameters().isEmpty()) {
+				
+				String methodName = method.getSimpleName().toString();
+				if (type.getKind() == TypeKind.BOOLEAN && methodName.equalsIgnoreCase(isName))
+					looseMatch = method;
+				else if (methodName.equalsIgnoreCase(getName)) {
+					if (name.equals(decapitalize(methodName.substring(3))))
+						return method;
+					looseMatch = method;
+				}
+			}
+		}
+		
+		return looseMatch;
+	}
+	
+	private ExecutableElement findSetter(List<ExecutableElement> methods, TypeMirror type, String name) {
+		final String setName = "set" + name;
+		
+		ExecutableElement looseMatch = null;
+		
+		for (ExecutableElement method : methods) {
+			if (isAccessor(method) &&
+				method.getReturnType().getKind() == TypeKind.VOID &&
+				method.getParameters().size() == 1 &&
+				isSameType(method.getParameters().get(0).asType(), type)) {
+				
+				String methodName = method.getSimpleName().toString();
+				if (methodName.equalsIgnoreCase(setName)) {
+					if (name.equals(decapitalize(methodName.substring(3))))
+						return method;
+					looseMatch = method;
+				}
+			}
+		}
+		
+		return looseMatch;
+	}
+	
+	private void generate(TypeElement type, Map<String, PropertyModel> properties) throws IOException {
+		PackageElement packageElement = processingEnv.getElementUtils().getPackageOf(type);
+		String packageName = (packageElement.isUnnamed() ? "" : packageElement.getQualifiedName().toString());
+		String binaryName = processingEnv.getElementUtils().getBinaryName(type).toString();
+		String tableName = binaryName.substring(packageName.length() > 0 ? packageName.length() + 1 : 0) + PropertyTable.SUFFIX;
+		
+		PrintWriter out = new PrintWriter(processingEnv.getFiler().createSourceFile(
+			(packageName.length() > 0 ? packageName + "." : "") + tableName, type
+		).openWriter());
+		try {
+			if (packageName.length() > 0) {
+				out.println("package " + packageName + ";");
+				out.println();
+			}
+			out.println("/**");
+			out.println(" * Generated by " + IntrospectedProcessor.class.getName() + ", do not edit.");
+			out.println(" */");
+			out.println("public final class " + tableName + " extends " + PropertyTable.class.getName() + " {");
+			out.println();
+			out.println("\t@Override");
+			out.println("\tpublic org.spearal.configuration.PropertyFactory.Property[] createProperties(org.spearal.SpearalContext context)");
+			out.println("\t\tthrows NoSuchFieldException, NoSuchMethodException {");
+			out.println();
+			out.println("\t\tClass<?> cls = " + type.getQualifiedName() + ".class;");
+			out.println("\t\treturn new org.spearal.configuration.PropertyFactory.Property[] {");
+			for (PropertyModel property : properties.values()) {
+				out.println("\t\t\tcontext.createProperty(" +
+					quote(property.name) + ", " +
+					(property.field != null ? "field(cls, " + quote(property.field) + ")" : "null") + ", " +
+					methodReference(property.getter) + ", " +
+					methodReference(property.setter) + "),"
+				);
+			}
+			out.println("\t\t};");
+			out.println("\t}");
+			out.println("}");
+		}
+		finally {
+			out.close();
+		}
+	}
+	
+	private String methodReference(ExecutableElement method) {
+		if (method == null)
+			return "null";
+		
+		StringBuilder sb = new StringBuilder("method(cls, ");
+		sb.append(quote(method.getSimpleName().toString()));
+		for (VariableElement parameter : method.getParameters())
+			sb.append(", ").append(classLiteral(parameter.asType())).append(".class");
+		return sb.append(')').toString();
+	}
+	
+	private String classLiteral(TypeMirror type) {
+		TypeMirror erasure = processingEnv.getTypeUtils().erasure(type);
+		if (erasure.getKind().isPrimitive())
+			return erasure.getKind().name().toLowerCase();
+		if (erasure.getKind() == TypeKind.ARRAY)
+			return classLiteral(((ArrayType)erasure).getComponentType()) + "[]";
+		return ((TypeElement)processingEnv.getTypeUtils().asElement(erasure)).getQualifiedName().toString();
+	}
+	
+	private boolean isSameType(TypeMirror type1, TypeMirror type2) {
+		return processingEnv.getTypeUtils().isSameType(
+			processingEnv.getTypeUtils().erasure(type1),
+			processingEnv.getTypeUtils().erasure(type2)
+		);
+	}
+	
+	private void error(Element element, String message) {
+		processingEnv.getMessager().printMessage(Kind.ERROR, message, element);
+	}
+	
+	private static boolean isAccessor(ExecutableElement method) {
+		Set<Modifier> modifiers = method.getModifiers();
+		return (
+			!modifiers.contains(Modifier.STATIC) &&
+			!modifiers.contains(Modifier.PRIVATE) &&
+			!modifiers.contains(Modifier.PROTECTED)
+		);
+	}
+	
+	private static String quote(String s) {
+		return "\"" + s + "\"";
+	}
+	
+    private static String decapitalize(String name) {
+        if (name == null || name.length() == 0)
+            return name;
+        
+        if (name.length() > 1 && Character.isUpperCase(name.charAt(1)) && Character.isUpperCase(name.charAt(0)))
+            return name;
+        
+        char chars[] = name.toCharArray();
+        chars[0] = Character.toLowerCase(chars[0]);
+        return new String(chars);
+    }
+	
+	private static final class PropertyModel {
+		
+		public final String name;
+		public final String field;
+		public final ExecutableElement getter;
+		public final ExecutableElement setter;
+		
+		public PropertyModel(String name, String field, ExecutableElement getter, ExecutableElement setter) {
+			this.name = name;
+			this.field = field;
+			this.getter = getter;
+			this.setter = setter;
+		}
+	}
+}
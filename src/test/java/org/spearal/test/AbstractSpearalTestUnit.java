@@ -19,6 +19,7 @@ package org.spearal.test;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.PrintStream;
@@ -105,4 +106,13 @@ public abstract class AbstractSpearalTestUnit {
 		in = factory.newDecoder(bais);
 		return in.readAny(targetType);
 	}
+	
+	protected static void deleteRecursively(File file) {
+		File[] children = file.listFiles();
+		if (children != null) {
+			for (File child : children)
+				deleteRecursively(child);
+		}
+		file.delete();
+	}
 }
@@ -58,7 +58,24 @@ import org.junit.runners.Suite.SuiteClasses;
 	TestProxy.class,
 	TestBean.class,
 	TestAliasedBean.class,
-	TestPartialBean.class
+	TestPartialBean.class,
+	TestJavassistProperty.class,
+	TestJavassistBeanReader.class,
+	TestPooledSpearalFactory.class,
+	TestSkip.class,
+	TestReader.class,
+	TestByteArrayDecoder.class,
+	TestByteArrayEncoder.class,
+	TestPackedArray.class,
+	TestConcurrentCache.class,
+	TestWarmUp.class,
+	TestIntrospectedProcessor.class,
+	TestProxyClassCache.class,
+	TestTreeMode.class,
+	TestResetReferences.class,
+	TestFramedSession.class,
+	TestStringDictionary.class,
+	TestBlockCompression.class
 })
 public class AllTests {
 }
@@ -18,6 +18,7 @@
 package org.spearal.test;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
 
@@ -214,4 +215,19 @@ public class TestArray extends AbstractSpearalTestUnit {
 			Assert.fail("Not a Collection: " + clone);
 		Assert.assertArrayEquals(value, ((Collection<?>)clone).toArray());
 	}
+
+	@Test
+	public void testPrimitiveConversions() throws IOException {
+		byte[] data = encode(Arrays.asList(Long.valueOf(1), null, Long.valueOf(-3)));
+		
+		int[] ints = decode(data, int[].class);
+		Assert.assertArrayEquals(new int[]{ 1, 0, -3 }, ints);
+		
+		double[] doubles = decode(data, double[].class);
+		Assert.assertArrayEquals(new double[]{ 1.0, 0.0, -3.0 }, doubles, 0.0);
+		
+		data = encode(new double[]{ 0.5, -1.25 });
+		float[] floats = decode(data, float[].class);
+		Assert.assertArrayEquals(new float[]{ 0.5f, -1.25f }, floats, 0.0f);
+	}
 }
@@ -18,6 +18,7 @@
 package org.spearal.test;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 
 import org.junit.After;
@@ -25,8 +26,13 @@ import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.spearal.DefaultSpearalFactory;
+import org.spearal.SpearalContext;
 import org.spearal.SpearalDecoder;
 import org.spearal.SpearalFactory;
+import org.spearal.SpearalPropertyFilter;
+import org.spearal.configuration.FilteredBeanDescriptorFactory.FilteredBeanDescriptor;
+import org.spearal.impl.SpearalContextImpl;
+import org.spearal.impl.descriptor.ClassDescriptor;
 import org.spearal.test.model.BeanWithArray;
 import org.spearal.test.model.ChildBean;
 import org.spearal.test.model.SimpleBean;
@@ -81,6 +87,40 @@ public class TestBean extends AbstractSpearalTestUnit {
 		encodeDecode(bean, -1);
 	}
 	
+	@Test
+	public void testSharedDescriptors() throws IOException {
+		SpearalFactory factory = new DefaultSpearalFactory();
+		SpearalContext context = factory.getContext();
+		ChildBean bean = new ChildBean();
+		
+		SpearalPropertyFilter filter1 = factory.newEncoder(new ByteArrayOutputStream()).getPropertyFilter();
+		SpearalPropertyFilter filter2 = factory.newEncoder(new ByteArrayOutputStream()).getPropertyFilter();
+		Assert.assertSame(context.getDescriptor(filter1, bean), context.getDescriptor(filter2, bean));
+		
+		filter1.add(ChildBean.class, "childBooleanProperty");
+		filter2.add(ChildBean.class, "childBooleanProperty");
+		FilteredBeanDescriptor descriptor = context.getDescriptor(filter1, bean);
+		Assert.assertSame(descriptor, context.getDescriptor(filter2, bean));
+		Assert.assertNotSame(descriptor, context.getDescriptor(factory.newEncoder(new ByteArrayOutputStream()).getPropertyFilter(), bean));
+	}
+	
+	@Test
+	public void testSharedClassDescriptors() throws IOException {
+		SpearalFactory factory = new DefaultSpearalFactory();
+		SpearalContext context = factory.getContext();
+		
+		String description = ChildBean.class.getName() + "#childBooleanProperty,parentIntProperty";
+		ClassDescriptor descriptor = ((SpearalContextImpl)context).getClassDescriptor(description, null);
+		Assert.assertSame(ChildBean.class, descriptor.cls);
+		Assert.assertTrue(descriptor.partial);
+		Assert.assertSame(descriptor, ((SpearalContextImpl)context).getClassDescriptor(description, null));
+		
+		byte[] data = encode(factory, new ChildBean());
+		Object clone1 = factory.newDecoder(new ByteArrayInputStream(data)).readAny();
+		Object clone2 = factory.newDecoder(new ByteArrayInputStream(data)).readAny();
+		Assert.assertEquals(clone1, clone2);
+	}
+	
 	private Object encodeDecode(Object value, int expectedSize) throws IOException {
 		byte[] data = encode(value);
 		Object clone = decode(data);
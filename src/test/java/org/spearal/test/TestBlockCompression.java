@@ -0,0 +1,292 @@
+/**
+ * == @Spearal ==>
+ * 
+ * Copyright (C) 2014 Franck WOLFF & William DRAI (http://www.spearal.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spearal.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.Deflater;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.spearal.DefaultSpearalFactory;
+import org.spearal.PooledSpearalFactory;
+import org.spearal.SpearalByteArrayEncoder;
+import org.spearal.SpearalDecoder;
+import org.spearal.SpearalEncoder;
+import org.spearal.SpearalFactory;
+import org.spearal.SpearalFramedDecoder;
+import org.spearal.SpearalFramedEncoder;
+import org.spearal.SpearalReader;
+import org.spearal.SpearalReader.Event;
+import org.spearal.impl.io.DeflateBlockCodec;
+import org.spearal.test.model.SimpleBean;
+
+/**
+ * @author Franck WOLFF
+ */
+public class TestBlockCompression extends AbstractSpearalTestUnit {
+
+	@Before
+	public void setUp() throws Exception {
+		// printStream = System.out;
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		printStream = NULL_PRINT_STREAM;
+	}
+	
+	@Test
+	public void testCompressed() throws IOException {
+		List<SimpleBean> beans = new ArrayList<SimpleBean>();
+		for (int i = 0; i < 500; i++)
+			beans.add(new SimpleBean(i % 2 == 0, i % 10, 1.5, "value" + (i % 5)));
+		
+		byte[] plain = encode(beans);
+		byte[] compressed = encode(newCompressingFactory(), beans);
+		Assert.assertTrue(compressed.length < plain.length / 2);
+		
+		Assert.assertEquals(beans, decode(newCompressingFactory(), compressed, null));
+		
+		SpearalReader reader = newCompressingFactory().newReader(new ByteArrayInputStream(compressed));
+		int count = 0;
+		for (Event event = reader.next(); event != Event.END_OF_STREAM; event = reader.next()) {
+			if (event == Event.BEAN_START)
+				count++;
+		}
+		Assert.assertEquals(beans.size(), count);
+	}
+	
+	@Test
+	public void testSmallAndIncompressible() throws IOException {
+		SpearalFactory factory = newCompressingFactory();
+		
+		byte[] plain = encode("abc");
+		byte[] encoded = encode(factory, "abc");
+		Assert.assertEquals(plain.length + 1, encoded.length);
+		Assert.assertEquals("abc", decode(factory, encoded, null));
+		
+		byte[] random = new byte[10000];
+		new Random(7).nextBytes(random);
+		plain = encode(random);
+		encoded = encode(factory, random);
+		Assert.assertTrue(encoded.length <= plain.length + 8);
+		Assert.assertTrue(Arrays.equals(random, (byte[])decode(factory, encoded, null)));
+	}
+	
+	@Test
+	public void testUnbufferedInput() throws IOException {
+		SpearalFactory factory = newCompressingFactory();
+		
+		List<Object> values = new ArrayList<Object>();
+		for (int i = 0; i < 500; i++)
+			values.add(new SimpleBean(i % 2 == 0, i % 10, 1.5, "value" + (i % 5)));
+		byte[] random = new byte[10000];
+		new Random(7).nextBytes(random);
+		values.add(random);
+		byte[] encoded = encode(factory, values);
+		
+		// Block headers must not be read from the underlying stream one byte at a time.
+		final int[] singleReads = new int[1];
+		ByteArrayInputStream in = new ByteArrayInputStream(encoded) {
+			@Override
+			public synchronized int read() {
+				singleReads[0]++;
+				return super.read();
+			}
+		};
+		List<?> copy = (List<?>)factory.newDecoder(in).readAny();
+		Assert.assertEquals(values.subList(0, 500), copy.subList(0, 500));
+		Assert.assertTrue(Arrays.equals(random, (byte[])copy.get(500)));
+		Assert.assertEquals(0, singleReads[0]);
+	}
+	
+	@Test
+	public void testByteBuffer() throws IOException {
+		SpearalFactory factory = newCompressingFactory();
+		
+		char[] chars = new char[2000];
+		Arrays.fill(chars, 'a');
+		String value = new String(chars);
+		
+		ByteBuffer buffer = ByteBuffer.allocate(4096);
+		SpearalEncoder encoder = factory.newByteBufferEncoder(buffer);
+		encoder.writeAny(value);
+		encoder.writeAny(value + "b");
+		buffer.flip();
+		Assert.assertTrue(buffer.remaining() < 1000);
+		
+		SpearalDecoder decoder = factory.newDecoder(buffer);
+		Assert.assertEquals(value, decoder.readAny());
+		Assert.assertEquals(value + "b", decoder.readAny());
+	}
+	
+	@Test
+	public void testEntryPoints() throws IOException {
+		testEntryPoints(newCompressingFactory());
+		
+		PooledSpearalFactory pooled = new PooledSpearalFactory();
+		pooled.getContext().configure(new DeflateBlockCodec());
+		testEntryPoints(pooled);
+	}
+	
+	private void testEntryPoints(SpearalFactory factory) throws IOException {
+		List<SimpleBean> beans = new ArrayList<SimpleBean>();
+		for (int i = 0; i < 200; i++)
+			beans.add(new SimpleBean(i % 2 == 0, i % 10, 1.5, "value" + (i % 5)));
+		byte[] plain = encode(beans);
+		
+		List<byte[]> encoded = new ArrayList<byte[]>();
+		
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		factory.newEncoder(baos).writeAny(beans);
+		encoded.add(baos.toByteArray());
+		
+		baos = new ByteArrayOutputStream();
+		factory.newChannelEncoder(Channels.newChannel(baos)).writeAny(beans);
+		encoded.add(baos.toByteArray());
+		
+		ByteBuffer buffer = ByteBuffer.allocate(plain.length);
+		factory.newByteBufferEncoder(buffer).writeAny(beans);
+		buffer.flip();
+		encoded.add(toByteArray(buffer));
+		
+		SpearalByteArrayEncoder encoder = factory.newByteArrayEncoder();
+		encoder.writeAny(beans);
+		encoded.add(encoder.toByteArray());
+		encoded.add(Arrays.copyOf(encoder.getBuffer(), encoder.size()));
+		encoded.add(toByteArray(encoder.toByteBuffer()));
+		baos = new ByteArrayOutputStream();
+		encoder.writeTo(baos);
+		encoded.add(baos.toByteArray());
+		baos = new ByteArrayOutputStream();
+		encoder.writeTo(Channels.newChannel(baos));
+		encoded.add(baos.toByteArray());
+		
+		for (byte[] bytes : encoded) {
+			Assert.assertTrue(bytes.length < plain.length / 2);
+			
+			Assert.assertEquals(beans, factory.newDecoder(new ByteArrayInputStream(bytes)).readAny());
+			
+			byte[] slice = new byte[bytes.length + 2];
+			System.arraycopy(bytes, 0, slice, 1, bytes.length);
+			Assert.assertEquals(beans, factory.newDecoder(slice, 1, bytes.length).readAny());
+			
+			Assert.assertEquals(beans, factory.newDecoder(ByteBuffer.wrap(slice, 1, bytes.length)).readAny());
+			
+			ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+			direct.put(bytes);
+			direct.flip();
+			Assert.assertEquals(beans, factory.newDecoder(direct).readAny());
+		}
+	}
+	
+	@Test
+	public void testPooledDeflaters() throws IOException {
+		SpearalFactory factory = new DefaultSpearalFactory();
+		factory.getContext().configure(new DeflateBlockCodec(Deflater.BEST_SPEED, 64, DeflateBlockCodec.DEFAULT_MAX_BLOCK_SIZE, 1));
+		
+		// Interleaved encoders and decoders share a single pooled Deflater / Inflater.
+		List<byte[]> encoded = new ArrayList<byte[]>();
+		for (int i = 0; i < 20; i++) {
+			char[] chars = new char[500 + i];
+			Arrays.fill(chars, (char)('a' + i));
+			encoded.add(encode(factory, new String(chars)));
+		}
+		for (int i = 0; i < 20; i++) {
+			String value = (String)decode(factory, encoded.get(i), null);
+			Assert.assertEquals(500 + i, value.length());
+			Assert.assertEquals('a' + i, value.charAt(value.length() - 1));
+		}
+	}
+	
+	@Test
+	public void testMaxBlockSize() throws IOException {
+		SpearalFactory factory = new DefaultSpearalFactory();
+		factory.getContext().configure(new DeflateBlockCodec(Deflater.DEFAULT_COMPRESSION, 64, 1000, 1));
+		
+		// Large writes are split into blocks of 1000 bytes at most.
+		byte[] large = new byte[10000];
+		for (int i = 0; i < large.length; i++)
+			large[i] = (byte)(i % 7);
+		byte[] encoded = encode(factory, large);
+		Assert.assertTrue(Arrays.equals(large, (byte[])decode(factory, encoded, null)));
+		
+		byte[] random = new byte[10000];
+		new Random(7).nextBytes(random);
+		encoded = encode(factory, random);
+		Assert.assertTrue(Arrays.equals(random, (byte[])decode(factory, encoded, null)));
+		
+		// Forged headers: compressed block of 1001 bytes, then 2 bytes inflating to ~256MB.
+		byte[][] forged = {
+			{ (byte)0xd3, 0x0f, 0x01, 0x0a },
+			{ 0x05, 0x01, (byte)0x80, (byte)0x80, (byte)0x80, (byte)0x80, 0x01, 0x00, 0x00 }
+		};
+		for (byte[] bytes : forged) {
+			try {
+				decode(factory, bytes, null);
+				Assert.fail("Should have rejected a block larger than 1000 bytes");
+			}
+			catch (IOException e) {
+				Assert.assertTrue(e.getMessage().startsWith("Illegal"));
+			}
+		}
+	}
+	
+	@Test
+	public void testFramedSession() throws IOException {
+		SpearalFactory factory = newCompressingFactory();
+		
+		char[] chars = new char[2000];
+		Arrays.fill(chars, 'a');
+		String value = new String(chars);
+		
+		// Frames are never written as blocks.
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		SpearalFramedEncoder encoder = factory.newFramedEncoder(baos);
+		encoder.writeAny(value);
+		encoder.flush();
+		Assert.assertTrue(baos.size() > value.length());
+		
+		SpearalFramedDecoder decoder = factory.newFramedDecoder(new ByteArrayInputStream(baos.toByteArray()));
+		Assert.assertTrue(decoder.nextFrame());
+		Assert.assertEquals(value, decoder.readAny());
+		Assert.assertFalse(decoder.nextFrame());
+	}
+	
+	private static byte[] toByteArray(ByteBuffer buffer) {
+		byte[] bytes = new byte[buffer.remaining()];
+		buffer.duplicate().get(bytes);
+		return bytes;
+	}
+	
+	private static SpearalFactory newCompressingFactory() {
+		SpearalFactory factory = new DefaultSpearalFactory();
+		factory.getContext().configure(new DeflateBlockCodec());
+		return factory;
+	}
+}
@@ -0,0 +1,97 @@
+/**
+ * == @Spearal ==>
+ * 
+ * Copyright (C) 2014 Franck WOLFF & William DRAI (http://www.spearal.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spearal.test;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.spearal.DefaultSpearalFactory;
+import org.spearal.SpearalDecoder;
+import org.spearal.SpearalFactory;
+import org.spearal.test.model.SimpleBean;
+
+/**
+ * @author Franck WOLFF
+ */
+public class TestByteArrayDecoder extends AbstractSpearalTestUnit {
+
+	@Test
+	public void testSlice() throws IOException {
+		SpearalFactory factory = new DefaultSpearalFactory();
+		List<Object> value = newValue();
+		byte[] bytes = encode(factory, value);
+		
+		byte[] slice = new byte[bytes.length + 10];
+		System.arraycopy(bytes, 0, slice, 7, bytes.length);
+		
+		SpearalDecoder decoder = factory.newDecoder(slice, 7, bytes.length);
+		Assert.assertEquals(value, decoder.readAny());
+		
+		decoder.reset(slice, 7, bytes.length);
+		decoder.skipAny();
+		
+		decoder.reset(bytes, 0, bytes.length - 1);
+		try {
+			decoder.readAny();
+			Assert.fail("Should throw an EOFException");
+		}
+		catch (EOFException e) {
+		}
+	}
+
+	@Test
+	public void testByteBuffer() throws IOException {
+		SpearalFactory factory = new DefaultSpearalFactory();
+		List<Object> value = newValue();
+		byte[] bytes = encode(factory, value);
+		
+		ByteBuffer heap = ByteBuffer.allocate(bytes.length + 3);
+		heap.position(3);
+		heap.put(bytes);
+		heap.position(3);
+		Assert.assertEquals(value, factory.newDecoder(heap).readAny());
+		Assert.assertEquals(3, heap.position());
+		
+		ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+		direct.put(bytes);
+		direct.flip();
+		Assert.assertEquals(value, factory.newDecoder(direct).readAny());
+		Assert.assertEquals(0, direct.position());
+	}
+	
+	private static List<Object> newValue() {
+		char[] chars = new char[3000];
+		Arrays.fill(chars, '\u00e9');
+		
+		List<Object> value = new ArrayList<Object>();
+		value.add("abc");
+		value.add(new String(chars));
+		value.add(new BigDecimal("-1234567890.0987654321E-200"));
+		value.add(Long.valueOf(Long.MIN_VALUE));
+		value.add(new SimpleBean(true, 3, 5.09, "abc"));
+		value.add("abc");
+		return value;
+	}
+}
@@ -0,0 +1,124 @@
+/**
+ * == @Spearal ==>
+ * 
+ * Copyright (C) 2014 Franck WOLFF & William DRAI (http://www.spearal.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spearal.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.spearal.DefaultSpearalFactory;
+import org.spearal.SpearalByteArrayEncoder;
+import org.spearal.SpearalEncoder;
+import org.spearal.SpearalFactory;
+import org.spearal.test.model.SimpleBean;
+
+/**
+ * @author Franck WOLFF
+ */
+public class TestByteArrayEncoder extends AbstractSpearalTestUnit {
+
+	@Test
+	public void testByteArray() throws IOException {
+		SpearalFactory factory = new DefaultSpearalFactory();
+		List<Object> value = newValue();
+		byte[] expected = encode(factory, value);
+		
+		SpearalByteArrayEncoder encoder = factory.newByteArrayEncoder();
+		encoder.writeAny(value);
+		
+		Assert.assertEquals(expected.length, encoder.size());
+		Assert.assertArrayEquals(expected, encoder.toByteArray());
+		Assert.assertEquals(expected.length, encoder.toByteBuffer().remaining());
+		Assert.assertArrayEquals(expected, encode(factory, factory.newDecoder(encoder.getBuffer(), 0, encoder.size()).readAny()));
+		
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		encoder.writeTo(baos);
+		Assert.assertArrayEquals(expected, baos.toByteArray());
+		
+		baos.reset();
+		encoder.writeTo(Channels.newChannel(baos));
+		Assert.assertArrayEquals(expected, baos.toByteArray());
+		
+		encoder.reset(null);
+		Assert.assertEquals(0, encoder.size());
+		encoder.writeAny(value);
+		Assert.assertArrayEquals(expected, encoder.toByteArray());
+	}
+
+	@Test
+	public void testByteBuffer() throws IOException {
+		SpearalFactory factory = new DefaultSpearalFactory();
+		List<Object> value = newValue();
+		byte[] expected = encode(factory, value);
+		
+		ByteBuffer buffer = ByteBuffer.allocateDirect(expected.length);
+		factory.newByteBufferEncoder(buffer).writeAny(value);
+		Assert.assertFalse(buffer.hasRemaining());
+		buffer.flip();
+		Assert.assertArrayEquals(expected, encode(factory, factory.newDecoder(buffer).readAny()));
+		
+		buffer.clear();
+		buffer.limit(expected.length - 1);
+		try {
+			factory.newByteBufferEncoder(buffer).writeAny(value);
+			Assert.fail("Should throw an IOException");
+		}
+		catch (IOException e) {
+		}
+	}
+
+	@Test
+	public void testChannel() throws IOException {
+		SpearalFactory factory = new DefaultSpearalFactory();
+		List<Object> value = newValue();
+		byte[] expected = encode(factory, value);
+		
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		SpearalEncoder encoder = factory.newChannelEncoder(Channels.newChannel(baos));
+		encoder.writeAny(value);
+		Assert.assertArrayEquals(expected, baos.toByteArray());
+	}
+	
+	private static List<Object> newValue() {
+		char[] chars = new char[3000];
+		Arrays.fill(chars, '\u00e9');
+		
+		byte[] bytes = new byte[5000];
+		Arrays.fill(bytes, (byte)7);
+		
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 3000; i++)
+			sb.append(i % 10);
+		
+		List<Object> value = new ArrayList<Object>();
+		value.add("abc");
+		value.add(new String(chars));
+		value.add(new BigInteger(sb.toString()));
+		value.add(bytes);
+		value.add(new SimpleBean(true, 3, 5.09, "abc"));
+		value.add("abc");
+		return value;
+	}
+}
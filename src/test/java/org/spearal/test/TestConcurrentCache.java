@@ -0,0 +1,307 @@
+/**
+ * == @Spearal ==>
+ * 
+ * Copyright (C) 2014 Franck WOLFF & William DRAI (http://www.spearal.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spearal.test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.spearal.SpearalContext;
+import org.spearal.impl.cache.AnyMap.ValueProvider;
+import org.spearal.impl.cache.BoundedConcurrentMap;
+import org.spearal.impl.cache.ConcurrentAnyMap;
+import org.spearal.impl.cache.ConcurrentDualIdentityMap;
+import org.spearal.impl.cache.DualIdentityMap;
+
+/**
+ * @author Franck WOLFF
+ */
+public class TestConcurrentCache extends AbstractSpearalTestUnit {
+
+	private static final int THREADS = 8;
+	private static final int KEYS = 2000;
+
+	@Test
+	public void testEquality() throws Exception {
+		final AtomicInteger calls = new AtomicInteger();
+		final ConcurrentAnyMap<Integer, Object, String> map = new ConcurrentAnyMap<Integer, Object, String>(false,
+			new ValueProvider<Integer, Object, String>() {
+				@Override
+				public String createValue(SpearalContext context, Integer key, Object unused) {
+					calls.incrementAndGet();
+					return "v" + key;
+				}
+			}
+		);
+		
+		runConcurrently(new Callable<Void>() {
+			@Override
+			public Void call() throws Exception {
+				for (int i = 0; i < KEYS; i++) {
+					Integer key = Integer.valueOf(i);
+					Assert.assertEquals("v" + i, map.getOrPutIfAbsent(null, key));
+				}
+				return null;
+			}
+		});
+		
+		Assert.assertEquals(KEYS, map.size());
+		Assert.assertEquals(KEYS, calls.get());
+		for (int i = 0; i < KEYS; i++)
+			Assert.assertEquals("v" + i, map.get(new Integer(i)));
+		Assert.assertNull(map.get(Integer.valueOf(KEYS)));
+	}
+
+	@Test
+	public void testIdentity() throws Exception {
+		final Object[] keys = new Object[KEYS];
+		for (int i = 0; i < KEYS; i++)
+			keys[i] = new Object();
+		
+		final AtomicInteger calls = new AtomicInteger();
+		final ConcurrentAnyMap<Object, Integer, Integer> map = new ConcurrentAnyMap<Object, Integer, Integer>(true,
+			new ValueProvider<Object, Integer, Integer>() {
+				@Override
+				public Integer createValue(SpearalContext context, Object key, Integer param) {
+					calls.incrementAndGet();
+					return param;
+				}
+			}
+		);
+		
+		runConcurrently(new Callable<Void>() {
+			@Override
+			public Void call() throws Exception {
+				for (int i = KEYS - 1; i >= 0; i--)
+					Assert.assertEquals(Integer.valueOf(i), map.getOrPutIfAbsent(null, keys[i], Integer.valueOf(i)));
+				return null;
+			}
+		});
+		
+		Assert.assertEquals(KEYS, map.size());
+		Assert.assertEquals(KEYS, calls.get());
+		Assert.assertNull(map.get(new Object()));
+	}
+
+	@Test
+	public void testDualIdentity() throws Exception {
+		final Class<?>[] classes = { String.class, Integer.class, Long.class, Double.class };
+		final Object[] keys = new Object[KEYS / 4];
+		for (int i = 0; i < keys.length; i++)
+			keys[i] = new Object();
+		
+		final AtomicInteger calls = new AtomicInteger();
+		final ConcurrentDualIdentityMap<Class<?>, Object, String> map = new ConcurrentDualIdentityMap<Class<?>, Object, String>(
+			new DualIdentityMap.ValueProvider<Class<?>, Object, String>() {
+				@Override
+				public String createValue(SpearalContext context, Class<?> key1, Object key2) {
+					calls.incrementAndGet();
+					return key1.getSimpleName() + System.identityHashCode(key2);
+				}
+			}
+		);
+		
+		runConcurrently(new Callable<Void>() {
+			@Override
+			public Void call() throws Exception {
+				for (Object key : keys) {
+					for (Class<?> cls : classes)
+						Assert.assertEquals(cls.getSimpleName() + System.identityHashCode(key), map.getOrPutIfAbsent(null, cls, key));
+				}
+				return null;
+			}
+		});
+		
+		Assert.assertEquals(keys.length * classes.length, map.size());
+		Assert.assertEquals(keys.length * classes.length, calls.get());
+		Assert.assertNull(map.get(String.class, new Object()));
+	}
+	
+	@Test
+	public void testParallelMisses() throws Exception {
+		final CountDownLatch slowStarted = new CountDownLatch(1);
+		final CountDownLatch fastDone = new CountDownLatch(1);
+		final ConcurrentAnyMap<Integer, Object, String> map = new ConcurrentAnyMap<Integer, Object, String>(false,
+			new ValueProvider<Integer, Object, String>() {
+				@Override
+				public String createValue(SpearalContext context, Integer key, Object unused) {
+					if (key.intValue() == 0) {
+						// A slow creation must not block misses on other keys.
+						slowStarted.countDown();
+						try {
+							if (!fastDone.await(10, TimeUnit.SECONDS))
+								return "timeout";
+						}
+						catch (InterruptedException e) {
+							throw new RuntimeException(e);
+						}
+					}
+					return "v" + key;
+				}
+			}
+		);
+		
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Future<String> slow = executor.submit(new Callable<String>() {
+				@Override
+				public String call() throws Exception {
+					return map.getOrPutIfAbsent(null, Integer.valueOf(0));
+				}
+			});
+			slowStarted.await();
+			Assert.assertEquals("v1", map.getOrPutIfAbsent(null, Integer.valueOf(1)));
+			fastDone.countDown();
+			Assert.assertEquals("v0", slow.get());
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+	
+	@Test
+	public void testCrossDependentMisses() throws Exception {
+		final CountDownLatch bothStarted = new CountDownLatch(2);
+		final AtomicReference<ConcurrentAnyMap<Integer, Object, String>> map =
+			new AtomicReference<ConcurrentAnyMap<Integer, Object, String>>();
+		final AtomicInteger calls = new AtomicInteger();
+		map.set(new ConcurrentAnyMap<Integer, Object, String>(false,
+			new ValueProvider<Integer, Object, String>() {
+				@Override
+				public String createValue(SpearalContext context, Integer key, Object unused) {
+					// Keys 0 and 1 need each other: each creator ends up waiting for the other one.
+					if (calls.incrementAndGet() <= 2) {
+						bothStarted.countDown();
+						try {
+							bothStarted.await();
+						}
+						catch (InterruptedException e) {
+							throw new RuntimeException(e);
+						}
+						return "v" + key + map.get().getOrPutIfAbsent(null, Integer.valueOf(1 - key.intValue()));
+					}
+					return "v" + key;
+				}
+			}
+		));
+		
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			List<Future<String>> futures = new ArrayList<Future<String>>(2);
+			for (int i = 0; i < 2; i++) {
+				final Integer key = Integer.valueOf(i);
+				futures.add(executor.submit(new Callable<String>() {
+					@Override
+					public String call() throws Exception {
+						return map.get().getOrPutIfAbsent(null, key);
+					}
+				}));
+			}
+			for (Future<String> future : futures)
+				Assert.assertNotNull(future.get(10, TimeUnit.SECONDS));
+			Assert.assertEquals(2, map.get().size());
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+	
+	@Test
+	public void testFailedCreation() throws Exception {
+		final AtomicInteger calls = new AtomicInteger();
+		final ConcurrentAnyMap<Integer, Object, String> map = new ConcurrentAnyMap<Integer, Object, String>(false,
+			new ValueProvider<Integer, Object, String>() {
+				@Override
+				public String createValue(SpearalContext context, Integer key, Object unused) {
+					if (calls.incrementAndGet() == 1)
+						throw new IllegalStateException("first call");
+					return "v" + key;
+				}
+			}
+		);
+		
+		try {
+			map.getOrPutIfAbsent(null, Integer.valueOf(0));
+			Assert.fail("Should throw an IllegalStateException");
+		}
+		catch (IllegalStateException e) {
+		}
+		Assert.assertEquals(0, map.size());
+		Assert.assertEquals("v0", map.getOrPutIfAbsent(null, Integer.valueOf(0)));
+	}
+	
+	@Test
+	public void testBoundedEviction() throws Exception {
+		final int maxSize = 256;
+		final AtomicInteger calls = new AtomicInteger();
+		final BoundedConcurrentMap<Integer, Object, String> map = new BoundedConcurrentMap<Integer, Object, String>(maxSize,
+			new ValueProvider<Integer, Object, String>() {
+				@Override
+				public String createValue(SpearalContext context, Integer key, Object unused) {
+					calls.incrementAndGet();
+					return "v" + key;
+				}
+			}
+		);
+		
+		for (int i = 0; i < maxSize; i++)
+			map.getOrPutIfAbsent(null, Integer.valueOf(i), null);
+		Assert.assertEquals(maxSize, map.size());
+		
+		for (int i = maxSize; i < maxSize * 4; i++) {
+			Assert.assertEquals("v" + i, map.getOrPutIfAbsent(null, Integer.valueOf(i), null));
+			Assert.assertTrue(map.size() <= maxSize);
+			// Entries are evicted in small batches, never all at once.
+			Assert.assertTrue(map.size() > maxSize - 8);
+		}
+		Assert.assertEquals(maxSize * 4, calls.get());
+	}
+	
+	private static void runConcurrently(final Callable<Void> task) throws Exception {
+		final CountDownLatch start = new CountDownLatch(1);
+		
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		try {
+			List<Future<Void>> futures = new ArrayList<Future<Void>>(THREADS);
+			for (int i = 0; i < THREADS; i++) {
+				futures.add(executor.submit(new Callable<Void>() {
+					@Override
+					public Void call() throws Exception {
+						start.await();
+						return task.call();
+					}
+				}));
+			}
+			start.countDown();
+			for (Future<Void> future : futures)
+				future.get();
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+}
@@ -0,0 +1,153 @@
+/**
+ * == @Spearal ==>
+ * 
+ * Copyright (C) 2014 Franck WOLFF & William DRAI (http://www.spearal.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spearal.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.spearal.DefaultSpearalFactory;
+import org.spearal.SpearalFactory;
+import org.spearal.SpearalFramedDecoder;
+import org.spearal.SpearalFramedEncoder;
+import org.spearal.test.model.SimpleBean;
+
+/**
+ * @author Franck WOLFF
+ */
+public class TestFramedSession extends AbstractSpearalTestUnit {
+
+	@Before
+	public void setUp() throws Exception {
+		// printStream = System.out;
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		printStream = NULL_PRINT_STREAM;
+	}
+	
+	@Test
+	public void testFrames() throws IOException {
+		SpearalFactory factory = new DefaultSpearalFactory();
+		
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		SpearalFramedEncoder encoder = factory.newFramedEncoder(baos);
+		
+		SimpleBean bean = new SimpleBean(true, 1, 5.09, "abc");
+		encoder.writeAny(bean);
+		encoder.writeAny(bean);
+		encoder.flush();
+		int first = baos.size();
+		
+		encoder.flush();
+		Assert.assertEquals(first, baos.size());
+		
+		encoder.writeAny(new SimpleBean(false, 2, 6.09, "abc"));
+		encoder.flush();
+		int second = baos.size() - first;
+		
+		// The class description and strings are references in the second frame.
+		Assert.assertTrue(second < encode(new SimpleBean(false, 2, 6.09, "abc")).length / 2);
+		
+		char[] chars = new char[5000];
+		Arrays.fill(chars, 'x');
+		String large = new String(chars);
+		encoder.writeAny(large);
+		encoder.flush();
+		
+		SpearalFramedDecoder decoder = factory.newFramedDecoder(new ByteArrayInputStream(baos.toByteArray()));
+		Assert.assertTrue(decoder.nextFrame());
+		Object value1 = decoder.readAny();
+		Assert.assertEquals(bean, value1);
+		Assert.assertFalse(decoder.isEndOfFrame());
+		Assert.assertSame(value1, decoder.readAny());
+		Assert.assertTrue(decoder.isEndOfFrame());
+		
+		Assert.assertTrue(decoder.nextFrame());
+		Assert.assertEquals(new SimpleBean(false, 2, 6.09, "abc"), decoder.readAny());
+		Assert.assertTrue(decoder.isEndOfFrame());
+		
+		Assert.assertTrue(decoder.nextFrame());
+		Assert.assertEquals(large, decoder.readAny());
+		
+		Assert.assertFalse(decoder.nextFrame());
+	}
+	
+	@Test
+	public void testReferencesWindow() throws IOException {
+		SpearalFactory factory = new DefaultSpearalFactory();
+		
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		SpearalFramedEncoder encoder = factory.newFramedEncoder(baos);
+		encoder.setReferencesWindow(4);
+		for (int i = 0; i < 20; i++) {
+			encoder.writeAny(new SimpleBean(true, i, 5.09, "abc" + (i % 3)));
+			encoder.flush();
+		}
+		
+		SpearalFramedDecoder decoder = factory.newFramedDecoder(new ByteArrayInputStream(baos.toByteArray()));
+		for (int i = 0; i < 20; i++) {
+			Assert.assertTrue(decoder.nextFrame());
+			Assert.assertEquals(new SimpleBean(true, i, 5.09, "abc" + (i % 3)), decoder.readAny());
+			Assert.assertTrue(decoder.isEndOfFrame());
+		}
+		Assert.assertFalse(decoder.nextFrame());
+	}
+	
+	@Test
+	public void testMaxFrameSize() throws IOException {
+		SpearalFactory factory = new DefaultSpearalFactory();
+		
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		SpearalFramedEncoder encoder = factory.newFramedEncoder(baos);
+		encoder.writeAny("abc");
+		encoder.flush();
+		char[] chars = new char[200];
+		Arrays.fill(chars, 'x');
+		encoder.writeAny(new String(chars));
+		encoder.flush();
+		
+		SpearalFramedDecoder decoder = factory.newFramedDecoder(new ByteArrayInputStream(baos.toByteArray()), 100);
+		Assert.assertTrue(decoder.nextFrame());
+		Assert.assertEquals("abc", decoder.readAny());
+		try {
+			decoder.nextFrame();
+			Assert.fail("Should have rejected a frame larger than 100 bytes");
+		}
+		catch (IOException e) {
+			// expected.
+		}
+		
+		// Forged length (~256MB) without any data.
+		byte[] forged = { (byte)0x80, (byte)0x80, (byte)0x80, (byte)0x80, 0x01 };
+		decoder = factory.newFramedDecoder(new ByteArrayInputStream(forged));
+		try {
+			decoder.nextFrame();
+			Assert.fail("Should have rejected a frame larger than the default maximum");
+		}
+		catch (IOException e) {
+			// expected.
+		}
+	}
+}
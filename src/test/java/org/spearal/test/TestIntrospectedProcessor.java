@@ -0,0 +1,151 @@
+/**
+ * == @Spearal ==>
+ * 
+ * Copyright (C) 2014 Franck WOLFF & William DRAI (http://www.spearal.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spearal.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+import org.spearal.DefaultSpearalFactory;
+import org.spearal.SpearalContext;
+import org.spearal.configuration.PropertyFactory.Property;
+import org.spearal.impl.introspector.IntrospectorImpl;
+import org.spearal.impl.introspector.PropertyTable;
+import org.spearal.processor.IntrospectedProcessor;
+
+/**
+ * @author Franck WOLFF
+ */
+public class TestIntrospectedProcessor extends AbstractSpearalTestUnit {
+	
+	private static final String SOURCE =
+		"package gen;\n" +
+		"import java.util.List;\n" +
+		"import org.spearal.annotation.*;\n" +
+		"@Introspected\n" +
+		"public class GenBean {\n" +
+		"	private static int counter;\n" +
+		"	private transient int cache;\n" +
+		"	@Exclude private String secret;\n" +
+		"	private int age;\n" +
+		"	private String name;\n" +
+		"	private boolean active;\n" +
+		"	private List<String>[] tags;\n" +
+		"	protected long readOnly;\n" +
+		"	public int getAge() { return age; }\n" +
+		"	public void setAge(int age) { this.age = age; }\n" +
+		"	public String getName() { return name; }\n" +
+		"	public void setName(String name) { this.name = name; }\n" +
+		"	public boolean isActive() { return active; }\n" +
+		"	public void setActive(boolean active) { this.active = active; }\n" +
+		"	public List<String>[] getTags() { return tags; }\n" +
+		"	public void setTags(List<String>[] tags) { this.tags = tags; }\n" +
+		"	public long getReadOnly() { return readOnly; }\n" +
+		"	@Include public String getDisplayName() { return name + '#' + age; }\n" +
+		"	@Introspected\n" +
+		"	public static class Inner extends GenBean {\n" +
+		"		private double ratio;\n" +
+		"		private double getRatio() { return ratio; }\n" +
+		"	}\n" +
+		"}\n";
+
+	private File dir;
+	
+	@After
+	public void tearDown() {
+		if (dir != null)
+			deleteRecursively(dir);
+	}
+
+	@Test
+	public void test() throws Exception {
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		Assume.assumeNotNull(compiler);
+		
+		dir = File.createTempFile("spearal", "gen");
+		Assert.assertTrue(dir.delete() && dir.mkdir());
+		
+		JavaFileObject source = new SimpleJavaFileObject(URI.create("string:///gen/GenBean.java"), JavaFileObject.Kind.SOURCE) {
+			@Override
+			public CharSequence getCharContent(boolean ignoreEncodingErrors) throws IOException {
+				return SOURCE;
+			}
+		};
+		List<String> options = Arrays.asList(
+			"-d", dir.getPath(),
+			"-classpath", System.getProperty("java.class.path"),
+			"-processor", IntrospectedProcessor.class.getName()
+		);
+		StringWriter output = new StringWriter();
+		Assert.assertTrue(output.toString(), compiler.getTask(output, null, null, options, null, Arrays.asList(source)).call());
+		
+		URLClassLoader loader = new URLClassLoader(new URL[] { dir.toURI().toURL() }, getClass().getClassLoader());
+		Class<?> genBeanClass = loader.loadClass("gen.GenBean");
+		Class<?> innerClass = loader.loadClass("gen.GenBean$Inner");
+		
+		SpearalContext context = new DefaultSpearalFactory().getContext();
+		ReflectionIntrospector introspector = new ReflectionIntrospector();
+		
+		for (Class<?> cls : new Class<?>[] { genBeanClass, innerClass }) {
+			PropertyTable table = PropertyTable.forClass(cls);
+			Assert.assertNotNull(table);
+			
+			Property[] generated = table.createProperties(context);
+			Property[] reflected = introspector.introspectDeclaredProperties(context, cls);
+			
+			Assert.assertEquals(reflected.length, generated.length);
+			for (int i = 0; i < reflected.length; i++) {
+				Assert.assertEquals(reflected[i].getName(), generated[i].getName());
+				Assert.assertEquals(reflected[i].getField(), generated[i].getField());
+				Assert.assertEquals(reflected[i].getGetter(), generated[i].getGetter());
+				Assert.assertEquals(reflected[i].getSetter(), generated[i].getSetter());
+			}
+		}
+
+		Property[] properties = context.getProperties(innerClass);
+		String[] names = new String[properties.length];
+		for (int i = 0; i < properties.length; i++)
+			names[i] = properties[i].getName();
+		Assert.assertArrayEquals(new String[] { "active", "age", "displayName", "name", "readOnly", "tags", "ratio" }, names);
+		Assert.assertNull(properties[6].getGetter());
+		Assert.assertNull(properties[4].getSetter());
+		Assert.assertNull(properties[2].getField());
+	}
+	
+	private static class ReflectionIntrospector extends IntrospectorImpl {
+
+		@Override
+		public Property[] introspectDeclaredProperties(SpearalContext context, Class<?> cls) {
+			return super.introspectDeclaredProperties(context, cls);
+		}
+	}
+}
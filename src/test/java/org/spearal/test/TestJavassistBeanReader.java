@@ -0,0 +1,253 @@
+/**
+ * == @Spearal ==>
+ * 
+ * Copyright (C) 2014 Franck WOLFF & William DRAI (http://www.spearal.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spearal.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.spearal.DefaultSpearalFactory;
+import org.spearal.SpearalContext;
+import org.spearal.SpearalEncoder;
+import org.spearal.SpearalFactory;
+import org.spearal.configuration.TypeInstantiatorProvider;
+import org.spearal.configuration.PartialObjectFactory.PartialObjectProxy;
+import org.spearal.configuration.PartialObjectFactory.UndefinedPropertyException;
+import org.spearal.impl.SpearalContextImpl;
+import org.spearal.impl.descriptor.ClassDescriptor;
+import org.spearal.impl.property.JavassistBeanReaderFactory;
+import org.spearal.impl.util.ClassDescriptionUtil;
+import org.spearal.test.model.ChildBean;
+import org.spearal.test.model.FieldsBean;
+import org.spearal.test.model.SimpleBean;
+import org.spearal.test.model.SimpleEnum;
+
+/**
+ * @author Franck WOLFF
+ */
+public class TestJavassistBeanReader extends AbstractSpearalTestUnit {
+
+	@Before
+	public void setUp() throws Exception {
+		// printStream = System.out;
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		printStream = NULL_PRINT_STREAM;
+	}
+	
+	@SuppressWarnings("boxing")
+	@Test
+	public void test() throws IOException {
+		SpearalFactory factory = newJavassistFactory();
+		
+		FieldsBean bean = new FieldsBean();
+		encodeDecode(factory, bean);
+		
+		String description = ClassDescriptionUtil.createAliasedDescription(
+			factory.getContext(), FieldsBean.class, factory.getContext().getProperties(FieldsBean.class)
+		);
+		ClassDescriptor descriptor = ((SpearalContextImpl)factory.getContext()).getClassDescriptor(description, null);
+		Assert.assertNotNull(descriptor.reader);
+		Assert.assertSame(descriptor.reader, factory.getContext().createBeanReader(FieldsBean.class, descriptor.properties));
+		
+		bean.booleanValue = true;
+		bean.byteValue = -3;
+		bean.shortValue = 1024;
+		bean.intValue = Integer.MIN_VALUE;
+		bean.longValue = Long.MAX_VALUE;
+		bean.floatValue = 0.5f;
+		bean.doubleValue = -3.001;
+		bean.charValue = 'z';
+		bean.boxedBoolean = Boolean.FALSE;
+		bean.boxedInt = 56;
+		bean.boxedLong = -1L;
+		bean.boxedDouble = 1e200;
+		bean.boxedFloat = -2.5f;
+		bean.setStringValue("abc");
+		bean.setEnumValue(SimpleEnum.BC);
+		bean.setListValue(new ArrayList<String>());
+		bean.getListValue().add("abc");
+		bean.setMapValue(new HashMap<String, Integer>());
+		bean.getMapValue().put("def", 5);
+		bean.setBeanValue(new SimpleBean(true, 3, 5.09, "abc"));
+		encodeDecode(factory, bean);
+	}
+	
+	@Test
+	public void testPartial() throws IOException {
+		ChildBean bean = new ChildBean(56, "parent", false, 3.001);
+		bean.getSimpleBeans().add(new SimpleBean(true, 3, 5.09, "abc"));
+		encodeDecode(newJavassistFactory(), bean);
+		
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		SpearalEncoder encoder = new DefaultSpearalFactory().newEncoder(baos);
+		encoder.getPropertyFilter().add(ChildBean.class, "childBooleanProperty", "parentStringProperty");
+		encoder.writeAny(bean);
+		
+		ChildBean result = (ChildBean)decode(newJavassistFactory(), baos.toByteArray(), null);
+		Assert.assertTrue(result instanceof PartialObjectProxy);
+		Assert.assertEquals(bean.isChildBooleanProperty(), result.isChildBooleanProperty());
+		Assert.assertEquals(bean.getParentStringProperty(), result.getParentStringProperty());
+		try {
+			result.getChildDoubleProperty();
+			Assert.fail("Should throw an undefined exception");
+		}
+		catch (UndefinedPropertyException e) {
+		}
+	}
+	
+	@Test
+	public void testPrivateFieldSetter() throws IOException {
+		SpearalFactory factory = newJavassistFactory();
+		
+		SetterLogicBean bean = new SetterLogicBean();
+		bean.value = "abc";
+		byte[] data = encode(bean);
+		
+		assertReaderGenerated(factory, SetterLogicBean.class);
+		
+		SetterLogicBean clone = (SetterLogicBean)decode(factory, data, null);
+		Assert.assertEquals("ABC", clone.value);
+		Assert.assertEquals(1, clone.setterCalls);
+		
+		encodeDecode(factory, new SimpleBean(true, 3, 5.09, "abc"));
+		assertReaderGenerated(factory, SimpleBean.class);
+	}
+	
+	@SuppressWarnings("boxing")
+	@Test
+	public void testCollections() throws IOException {
+		SpearalFactory factory = newJavassistFactory();
+		
+		CollectionsBean bean = new CollectionsBean();
+		bean.list.add("abc");
+		bean.setMap(new HashMap<String, Integer>());
+		bean.getMap().put("def", 5);
+		byte[] data = encode(bean);
+		
+		assertReaderGenerated(factory, CollectionsBean.class);
+		
+		CollectionsBean clone = (CollectionsBean)decode(factory, data, null);
+		Assert.assertEquals(bean.list, clone.list);
+		Assert.assertEquals(bean.map, clone.map);
+		// The existing list is refilled, the missing map is set through its setter.
+		Assert.assertEquals(1, clone.setterCalls);
+		
+		bean.setMap(null);
+		clone = (CollectionsBean)decode(factory, encode(bean), null);
+		Assert.assertEquals(bean.list, clone.list);
+		Assert.assertNull(clone.map);
+	}
+	
+	@Test
+	public void testTypeInstantiator() throws IOException {
+		SpearalFactory factory = newJavassistFactory();
+		
+		final int[] instantiations = new int[1];
+		factory.getContext().configure(new TypeInstantiatorProvider() {
+			@Override
+			public TypeInstantiator getInstantiator(Type type) {
+				if (type != SimpleBean.class)
+					return null;
+				return new TypeInstantiator() {
+					@Override
+					public Object instantiate(SpearalContext context, Type type, Object param) {
+						instantiations[0]++;
+						return new SimpleBean();
+					}
+				};
+			}
+		});
+		
+		encodeDecode(factory, new SimpleBean(true, 3, 5.09, "abc"));
+		assertReaderGenerated(factory, SimpleBean.class);
+		Assert.assertEquals(1, instantiations[0]);
+	}
+	
+	public static class SetterLogicBean implements Serializable {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private String value;
+		private transient int setterCalls;
+		
+		public String getValue() {
+			return value;
+		}
+		
+		public void setValue(String value) {
+			this.value = (value != null ? value.toUpperCase() : null);
+			setterCalls++;
+		}
+	}
+	
+	public static class CollectionsBean implements Serializable {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private List<String> list = new ArrayList<String>();
+		private Map<String, Integer> map;
+		private transient int setterCalls;
+		
+		public List<String> getList() {
+			return list;
+		}
+		
+		public void setList(List<String> list) {
+			this.list = list;
+			setterCalls++;
+		}
+		
+		public Map<String, Integer> getMap() {
+			return map;
+		}
+		
+		public void setMap(Map<String, Integer> map) {
+			this.map = map;
+			setterCalls++;
+		}
+	}
+	
+	private static void assertReaderGenerated(SpearalFactory factory, Class<?> cls) {
+		String description = ClassDescriptionUtil.createAliasedDescription(
+			factory.getContext(), cls, factory.getContext().getProperties(cls)
+		);
+		Assert.assertNotNull(((SpearalContextImpl)factory.getContext()).getClassDescriptor(description, null).reader);
+	}
+	
+	private static SpearalFactory newJavassistFactory() {
+		SpearalFactory factory = new DefaultSpearalFactory();
+		factory.getContext().configure(new JavassistBeanReaderFactory());
+		return factory;
+	}
+	
+	private void encodeDecode(SpearalFactory factory, Object value) throws IOException {
+		Assert.assertEquals(value, decode(factory, encode(value), null));
+	}
+}
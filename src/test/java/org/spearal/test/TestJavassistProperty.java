@@ -0,0 +1,260 @@
+/**
+ * == @Spearal ==>
+ * 
+ * Copyright (C) 2014 Franck WOLFF & William DRAI (http://www.spearal.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spearal.test;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.spearal.DefaultSpearalFactory;
+import org.spearal.SpearalFactory;
+import org.spearal.SpearalPropertyFilter;
+import org.spearal.configuration.CoderProvider;
+import org.spearal.configuration.PropertyFactory.Property;
+import org.spearal.impl.ExtendedSpearalEncoder;
+import org.spearal.impl.property.BeanWriter;
+import org.spearal.impl.property.JavassistProperty;
+import org.spearal.impl.property.JavassistPropertyFactory;
+import org.spearal.test.model.ChildBean;
+import org.spearal.test.model.FieldsBean;
+import org.spearal.test.model.SimpleBean;
+import org.spearal.test.model.SimpleEnum;
+
+/**
+ * @author Franck WOLFF
+ */
+public class TestJavassistProperty extends AbstractSpearalTestUnit {
+
+	@Before
+	public void setUp() throws Exception {
+		// printStream = System.out;
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		printStream = NULL_PRINT_STREAM;
+	}
+	
+	@SuppressWarnings("boxing")
+	@Test
+	public void test() throws IOException {
+		JavassistPropertyFactory propertyFactory = new JavassistPropertyFactory();
+		SpearalFactory factory = new DefaultSpearalFactory();
+		factory.getContext().configure(propertyFactory);
+		
+		for (Property property : factory.getContext().getProperties(FieldsBean.class)) {
+			Assert.assertTrue(property instanceof JavassistProperty);
+			Assert.assertNotNull(propertyFactory.getWriter(factory.getContext(), FieldsBean.class, ((JavassistProperty)property).getIndex()));
+		}
+		
+		FieldsBean bean = new FieldsBean();
+		encodeDecode(factory, bean);
+		
+		bean.booleanValue = true;
+		bean.byteValue = -3;
+		bean.shortValue = 1024;
+		bean.intValue = Integer.MIN_VALUE;
+		bean.longValue = Long.MAX_VALUE;
+		bean.floatValue = 0.5f;
+		bean.doubleValue = -3.001;
+		bean.charValue = 'z';
+		bean.boxedBoolean = Boolean.FALSE;
+		bean.boxedInt = 56;
+		bean.boxedLong = -1L;
+		bean.boxedDouble = 1e200;
+		bean.boxedFloat = -2.5f;
+		bean.setStringValue("abc");
+		bean.setEnumValue(SimpleEnum.BC);
+		bean.setListValue(new ArrayList<String>());
+		bean.getListValue().add("abc");
+		bean.setMapValue(new HashMap<String, Integer>());
+		bean.getMapValue().put("def", 5);
+		bean.setBeanValue(new SimpleBean(true, 3, 5.09, "abc"));
+		encodeDecode(factory, bean);
+	}
+	
+	@Test
+	public void testBeanGraph() throws IOException {
+		SpearalFactory factory = newJavassistFactory();
+
+		ChildBean bean = new ChildBean(56, "parent", false, 3.001);
+		bean.getSimpleBeans().add(new SimpleBean(true, 3, 5.09, "abc"));
+		bean.getSimpleBeans().add(new SimpleBean(false, -5, -10.09, null));
+		encodeDecode(factory, bean);
+		
+		SpearalFactory defaultFactory = new DefaultSpearalFactory();
+		Assert.assertArrayEquals(
+			encode(defaultFactory, newFilter(defaultFactory), bean),
+			encode(factory, newFilter(factory), bean)
+		);
+	}
+	
+	@Test
+	public void testFieldFirst() throws IOException {
+		SpearalFactory factory = newJavassistFactory();
+		
+		GetterLogicBean bean = new GetterLogicBean();
+		bean.value = "abc";
+		
+		Assert.assertTrue(factory.getContext().getProperties(GetterLogicBean.class)[0] instanceof JavassistProperty);
+		Assert.assertArrayEquals(encode(bean), encode(factory, bean));
+		Assert.assertEquals("abc", ((GetterLogicBean)decode(factory, encode(factory, bean), null)).value);
+	}
+	
+	@Test
+	public void testJavaBean() throws IOException {
+		JavassistPropertyFactory propertyFactory = new JavassistPropertyFactory();
+		SpearalFactory factory = new DefaultSpearalFactory();
+		factory.getContext().configure(propertyFactory);
+		
+		// Private fields with public getters: the generated writer calls the getters.
+		for (Property property : factory.getContext().getProperties(SimpleBean.class)) {
+			Assert.assertTrue(Modifier.isPrivate(property.getField().getModifiers()));
+			Assert.assertTrue(property instanceof JavassistProperty);
+			Assert.assertNotNull(propertyFactory.getWriter(factory.getContext(), SimpleBean.class, ((JavassistProperty)property).getIndex()));
+		}
+		
+		encodeDecode(factory, new SimpleBean(true, -3, 5.09, "abc"));
+		encodeDecode(factory, new SimpleBean(false, 0, 0.0, null));
+	}
+	
+	@Test
+	public void testCustomCoders() throws IOException {
+		SpearalFactory factory = newJavassistFactory();
+		factory.getContext().configure(new UpperCaseCoderProvider());
+		
+		FieldsBean bean = new FieldsBean();
+		bean.setStringValue("abc");
+		bean.boxedInt = Integer.valueOf(3);
+		bean.intValue = 4;
+		bean.shortValue = 5;
+		
+		FieldsBean clone = (FieldsBean)decode(factory, encode(factory, bean), null);
+		Assert.assertEquals("ABC", clone.getStringValue());
+		Assert.assertEquals(Integer.valueOf(-3), clone.boxedInt);
+		Assert.assertEquals(4, clone.intValue);
+		Assert.assertEquals(-5, clone.shortValue);
+	}
+	
+	@Test
+	public void testContexts() throws IOException {
+		JavassistPropertyFactory propertyFactory = new JavassistPropertyFactory();
+		
+		SpearalFactory customFactory = new DefaultSpearalFactory();
+		customFactory.getContext().configure(propertyFactory);
+		customFactory.getContext().configure(new UpperCaseCoderProvider());
+		
+		SpearalFactory factory = new DefaultSpearalFactory();
+		factory.getContext().configure(propertyFactory);
+		
+		// The same properties are written with the coders of each context.
+		SimpleBean bean = new SimpleBean(true, 3, 5.09, "abc");
+		Assert.assertEquals("ABC", ((SimpleBean)decode(customFactory, encode(customFactory, bean), null)).getStringValue());
+		Assert.assertEquals("abc", ((SimpleBean)decode(factory, encode(factory, bean), null)).getStringValue());
+		Assert.assertEquals("ABC", ((SimpleBean)decode(customFactory, encode(customFactory, bean), null)).getStringValue());
+	}
+	
+	@Test
+	public void testGeneratedOncePerContext() throws IOException {
+		JavassistPropertyFactory propertyFactory = new JavassistPropertyFactory();
+		SpearalFactory factory = new DefaultSpearalFactory();
+		factory.getContext().configure(propertyFactory);
+		
+		encode(factory, new FieldsBean());
+		
+		SpearalFactory otherFactory = new DefaultSpearalFactory();
+		otherFactory.getContext().configure(propertyFactory);
+		
+		Property[] properties = factory.getContext().getProperties(FieldsBean.class);
+		Property[] otherProperties = otherFactory.getContext().getProperties(FieldsBean.class);
+		Assert.assertEquals(properties.length, otherProperties.length);
+		for (int i = 0; i < properties.length; i++) {
+			if (properties[i] instanceof JavassistProperty) {
+				Assert.assertSame(properties[i], otherProperties[i]);
+				JavassistProperty property = (JavassistProperty)properties[i];
+				BeanWriter writer = propertyFactory.getWriter(factory.getContext(), property.getDeclaringClass(), property.getIndex());
+				Assert.assertNotNull(writer);
+				Assert.assertSame(writer, propertyFactory.getWriter(factory.getContext(), property.getDeclaringClass(), property.getIndex()));
+				Assert.assertNotSame(writer, propertyFactory.getWriter(otherFactory.getContext(), property.getDeclaringClass(), property.getIndex()));
+			}
+		}
+	}
+	
+	public static class GetterLogicBean implements Serializable {
+		
+		private static final long serialVersionUID = 1L;
+		
+		protected String value;
+		
+		public String getValue() {
+			return (value != null ? value.toUpperCase() : "default");
+		}
+		
+		public void setValue(String value) {
+			this.value = value;
+		}
+	}
+	
+	private static class UpperCaseCoderProvider implements CoderProvider {
+
+		@Override
+		public Coder getCoder(Class<?> valueClass) {
+			if (valueClass == String.class) {
+				return new Coder() {
+					@Override
+					public void encode(ExtendedSpearalEncoder encoder, Object value) throws IOException {
+						encoder.writeString(((String)value).toUpperCase());
+					}
+				};
+			}
+			if (valueClass == Integer.class || valueClass == Short.class) {
+				return new Coder() {
+					@Override
+					public void encode(ExtendedSpearalEncoder encoder, Object value) throws IOException {
+						encoder.writeInt(-((Number)value).intValue());
+					}
+				};
+			}
+			return null;
+		}
+	}
+	
+	private static SpearalFactory newJavassistFactory() {
+		SpearalFactory factory = new DefaultSpearalFactory();
+		factory.getContext().configure(new JavassistPropertyFactory());
+		return factory;
+	}
+	
+	private static SpearalPropertyFilter newFilter(SpearalFactory factory) {
+		SpearalPropertyFilter filter = factory.newEncoder(null).getPropertyFilter();
+		filter.add(ChildBean.class, "childBooleanProperty", "parentStringProperty");
+		return filter;
+	}
+	
+	private void encodeDecode(SpearalFactory factory, Object value) throws IOException {
+		byte[] data = encode(factory, value);
+		Assert.assertArrayEquals(encode(value), data);
+		Assert.assertEquals(value, decode(factory, data, null));
+	}
+}
@@ -0,0 +1,177 @@
+/**
+ * == @Spearal ==>
+ * 
+ * Copyright (C) 2014 Franck WOLFF & William DRAI (http://www.spearal.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spearal.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.spearal.DefaultSpearalFactory;
+import org.spearal.SpearalFactory;
+import org.spearal.SpearalReader;
+import org.spearal.SpearalReader.Event;
+import org.spearal.impl.coder.PackedArrayCoder;
+
+/**
+ * @author Franck WOLFF
+ */
+public class TestPackedArray extends AbstractSpearalTestUnit {
+
+	@Test
+	public void testLongs() throws IOException {
+		SpearalFactory factory = newFactory();
+		
+		long[] value = new long[1000];
+		long timestamp = 1400000000000L;
+		for (int i = 0; i < value.length; i++)
+			value[i] = (timestamp += (i % 7) * 1000);
+		value[0] = Long.MIN_VALUE;
+		value[1] = Long.MAX_VALUE;
+		value[2] = -1L;
+		
+		byte[] data = encode(factory, value);
+		Assert.assertTrue(data.length < encode(value).length);
+		Assert.assertArrayEquals(value, (long[])decode(factory, data, long[].class));
+		Assert.assertArrayEquals(value, (long[])decode(factory, data, null));
+	}
+
+	@Test
+	public void testPrimitives() throws IOException {
+		SpearalFactory factory = newFactory();
+		
+		int[] ints = { 0, 1, -1, Integer.MIN_VALUE, Integer.MAX_VALUE, 300 };
+		Assert.assertArrayEquals(ints, (int[])decode(factory, encode(factory, ints), int[].class));
+		
+		short[] shorts = { 0, 1, -1, Short.MIN_VALUE, Short.MAX_VALUE };
+		Assert.assertArrayEquals(shorts, (short[])decode(factory, encode(factory, shorts), short[].class));
+		
+		double[] doubles = { 0.0, -0.0, 1.5, Double.NaN, Double.MIN_VALUE, Double.NEGATIVE_INFINITY };
+		Assert.assertArrayEquals(doubles, (double[])decode(factory, encode(factory, doubles), double[].class), 0.0);
+		
+		float[] floats = { 0.0f, -3.25f, Float.MAX_VALUE, Float.NaN };
+		Assert.assertArrayEquals(floats, (float[])decode(factory, encode(factory, floats), float[].class), 0.0f);
+		
+		boolean[] booleans = new boolean[13];
+		for (int i = 0; i < booleans.length; i++)
+			booleans[i] = (i % 3 == 0);
+		boolean[] booleansCopy = (boolean[])decode(factory, encode(factory, booleans), boolean[].class);
+		Assert.assertEquals(booleans.length, booleansCopy.length);
+		for (int i = 0; i < booleans.length; i++)
+			Assert.assertEquals(booleans[i], booleansCopy[i]);
+		
+		long[] longs = (long[])decode(factory, encode(factory, ints), long[].class);
+		for (int i = 0; i < ints.length; i++)
+			Assert.assertEquals(ints[i], longs[i]);
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testReferences() throws IOException {
+		SpearalFactory factory = newFactory();
+		
+		double[] doubles = { 1.0, 2.0 };
+		List<Object> value = new ArrayList<Object>();
+		value.add(doubles);
+		value.add(doubles);
+		value.add("end");
+		
+		byte[] data = encode(factory, value);
+		List<Object> copy = (List<Object>)decode(factory, data, null);
+		Assert.assertArrayEquals(doubles, (double[])copy.get(0), 0.0);
+		Assert.assertSame(copy.get(0), copy.get(1));
+		Assert.assertEquals("end", copy.get(2));
+		
+		SpearalReader reader = factory.newReader(new ByteArrayInputStream(data));
+		Assert.assertEquals(Event.COLLECTION_START, reader.next());
+		Assert.assertEquals(Event.PACKED_ARRAY, reader.next());
+		Assert.assertEquals(2, reader.getSize());
+		Assert.assertEquals(Event.PACKED_ARRAY_REFERENCE, reader.next());
+		Assert.assertEquals(1, reader.getIndex());
+		Assert.assertEquals(Event.STRING, reader.next());
+		Assert.assertEquals(Event.COLLECTION_END, reader.next());
+	}
+	
+	@Test
+	public void testLargeArrays() throws IOException {
+		SpearalFactory factory = newFactory();
+		
+		// Larger than the initial capacity used when decoding from a stream.
+		int[] ints = new int[5003];
+		double[] doubles = new double[ints.length];
+		boolean[] booleans = new boolean[ints.length];
+		for (int i = 0; i < ints.length; i++) {
+			ints[i] = i * (i % 2 == 0 ? 31 : -31);
+			doubles[i] = i / 3.0;
+			booleans[i] = (i % 5 == 0);
+		}
+		
+		byte[] data = encode(factory, ints);
+		Assert.assertArrayEquals(ints, (int[])decode(factory, data, null));
+		Assert.assertArrayEquals(ints, (int[])factory.newDecoder(data, 0, data.length).readAny());
+		
+		Assert.assertArrayEquals(doubles, (double[])decode(factory, encode(factory, doubles), null), 0.0);
+		
+		boolean[] booleansCopy = (boolean[])decode(factory, encode(factory, booleans), null);
+		Assert.assertEquals(booleans.length, booleansCopy.length);
+		for (int i = 0; i < booleans.length; i++)
+			Assert.assertEquals(booleans[i], booleansCopy[i]);
+	}
+	
+	@Test
+	public void testMalformedData() throws IOException {
+		SpearalFactory factory = newFactory();
+		
+		// Header, length (1 byte) and packed type of a one element int array.
+		byte[] data = encode(factory, new int[] { 1 });
+		Assert.assertEquals(4, data.length);
+		
+		// An int varint longer than 5 bytes.
+		byte[] malformed = { data[0], data[1], data[2], -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, 0x01 };
+		assertIOException(factory, malformed);
+		
+		// Forged lengths: 0x7fffffff doubles and a negative length.
+		byte[] forged = { (byte)(data[0] | 0x03), 0x7f, -1, -1, -1, 0x03, 0, 0, 0, 0, 0, 0, 0, 0 };
+		assertIOException(factory, forged);
+		forged = new byte[] { (byte)(data[0] | 0x03), -1, -1, -1, -1, 0x00, 0x02 };
+		assertIOException(factory, forged);
+	}
+	
+	private static void assertIOException(SpearalFactory factory, byte[] data) {
+		try {
+			factory.newDecoder(data, 0, data.length).readAny();
+			Assert.fail("Should throw an IOException");
+		}
+		catch (IOException e) {
+		}
+		try {
+			factory.newDecoder(new ByteArrayInputStream(data)).readAny();
+			Assert.fail("Should throw an IOException");
+		}
+		catch (IOException e) {
+		}
+	}
+	
+	private static SpearalFactory newFactory() {
+		SpearalFactory factory = new DefaultSpearalFactory();
+		factory.getContext().configure(new PackedArrayCoder());
+		return factory;
+	}
+}
@@ -21,6 +21,9 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 
 import org.junit.After;
 import org.junit.Assert;
@@ -28,9 +31,12 @@ import org.junit.Before;
 import org.junit.Test;
 import org.spearal.DefaultSpearalFactory;
 import org.spearal.SpearalDecoder;
+import org.spearal.SpearalDecoder.CollectionPathSegment;
+import org.spearal.SpearalDecoder.PathSegment;
 import org.spearal.SpearalEncoder;
 import org.spearal.SpearalFactory;
 import org.spearal.configuration.AliasStrategy;
+import org.spearal.configuration.PartialObjectFactory.ExtendedPartialObjectProxy;
 import org.spearal.configuration.PartialObjectFactory.PartialObjectProxy;
 import org.spearal.configuration.PartialObjectFactory.UndefinedPropertyException;
 import org.spearal.test.model.AliasedAlteredSimpleBean;
@@ -148,6 +154,48 @@ public class TestPartialBean extends AbstractSpearalTestUnit {
 		Assert.assertEquals(123, ((ChildBean)result).getParentIntProperty());
 	}
 
+	@Test
+	public void testUndefine() throws IOException {
+		ChildBean bean = new ChildBean(56, "parent", false, 3.001);
+		
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		SpearalFactory factory = new DefaultSpearalFactory();
+		SpearalEncoder encoder = factory.newEncoder(baos);
+		encoder.getPropertyFilter().add(ChildBean.class, "childDoubleProperty", "parentStringProperty");
+		encoder.writeAny(Arrays.asList(bean, new ChildBean(56, "parent", false, 3.001)));
+		
+		List<?> result = decodeCheckPartial(new DefaultSpearalFactory(), baos.toByteArray(), null);
+		ChildBean child1 = (ChildBean)result.get(0);
+		ChildBean child2 = (ChildBean)result.get(1);
+		PartialObjectProxy partial1 = (PartialObjectProxy)child1;
+		PartialObjectProxy partial2 = (PartialObjectProxy)child2;
+		
+		Assert.assertSame(ChildBean.class, ((ExtendedPartialObjectProxy)partial1).$getActualClass());
+		Assert.assertFalse(partial1.$isDefined("unknownProperty"));
+		Assert.assertFalse(partial1.$undefine("unknownProperty"));
+		
+		Assert.assertTrue(partial1.$undefine("childDoubleProperty"));
+		Assert.assertFalse(partial1.$undefine("childDoubleProperty"));
+		Assert.assertFalse(partial1.$isDefined("childDoubleProperty"));
+		Assert.assertEquals(1, partial1.$getDefinedProperties().length);
+		Assert.assertEquals("parentStringProperty", partial1.$getDefinedProperties()[0].getName());
+		try {
+			child1.getChildDoubleProperty();
+			Assert.fail("Should throw an undefined exception");
+		}
+		catch (UndefinedPropertyException e) {
+		}
+		
+		// Instances decoded with the same description do not share their state.
+		Assert.assertTrue(partial2.$isDefined("childDoubleProperty"));
+		Assert.assertEquals(bean.getChildDoubleProperty(), child2.getChildDoubleProperty(), 0.0);
+		
+		ChildBean copy = decodeCheckPartial(new DefaultSpearalFactory(), encode(child1), null);
+		Assert.assertTrue(copy instanceof PartialObjectProxy);
+		Assert.assertFalse(((PartialObjectProxy)copy).$isDefined("childDoubleProperty"));
+		Assert.assertEquals(bean.getParentStringProperty(), copy.getParentStringProperty());
+	}
+
 	@Test
 	public void testAltered() throws IOException {
 		SimpleBean bean = new SimpleBean(true, 1, 0.1, "blabla");
@@ -190,6 +238,45 @@ public class TestPartialBean extends AbstractSpearalTestUnit {
 			Assert.fail("Not a PartialObjectProxy: " + clientBean);
 	}
 	
+	@Test
+	public void testPartialObjectsPaths() throws IOException {
+		ChildBean bean = new ChildBean(56, "parent", false, 3.001);
+		bean.getSimpleBeans().add(new SimpleBean(true, 3, 5.09, "abc"));
+		bean.getSimpleBeans().add(new SimpleBean(false, -5, -10.09, "def"));
+		
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		SpearalFactory factory = new DefaultSpearalFactory();
+		SpearalEncoder encoder = factory.newEncoder(baos);
+		encoder.getPropertyFilter().add(SimpleBean.class, "stringValue");
+		encoder.writeAny(bean);
+		byte[] bytes = baos.toByteArray();
+		
+		SpearalDecoder decoder = new DefaultSpearalFactory().newDecoder(new ByteArrayInputStream(bytes));
+		// Decode twice with the same decoder: path segments are reused.
+		for (int i = 0; i < 2; i++) {
+			if (i > 0)
+				decoder.reset(new ByteArrayInputStream(bytes));
+			
+			ChildBean result = decoder.readAny(ChildBean.class);
+			Assert.assertFalse(result instanceof PartialObjectProxy);
+			Assert.assertEquals(0, decoder.getPath().segments().size());
+			
+			Map<Object, List<PathSegment>> partialObjects = decoder.getPartialObjectsMap();
+			Assert.assertEquals(2, partialObjects.size());
+			int indexes = 0;
+			for (SimpleBean simpleBean : result.getSimpleBeans()) {
+				Assert.assertTrue(simpleBean instanceof PartialObjectProxy);
+				
+				List<PathSegment> segments = partialObjects.get(simpleBean);
+				Assert.assertEquals(1, segments.size());
+				CollectionPathSegment segment = (CollectionPathSegment)segments.get(0);
+				Assert.assertSame(result.getSimpleBeans(), segment.getCollection());
+				indexes |= (1 << segment.getIndex());
+			}
+			Assert.assertEquals(3, indexes);
+		}
+	}
+	
 	@SuppressWarnings("unchecked")
 	private <T> T decodeCheckPartial(SpearalFactory factory, byte[] bytes, Type targetType) throws IOException {
 		ByteArrayInputStream bais = new ByteArrayInputStream(bytes);
@@ -0,0 +1,138 @@
+/**
+ * == @Spearal ==>
+ * 
+ * Copyright (C) 2014 Franck WOLFF & William DRAI (http://www.spearal.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spearal.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.spearal.PooledSpearalFactory;
+import org.spearal.SpearalByteArrayEncoder;
+import org.spearal.SpearalDecoder;
+import org.spearal.SpearalEncoder;
+import org.spearal.configuration.PartialObjectFactory.PartialObjectProxy;
+import org.spearal.test.model.ChildBean;
+import org.spearal.test.model.SimpleBean;
+
+/**
+ * @author Franck WOLFF
+ */
+public class TestPooledSpearalFactory extends AbstractSpearalTestUnit {
+
+	@Test
+	public void test() throws IOException {
+		PooledSpearalFactory factory = new PooledSpearalFactory();
+		
+		ChildBean bean = new ChildBean(56, "parent", false, 3.001);
+		bean.getSimpleBeans().add(new SimpleBean(true, 3, 5.09, "abc"));
+		bean.getSimpleBeans().add(new SimpleBean(false, -5, -10.09, "abc"));
+		
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		SpearalEncoder encoder = factory.newEncoder(baos);
+		encoder.getPropertyFilter().add(ChildBean.class, "childBooleanProperty");
+		encoder.writeAny(bean);
+		byte[] partialData = baos.toByteArray();
+		factory.release(encoder);
+		
+		baos = new ByteArrayOutputStream();
+		SpearalEncoder encoder2 = factory.newEncoder(baos);
+		Assert.assertSame(encoder, encoder2);
+		encoder2.writeAny(bean);
+		byte[] data = baos.toByteArray();
+		Assert.assertArrayEquals(encode(bean), data);
+		factory.release(encoder2);
+		
+		SpearalDecoder decoder = factory.newDecoder(new ByteArrayInputStream(partialData));
+		Assert.assertTrue(decoder.readAny() instanceof PartialObjectProxy);
+		Assert.assertTrue(decoder.containsPartialObjects());
+		factory.release(decoder);
+		
+		SpearalDecoder decoder2 = factory.newDecoder(new ByteArrayInputStream(data));
+		Assert.assertSame(decoder, decoder2);
+		Assert.assertEquals(bean, decoder2.readAny());
+		Assert.assertFalse(decoder2.containsPartialObjects());
+		
+		Assert.assertNotSame(decoder2, factory.newDecoder(new ByteArrayInputStream(data)));
+	}
+
+	@Test
+	public void testSettingsReset() throws IOException {
+		PooledSpearalFactory factory = new PooledSpearalFactory();
+		
+		SpearalEncoder encoder = factory.newEncoder(new ByteArrayOutputStream());
+		encoder.setTreeMode(true);
+		encoder.setReferencesWindow(10);
+		factory.release(encoder);
+		
+		SpearalEncoder encoder2 = factory.newEncoder(new ByteArrayOutputStream());
+		Assert.assertSame(encoder, encoder2);
+		Assert.assertFalse(encoder2.isTreeMode());
+		Assert.assertEquals(0, encoder2.getReferencesWindow());
+		factory.release(encoder2);
+		
+		SpearalDecoder decoder = factory.newDecoder(new ByteArrayInputStream(new byte[0]));
+		decoder.setTreeMode(true);
+		factory.release(decoder);
+		
+		SpearalDecoder decoder2 = factory.newDecoder(new ByteArrayInputStream(new byte[0]));
+		Assert.assertSame(decoder, decoder2);
+		Assert.assertFalse(decoder2.isTreeMode());
+	}
+
+	@Test
+	public void testExposedBuffer() throws IOException {
+		PooledSpearalFactory factory = new PooledSpearalFactory();
+		
+		SpearalByteArrayEncoder encoder = factory.newByteArrayEncoder();
+		encoder.writeAny("abc");
+		byte[] buffer = encoder.getBuffer();
+		ByteBuffer view = encoder.toByteBuffer();
+		byte[] data = encoder.toByteArray();
+		factory.release(encoder);
+		
+		SpearalByteArrayEncoder encoder2 = factory.newByteArrayEncoder();
+		Assert.assertSame(encoder, encoder2);
+		encoder2.writeAny("def");
+		Assert.assertNotSame(buffer, encoder2.getBuffer());
+		Assert.assertArrayEquals(data, Arrays.copyOf(buffer, data.length));
+		Assert.assertEquals(ByteBuffer.wrap(data), view);
+		Assert.assertEquals("abc", decode(data));
+		Assert.assertEquals("def", decode(encoder2.toByteArray()));
+		factory.release(encoder2);
+	}
+	
+	@Test
+	public void testRetainedCapacity() throws IOException {
+		PooledSpearalFactory factory = new PooledSpearalFactory(true, 4096);
+		
+		SpearalByteArrayEncoder encoder = factory.newByteArrayEncoder();
+		encoder.writeAny(new byte[16 * 1024]);
+		Assert.assertTrue(encoder.size() > 16 * 1024);
+		factory.release(encoder);
+		
+		SpearalByteArrayEncoder encoder2 = factory.newByteArrayEncoder();
+		Assert.assertSame(encoder, encoder2);
+		Assert.assertTrue(encoder2.getBuffer().length <= 4096);
+		encoder2.writeAny("abc");
+		Assert.assertEquals("abc", decode(encoder2.toByteArray()));
+	}
+}
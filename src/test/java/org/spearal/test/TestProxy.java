@@ -27,6 +27,8 @@ import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
+import org.spearal.configuration.PartialObjectFactory.UndefinedPropertyException;
+import org.spearal.impl.partial.InterfaceBean;
 import org.spearal.test.model.Nameable;
 
 /**
@@ -72,6 +74,25 @@ public class TestProxy extends AbstractSpearalTestUnit {
 		Nameable nameable = (Nameable)clone;
 		Assert.assertEquals("John", nameable.getFirstName());
 		Assert.assertEquals("Doo", nameable.getLastName());
+		
+		InterfaceBean bean = (InterfaceBean)clone;
+		Assert.assertFalse(bean.$hasUndefinedProperties());
+		Assert.assertTrue(bean.$undefine("firstName"));
+		Assert.assertFalse(bean.$isDefined("firstName"));
+		Assert.assertTrue(bean.$hasUndefinedProperties());
+		try {
+			nameable.getFirstName();
+			Assert.fail("Should throw an undefined exception");
+		}
+		catch (UndefinedPropertyException e) {
+		}
+		
+		nameable.setFirstName("Jane");
+		Assert.assertEquals("Jane", nameable.getFirstName());
+		
+		Nameable copy = (Nameable)encodeDecode(clone, -1);
+		Assert.assertEquals("Jane", copy.getFirstName());
+		Assert.assertEquals("Doo", copy.getLastName());
 	}
 	
 	private Object encodeDecode(Object value, int expectedSize) throws IOException {
@@ -80,8 +101,10 @@ public class TestProxy extends AbstractSpearalTestUnit {
 		
 		if (expectedSize >= 0)
 			Assert.assertEquals(expectedSize, data.length);
-		if (!Proxy.isProxyClass(clone.getClass()))
-			Assert.fail("Not a Proxy: " + clone);
+		if (!(clone instanceof InterfaceBean))
+			Assert.fail("Not an InterfaceBean: " + clone);
+		if (!Proxy.isProxyClass(((InterfaceBean)clone).$getActualClass()))
+			Assert.fail("Not a Proxy actual class: " + clone);
 		return clone;
 	}
 }
@@ -0,0 +1,200 @@
+/**
+ * == @Spearal ==>
+ * 
+ * Copyright (C) 2014 Franck WOLFF & William DRAI (http://www.spearal.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spearal.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.spearal.DefaultSpearalFactory;
+import org.spearal.SpearalContext;
+import org.spearal.configuration.PartialObjectFactory.PartialObjectProxy;
+import org.spearal.configuration.PropertyFactory.Property;
+import org.spearal.impl.partial.JavassistPartialObjectFactory;
+import org.spearal.impl.partial.ProxyClassesGenerator;
+import org.spearal.test.model.ChildBean;
+
+/**
+ * @author Franck WOLFF
+ */
+public class TestProxyClassCache extends AbstractSpearalTestUnit {
+	
+	private final List<File> directories = new ArrayList<File>();
+	
+	@After
+	public void tearDown() {
+		for (File directory : directories)
+			deleteRecursively(directory);
+		directories.clear();
+	}
+
+	@Test
+	public void testDirectoryCache() throws Exception {
+		File directory = createTempDirectory();
+		
+		Object proxy1 = instantiatePartial(new ModelClassLoader(), new JavassistPartialObjectFactory(directory));
+		String[] files = directory.list();
+		Assert.assertEquals(1, files.length);
+		Assert.assertTrue(files[0].startsWith(ChildBean.class.getName() + "-"));
+		
+		// A second run loads the cached class instead of generating a new one.
+		ModelClassLoader loader = new ModelClassLoader();
+		Object proxy2 = instantiatePartial(loader, new JavassistPartialObjectFactory(directory));
+		Assert.assertEquals(proxy1.getClass().getName(), proxy2.getClass().getName());
+		Assert.assertSame(loader, proxy2.getClass().getClassLoader());
+		Assert.assertEquals(1, directory.list().length);
+		
+		checkProxy(proxy2);
+	}
+
+	@Test
+	public void testGeneratedResources() throws Exception {
+		File directory = createTempDirectory();
+		
+		ModelClassLoader loader = new ModelClassLoader();
+		ProxyClassesGenerator.generate(directory, loader, ChildBean.class.getPackage().getName());
+		File proxiesDirectory = new File(directory, "META-INF/spearal/proxies");
+		Assert.assertTrue(proxiesDirectory.list().length > 0);
+		String name = null;
+		for (String file : proxiesDirectory.list()) {
+			if (file.startsWith(ChildBean.class.getName() + "-"))
+				name = file;
+		}
+		Assert.assertNotNull(name);
+		
+		loader = new ModelClassLoader();
+		loader.resourcesDirectory = directory;
+		Object proxy = instantiatePartial(loader, new JavassistPartialObjectFactory(createTempDirectory()));
+		Assert.assertTrue(proxy.getClass().getName().startsWith(ChildBean.class.getName()));
+		Assert.assertSame(loader, proxy.getClass().getClassLoader());
+		Assert.assertTrue(loader.proxyResourceLoaded);
+		
+		checkProxy(proxy);
+	}
+	
+	private static Object instantiatePartial(ClassLoader loader, JavassistPartialObjectFactory partialObjectFactory) throws Exception {
+		Class<?> cls = loader.loadClass(ChildBean.class.getName());
+		Assert.assertNotSame(ChildBean.class, cls);
+		
+		SpearalContext context = new DefaultSpearalFactory().getContext();
+		context.configure(partialObjectFactory);
+		
+		Property[] properties = context.getProperties(cls).clone();
+		for (int i = 0; i < properties.length; i++) {
+			if (!"childDoubleProperty".equals(properties[i].getName()))
+				properties[i] = null;
+		}
+		return context.instantiatePartial(cls, properties);
+	}
+	
+	private static void checkProxy(Object proxy) throws Exception {
+		Assert.assertTrue(proxy instanceof PartialObjectProxy);
+		Assert.assertTrue(((PartialObjectProxy)proxy).$isDefined("childDoubleProperty"));
+		Assert.assertFalse(((PartialObjectProxy)proxy).$isDefined("childBooleanProperty"));
+		
+		Method setter = proxy.getClass().getMethod("setChildDoubleProperty", double.class);
+		Method getter = proxy.getClass().getMethod("getChildDoubleProperty");
+		setter.invoke(proxy, Double.valueOf(3.5));
+		Assert.assertEquals(Double.valueOf(3.5), getter.invoke(proxy));
+		
+		proxy.getClass().getMethod("setChildBooleanProperty", boolean.class).invoke(proxy, Boolean.TRUE);
+		Assert.assertTrue(((PartialObjectProxy)proxy).$isDefined("childBooleanProperty"));
+	}
+	
+	private File createTempDirectory() throws IOException {
+		File directory = File.createTempFile("spearal", "proxies");
+		Assert.assertTrue(directory.delete() && directory.mkdir());
+		directories.add(directory);
+		return directory;
+	}
+	
+	/**
+	 * Loads its own copy of the test model classes, as a new JVM run would.
+	 */
+	private static class ModelClassLoader extends ClassLoader {
+		
+		private static final String MODEL_PACKAGE = ChildBean.class.getPackage().getName() + ".";
+		
+		File resourcesDirectory;
+		boolean proxyResourceLoaded;
+		
+		public ModelClassLoader() {
+			super(ModelClassLoader.class.getClassLoader());
+		}
+
+		@Override
+		protected synchronized Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+			if (!name.startsWith(MODEL_PACKAGE) || name.contains("_$$_"))
+				return super.loadClass(name, resolve);
+			
+			Class<?> cls = findLoadedClass(name);
+			if (cls == null) {
+				try {
+					byte[] bytes = readFully(getParent().getResourceAsStream(name.replace('.', '/') + ".class"));
+					cls = defineClass(name, bytes, 0, bytes.length);
+				}
+				catch (IOException e) {
+					throw new ClassNotFoundException(name, e);
+				}
+			}
+			if (resolve)
+				resolveClass(cls);
+			return cls;
+		}
+
+		@Override
+		public InputStream getResourceAsStream(String name) {
+			if (resourcesDirectory != null && name.startsWith("META-INF/spearal/proxies/")) {
+				File file = new File(resourcesDirectory, name);
+				if (file.isFile()) {
+					proxyResourceLoaded = true;
+					try {
+						return new FileInputStream(file);
+					}
+					catch (IOException e) {
+						throw new RuntimeException(e);
+					}
+				}
+			}
+			return super.getResourceAsStream(name);
+		}
+		
+		private static byte[] readFully(InputStream is) throws IOException {
+			if (is == null)
+				throw new IOException("Not found");
+			try {
+				ByteArrayOutputStream baos = new ByteArrayOutputStream();
+				byte[] buffer = new byte[1024];
+				for (int count = is.read(buffer); count != -1; count = is.read(buffer))
+					baos.write(buffer, 0, count);
+				return baos.toByteArray();
+			}
+			finally {
+				is.close();
+			}
+		}
+	}
+}
@@ -0,0 +1,159 @@
+/**
+ * == @Spearal ==>
+ * 
+ * Copyright (C) 2014 Franck WOLFF & William DRAI (http://www.spearal.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spearal.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.spearal.DefaultSpearalFactory;
+import org.spearal.SpearalEncoder;
+import org.spearal.SpearalFactory;
+import org.spearal.SpearalReader;
+import org.spearal.SpearalReader.Event;
+import org.spearal.test.model.SimpleBean;
+import org.spearal.test.model.SimpleEnum;
+
+/**
+ * @author Franck WOLFF
+ */
+public class TestReader extends AbstractSpearalTestUnit {
+
+	@Test
+	public void test() throws IOException {
+		SimpleBean bean = new SimpleBean(true, 3, 5.5, "abc");
+		
+		List<Object> list = new ArrayList<Object>();
+		list.add(bean);
+		list.add(bean);
+		list.add("abc");
+		list.add(new byte[] { 1, 2, 3 });
+		list.add(SimpleEnum.DEF);
+		
+		SpearalFactory factory = new DefaultSpearalFactory();
+		SpearalReader reader = factory.newReader(new ByteArrayInputStream(encode(factory, list, Long.valueOf(-12L))));
+		
+		Assert.assertEquals(Event.COLLECTION_START, reader.next());
+		Assert.assertEquals(5, reader.getSize());
+		Assert.assertEquals(0, reader.getIndex());
+		
+		Assert.assertEquals(Event.BEAN_START, reader.next());
+		Assert.assertEquals(1, reader.getIndex());
+		Assert.assertEquals(4, reader.getSize());
+		Assert.assertTrue(reader.getString().startsWith(SimpleBean.class.getName() + "#"));
+		Assert.assertEquals(2, reader.getDepth());
+		
+		Map<String, Object> properties = new HashMap<String, Object>();
+		for (int i = 0; i < 4; i++) {
+			Assert.assertEquals(Event.PROPERTY, reader.next());
+			String name = reader.getString();
+			switch (reader.next()) {
+			case BOOLEAN:
+				properties.put(name, Boolean.valueOf(reader.getBoolean()));
+				break;
+			case INTEGRAL:
+				properties.put(name, Long.valueOf(reader.getLong()));
+				break;
+			case FLOATING:
+				properties.put(name, Double.valueOf(reader.getDouble()));
+				break;
+			case STRING:
+				properties.put(name, reader.getString());
+				break;
+			default:
+				Assert.fail("Unexpected event: " + reader.getEvent());
+			}
+		}
+		Assert.assertEquals(Boolean.TRUE, properties.get("booleanValue"));
+		Assert.assertEquals(Long.valueOf(3L), properties.get("intValue"));
+		Assert.assertEquals(Double.valueOf(5.5), properties.get("doubleValue"));
+		Assert.assertEquals("abc", properties.get("stringValue"));
+		
+		Assert.assertEquals(Event.BEAN_END, reader.next());
+		Assert.assertEquals(1, reader.getIndex());
+		
+		Assert.assertEquals(Event.BEAN_REFERENCE, reader.next());
+		Assert.assertEquals(1, reader.getIndex());
+		
+		Assert.assertEquals(Event.STRING, reader.next());
+		Assert.assertEquals("abc", reader.getString());
+		
+		Assert.assertEquals(Event.BYTE_ARRAY, reader.next());
+		Assert.assertEquals(3, reader.getSize());
+		Assert.assertArrayEquals(new byte[] { 1, 2, 3 }, reader.readByteArray());
+		
+		Assert.assertEquals(Event.ENUM, reader.next());
+		Assert.assertEquals(SimpleEnum.class.getName(), reader.getClassName());
+		Assert.assertEquals("DEF", reader.getString());
+		
+		Assert.assertEquals(Event.COLLECTION_END, reader.next());
+		Assert.assertEquals(0, reader.getDepth());
+		
+		Assert.assertEquals(Event.INTEGRAL, reader.next());
+		Assert.assertEquals(-12L, reader.getLong());
+		
+		Assert.assertEquals(Event.END_OF_STREAM, reader.next());
+	}
+	
+	@Test
+	public void testSkip() throws IOException {
+		SimpleBean bean = new SimpleBean(false, -5, -10.09, "def");
+		
+		List<Object> list = new ArrayList<Object>();
+		list.add(bean);
+		list.add(new byte[] { 1, 2, 3 });
+		list.add(bean);
+		
+		Map<String, Object> map = new HashMap<String, Object>();
+		map.put("list", list);
+		
+		SpearalFactory factory = new DefaultSpearalFactory();
+		SpearalReader reader = factory.newReader(new ByteArrayInputStream(encode(factory, map, list, "end")));
+		
+		Assert.assertEquals(Event.MAP_START, reader.next());
+		Assert.assertEquals(Event.STRING, reader.next());
+		Assert.assertEquals(Event.COLLECTION_START, reader.next());
+		Assert.assertEquals(Event.BEAN_START, reader.next());
+		reader.skip();
+		Assert.assertEquals(Event.BYTE_ARRAY, reader.next());
+		Assert.assertEquals(Event.BEAN_REFERENCE, reader.next());
+		Assert.assertEquals(Event.COLLECTION_END, reader.next());
+		Assert.assertEquals(Event.MAP_END, reader.next());
+		
+		Assert.assertEquals(Event.COLLECTION_REFERENCE, reader.next());
+		Assert.assertEquals(1, reader.getIndex());
+		
+		Assert.assertEquals(Event.STRING, reader.next());
+		Assert.assertEquals("end", reader.getString());
+		Assert.assertEquals(Event.END_OF_STREAM, reader.next());
+	}
+	
+	private static byte[] encode(SpearalFactory factory, Object... values) throws IOException {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		SpearalEncoder encoder = factory.newEncoder(baos);
+		for (Object value : values)
+			encoder.writeAny(value);
+		return baos.toByteArray();
+	}
+}
@@ -0,0 +1,109 @@
+/**
+ * == @Spearal ==>
+ * 
+ * Copyright (C) 2014 Franck WOLFF & William DRAI (http://www.spearal.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spearal.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.spearal.DefaultSpearalFactory;
+import org.spearal.SpearalDecoder;
+import org.spearal.SpearalEncoder;
+import org.spearal.SpearalFactory;
+import org.spearal.SpearalReader;
+import org.spearal.SpearalReader.Event;
+import org.spearal.test.model.SimpleBean;
+
+/**
+ * @author Franck WOLFF
+ */
+public class TestResetReferences extends AbstractSpearalTestUnit {
+
+	@Before
+	public void setUp() throws Exception {
+		// printStream = System.out;
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		printStream = NULL_PRINT_STREAM;
+	}
+	
+	@Test
+	public void testResetReferences() throws IOException {
+		SimpleBean bean = new SimpleBean(true, 3, 5.09, "abc");
+		SpearalFactory factory = new DefaultSpearalFactory();
+		
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		SpearalEncoder encoder = factory.newEncoder(baos);
+		encoder.writeAny(bean);
+		int first = baos.size();
+		encoder.writeAny(bean);
+		int reference = baos.size() - first;
+		encoder.resetReferences();
+		encoder.writeAny(bean);
+		Assert.assertEquals(first + 1, baos.size() - first - reference);
+		
+		byte[] bytes = baos.toByteArray();
+		
+		SpearalDecoder decoder = factory.newDecoder(new ByteArrayInputStream(bytes));
+		Object value1 = decoder.readAny();
+		Object value2 = decoder.readAny();
+		Object value3 = decoder.readAny();
+		Assert.assertEquals(bean, value1);
+		Assert.assertSame(value1, value2);
+		Assert.assertEquals(bean, value3);
+		Assert.assertNotSame(value1, value3);
+		
+		decoder = factory.newDecoder(new ByteArrayInputStream(bytes));
+		decoder.skipAny();
+		decoder.skipAny();
+		Assert.assertEquals(bean, decoder.readAny());
+		
+		SpearalReader reader = factory.newReader(new ByteArrayInputStream(bytes));
+		int beans = 0;
+		for (Event event = reader.next(); event != Event.END_OF_STREAM; event = reader.next()) {
+			if (event == Event.BEAN_START)
+				beans++;
+		}
+		Assert.assertEquals(2, beans);
+	}
+	
+	@Test
+	public void testReferencesWindow() throws IOException {
+		SpearalFactory factory = new DefaultSpearalFactory();
+		
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		SpearalEncoder encoder = factory.newEncoder(baos);
+		encoder.setReferencesWindow(3);
+		for (int i = 0; i < 10; i++) {
+			encoder.writeAny("abc" + (i % 2));
+			encoder.writeAny(new SimpleBean(true, i, 5.09, "abc"));
+		}
+		
+		SpearalDecoder decoder = factory.newDecoder(new ByteArrayInputStream(baos.toByteArray()));
+		for (int i = 0; i < 10; i++) {
+			Assert.assertEquals("abc" + (i % 2), decoder.readAny());
+			Assert.assertEquals(new SimpleBean(true, i, 5.09, "abc"), decoder.readAny());
+		}
+	}
+}
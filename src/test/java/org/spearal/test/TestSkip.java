@@ -0,0 +1,237 @@
+/**
+ * == @Spearal ==>
+ * 
+ * Copyright (C) 2014 Franck WOLFF & William DRAI (http://www.spearal.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spearal.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.spearal.DefaultSpearalFactory;
+import org.spearal.SpearalByteArrayEncoder;
+import org.spearal.SpearalDecoder;
+import org.spearal.SpearalEncoder;
+import org.spearal.SpearalFactory;
+import org.spearal.configuration.AliasStrategy;
+import org.spearal.test.model.ChildBean;
+import org.spearal.test.model.SimpleBean;
+import org.spearal.test.model.SimpleEnum;
+
+/**
+ * @author Franck WOLFF
+ */
+public class TestSkip extends AbstractSpearalTestUnit {
+
+	@SuppressWarnings("boxing")
+	@Test
+	public void test() throws IOException {
+		ChildBean bean = new ChildBean(56, "parent", false, 3.001);
+		bean.getSimpleBeans().add(new SimpleBean(true, 3, 5.09, "abc"));
+		bean.getSimpleBeans().add(new SimpleBean(false, -5, -10.09, "abc"));
+		
+		Map<Object, Object> map = new HashMap<Object, Object>();
+		map.put("abc", new byte[] { 1, 2, 3 });
+		map.put(Long.MIN_VALUE, Double.MAX_VALUE);
+		
+		List<Object> values = new ArrayList<Object>();
+		values.add(null);
+		values.add(true);
+		values.add(-256);
+		values.add(0.5);
+		values.add(new BigInteger("-123456789012345678901234567890"));
+		values.add(new BigDecimal("1.23456789012345678901234567890E-10"));
+		values.add(new Date());
+		Timestamp timestamp = new Timestamp(0L);
+		timestamp.setNanos(999999999);
+		values.add(timestamp);
+		values.add(SimpleEnum.DEF);
+		values.add(Date.class);
+		values.add(map);
+		values.add(bean);
+		values.add(new int[] { 1, 2, 3 });
+		
+		SpearalFactory factory = new DefaultSpearalFactory();
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		SpearalEncoder encoder = factory.newEncoder(baos);
+		for (Object value : values)
+			encoder.writeAny(value);
+		encoder.writeAny("abc");
+		encoder.writeAny("end");
+		
+		SpearalDecoder decoder = factory.newDecoder(new ByteArrayInputStream(baos.toByteArray()));
+		for (int i = 0; i < values.size(); i++)
+			decoder.skipAny();
+		Assert.assertEquals("abc", decoder.readAny());
+		Assert.assertEquals("end", decoder.readAny());
+	}
+	
+	@Test
+	public void testSkippedReference() throws IOException {
+		List<Object> list = new ArrayList<Object>();
+		list.add("abc");
+		
+		SpearalFactory factory = new DefaultSpearalFactory();
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		SpearalEncoder encoder = factory.newEncoder(baos);
+		encoder.writeAny(list);
+		encoder.writeAny(list);
+		
+		byte[] data = baos.toByteArray();
+		
+		// In-memory input: the skipped list is decoded again from its offset.
+		SpearalDecoder decoder = factory.newDecoder(data, 0, data.length);
+		decoder.skipAny();
+		Assert.assertEquals(list, decoder.readAny());
+		
+		// Stream input: the skipped data is gone.
+		decoder = factory.newDecoder(new ByteArrayInputStream(data));
+		decoder.skipAny();
+		try {
+			decoder.readAny();
+			Assert.fail("Should have rejected a reference to a skipped object");
+		}
+		catch (IOException e) {
+			Assert.assertTrue(e.getMessage().startsWith("Illegal reference to a skipped object"));
+		}
+	}
+	
+	@Test
+	public void testNoInstantiation() throws IOException {
+		List<Object> values = new ArrayList<Object>();
+		CountingBean bean = new CountingBean();
+		bean.child = new CountingBean();
+		values.add(bean);
+		values.add(new CountingBean[] { new CountingBean(), bean.child });
+		Map<String, CountingBean> map = new HashMap<String, CountingBean>();
+		map.put("abc", new CountingBean());
+		values.add(map);
+		
+		SpearalFactory factory = new DefaultSpearalFactory();
+		SpearalEncoder encoder = factory.newByteArrayEncoder();
+		for (Object value : values)
+			encoder.writeAny(value);
+		encoder.writeAny("end");
+		byte[] data = ((SpearalByteArrayEncoder)encoder).toByteArray();
+		
+		CountingBean.instances.set(0);
+		SpearalDecoder decoder = factory.newDecoder(data, 0, data.length);
+		for (int i = 0; i < values.size(); i++)
+			decoder.skipAny();
+		Assert.assertEquals("end", decoder.readAny());
+		Assert.assertEquals(0, CountingBean.instances.get());
+		
+		decoder = factory.newDecoder(new ByteArrayInputStream(data));
+		for (int i = 0; i < values.size(); i++)
+			decoder.skipAny();
+		Assert.assertEquals("end", decoder.readAny());
+		Assert.assertEquals(0, CountingBean.instances.get());
+	}
+	
+	@Test
+	public void testSkippedNestedReferences() throws IOException {
+		CountingBean bean = new CountingBean();
+		bean.name = "parent";
+		bean.child = new CountingBean();
+		bean.child.name = "child";
+		
+		SpearalFactory factory = new DefaultSpearalFactory();
+		SpearalByteArrayEncoder encoder = factory.newByteArrayEncoder();
+		encoder.writeAny(bean);
+		encoder.writeAny(bean.child);
+		encoder.writeAny(bean);
+		encoder.writeAny("child");
+		byte[] data = encoder.toByteArray();
+		
+		// The inner object is referenced first: the whole skipped value is
+		// decoded again, so both references keep their identity.
+		SpearalDecoder decoder = factory.newDecoder(data, 0, data.length);
+		decoder.skipAny();
+		CountingBean child = (CountingBean)decoder.readAny();
+		Assert.assertEquals("child", child.name);
+		CountingBean parent = (CountingBean)decoder.readAny();
+		Assert.assertEquals("parent", parent.name);
+		Assert.assertSame(child, parent.child);
+		// Strings read again keep their original indices.
+		Assert.assertEquals("child", decoder.readAny());
+	}
+	
+	@Test
+	public void testSkippedSharedProperty() throws IOException {
+		V1Holder holder = new V1Holder();
+		holder.a = new SimpleBean(true, 3, 5.09, "abc");
+		holder.b = holder.a;
+		
+		byte[] data = encode(holder);
+		
+		SpearalFactory factory = new DefaultSpearalFactory();
+		factory.getContext().configure(new AliasStrategy() {
+			@Override
+			public String alias(Class<?> cls) {
+				return cls.getName();
+			}
+			@Override
+			public String unalias(String aliasedClassName) {
+				return aliasedClassName.replace("$V1Holder", "$V2Holder");
+			}
+		});
+		
+		SpearalDecoder decoder = factory.newDecoder(data, 0, data.length);
+		V2Holder clone = (V2Holder)decoder.readAny();
+		Assert.assertEquals(holder.b, clone.b);
+	}
+	
+	public static class CountingBean implements Serializable {
+		
+		private static final long serialVersionUID = 1L;
+		
+		static final AtomicInteger instances = new AtomicInteger();
+		
+		public String name;
+		public CountingBean child;
+		
+		public CountingBean() {
+			instances.incrementAndGet();
+		}
+	}
+	
+	public static class V1Holder implements Serializable {
+		
+		private static final long serialVersionUID = 1L;
+		
+		public SimpleBean a;
+		public SimpleBean b;
+	}
+	
+	public static class V2Holder implements Serializable {
+		
+		private static final long serialVersionUID = 1L;
+		
+		public SimpleBean b;
+	}
+}
@@ -17,12 +17,20 @@
  */
 package org.spearal.test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
 
 import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
+import org.spearal.DefaultSpearalFactory;
+import org.spearal.SpearalEncoder;
+import org.spearal.SpearalFactory;
+import org.spearal.impl.SpearalEncoderImpl;
 
 /**
  * @author Franck WOLFF
@@ -59,6 +67,78 @@ public class TestString extends AbstractSpearalTestUnit {
 		encodeDecode(sb.toString(), 4382593);
 	}
 	
+	@Test
+	public void testUTF8Bytes() throws IOException {
+		Charset utf8 = Charset.forName("UTF-8");
+		
+		String[] values = {
+			"abc\u00e9\u20ac",
+			"\ud800abc",
+			"abc\udc00",
+			"\udbff\udfff\ud800",
+			"\udfff\ud800"
+		};
+		for (String value : values) {
+			byte[] data = encode(value);
+			byte[] expected = value.getBytes(utf8);
+			Assert.assertArrayEquals(expected, Arrays.copyOfRange(data, data.length - expected.length, data.length));
+		}
+		
+		// Surrogate pairs crossing the encoder buffer boundaries.
+		for (int length = 1020; length < 1030; length++) {
+			StringBuilder sb = new StringBuilder();
+			while (sb.length() < length)
+				sb.append("a\u00e9\ud83d\ude00");
+			sb.append("xxxx");
+			String value = sb.toString();
+			
+			byte[] data = encode(value);
+			byte[] expected = value.getBytes(utf8);
+			Assert.assertArrayEquals(expected, Arrays.copyOfRange(data, data.length - expected.length, data.length));
+			Assert.assertEquals(value, decode(data, String.class));
+		}
+	}
+	
+	@Test
+	public void testLongStringRefills() throws IOException {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; sb.length() < 5000; i++)
+			sb.append(i % 3 == 0 ? "abc" : "\u00e9\u20ac\ud83d\ude00");
+		String value = sb.toString();
+		
+		SpearalFactory factory = new DefaultSpearalFactory();
+		byte[] data = encode(factory, value);
+		
+		// Return at most 7 bytes per read, so that multi-byte sequences are split across refills.
+		ByteArrayInputStream in = new ByteArrayInputStream(data) {
+			@Override
+			public synchronized int read(byte[] b, int off, int len) {
+				return super.read(b, off, Math.min(len, 7));
+			}
+		};
+		Assert.assertEquals(value, factory.newDecoder(in).readAny());
+	}
+	
+	@Test
+	public void testTinyBuffers() throws IOException {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 50; i++)
+			sb.append(i % 3 == 0 ? "a" : (i % 3 == 1 ? "\u20ac" : "\ud83d\ude00"));
+		String[] values = { "abcdefghijkl", "\ud83d\ude00\ud83d\ude01\ud83d\ude02", "a\ud83d\ude00", sb.toString() };
+		
+		SpearalFactory factory = new DefaultSpearalFactory();
+		for (String value : values) {
+			byte[] expected = encode(factory, value);
+			for (int capacity = 1; capacity <= 8; capacity++) {
+				ByteArrayOutputStream baos = new ByteArrayOutputStream();
+				SpearalEncoder encoder = new SpearalEncoderImpl(factory.getContext(), baos, capacity);
+				encoder.writeAny(value);
+				Assert.assertArrayEquals("capacity=" + capacity, expected, baos.toByteArray());
+				Assert.assertEquals(value, decode(factory, baos.toByteArray(), String.class));
+			}
+		}
+	}
+	
 	private void encodeDecode(String value, int expectedSize) throws IOException {
 		byte[] data = encode(value);
 		String clone = decode(data, String.class);
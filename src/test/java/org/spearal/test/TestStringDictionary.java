@@ -0,0 +1,138 @@
+/**
+ * == @Spearal ==>
+ * 
+ * Copyright (C) 2014 Franck WOLFF & William DRAI (http://www.spearal.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spearal.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.spearal.DefaultSpearalFactory;
+import org.spearal.SpearalDecoder;
+import org.spearal.SpearalEncoder;
+import org.spearal.SpearalFactory;
+import org.spearal.SpearalReader;
+import org.spearal.SpearalReader.Event;
+import org.spearal.impl.dictionary.StaticStringDictionary;
+import org.spearal.impl.dictionary.StringDictionaryTrainer;
+import org.spearal.test.model.SimpleBean;
+import org.spearal.test.model.SimpleEnum;
+
+/**
+ * @author Franck WOLFF
+ */
+public class TestStringDictionary extends AbstractSpearalTestUnit {
+
+	@Before
+	public void setUp() throws Exception {
+		// printStream = System.out;
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		printStream = NULL_PRINT_STREAM;
+	}
+	
+	@Test
+	public void testDictionary() throws IOException {
+		SimpleBean bean = new SimpleBean(true, 3, 5.09, "abc");
+		byte[] plain = encode(bean);
+		
+		StringDictionaryTrainer trainer = new StringDictionaryTrainer();
+		for (int i = 0; i < 3; i++)
+			trainer.addSample(encode(new SimpleBean(i % 2 == 0, i, i * 1.5, "abc")));
+		trainer.addSample(encode(SimpleEnum.DEF));
+		StaticStringDictionary dictionary = trainer.train(StringDictionaryTrainer.DEFAULT_MAX_STRINGS);
+		
+		String[] strings = dictionary.getStrings();
+		Assert.assertEquals(2, strings.length);
+		Assert.assertTrue(strings[0].startsWith(SimpleBean.class.getName() + "#"));
+		Assert.assertEquals("abc", strings[1]);
+		
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		dictionary.store(baos);
+		dictionary = StaticStringDictionary.load(new ByteArrayInputStream(baos.toByteArray()));
+		Assert.assertEquals(Arrays.asList(strings), Arrays.asList(dictionary.getStrings()));
+		
+		SpearalFactory serverFactory = new DefaultSpearalFactory();
+		serverFactory.getContext().configure(dictionary);
+		SpearalFactory clientFactory = new DefaultSpearalFactory();
+		clientFactory.getContext().configure(dictionary);
+		
+		byte[] compact = encode(serverFactory, bean);
+		Assert.assertTrue(compact.length < plain.length / 2);
+		Assert.assertEquals(bean, decode(clientFactory, compact, null));
+		
+		SpearalReader reader = clientFactory.newReader(new ByteArrayInputStream(compact));
+		Assert.assertEquals(Event.BEAN_START, reader.next());
+		Assert.assertEquals(strings[0], reader.getString());
+		
+		// After a references reset, dictionary strings are still available.
+		baos = new ByteArrayOutputStream();
+		SpearalEncoder encoder = serverFactory.newEncoder(baos);
+		encoder.writeAny(bean);
+		encoder.resetReferences();
+		encoder.writeAny(bean);
+		SpearalDecoder decoder = clientFactory.newDecoder(new ByteArrayInputStream(baos.toByteArray()));
+		Assert.assertEquals(bean, decoder.readAny());
+		Assert.assertEquals(bean, decoder.readAny());
+	}
+	
+	@Test
+	public void testIllegalDictionary() {
+		try {
+			new StaticStringDictionary("abc", "def", "abc");
+			Assert.fail("Should reject duplicated strings");
+		}
+		catch (IllegalArgumentException e) {
+		}
+	}
+	
+	@Test
+	public void testImmutableStrings() throws IOException {
+		StaticStringDictionary dictionary = new StaticStringDictionary("abc", "def");
+		dictionary.getStrings()[0] = "xyz";
+		Assert.assertEquals("abc", dictionary.getStrings()[0]);
+		
+		SpearalFactory factory = new DefaultSpearalFactory();
+		factory.getContext().configure(dictionary);
+		Assert.assertEquals(Arrays.asList("abc", "def"), Arrays.asList(factory.getContext().getDictionaryStrings()));
+	}
+	
+	@Test
+	public void testForgedCount() throws IOException {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		new StaticStringDictionary("abc").store(baos);
+		byte[] data = baos.toByteArray();
+		
+		// Count (after the magic number) set to Integer.MAX_VALUE.
+		data[4] = 0x7f;
+		data[5] = data[6] = data[7] = (byte)0xff;
+		try {
+			StaticStringDictionary.load(new ByteArrayInputStream(data));
+			Assert.fail("Should throw an EOFException");
+		}
+		catch (EOFException e) {
+		}
+	}
+}
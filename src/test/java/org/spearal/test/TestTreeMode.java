@@ -0,0 +1,111 @@
+/**
+ * == @Spearal ==>
+ * 
+ * Copyright (C) 2014 Franck WOLFF & William DRAI (http://www.spearal.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spearal.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.spearal.DefaultSpearalFactory;
+import org.spearal.SpearalDecoder;
+import org.spearal.SpearalEncoder;
+import org.spearal.SpearalFactory;
+import org.spearal.test.model.SimpleBean;
+
+/**
+ * @author Franck WOLFF
+ */
+public class TestTreeMode extends AbstractSpearalTestUnit {
+
+	@Before
+	public void setUp() throws Exception {
+		// printStream = System.out;
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		printStream = NULL_PRINT_STREAM;
+	}
+	
+	@Test
+	public void testSharedObjects() throws IOException {
+		SimpleBean bean = new SimpleBean(true, 3, 5.09, "abc");
+		List<Object> list = new ArrayList<Object>();
+		list.add(bean);
+		list.add(bean);
+		
+		SpearalFactory factory = new DefaultSpearalFactory();
+		byte[] graph = encode(factory, list);
+		byte[] tree = encodeTree(factory, list);
+		Assert.assertTrue(tree.length > graph.length);
+		
+		// Tree mode output is readable by any decoder.
+		List<?> clone = (List<?>)decode(tree);
+		Assert.assertEquals(2, clone.size());
+		Assert.assertNotSame(clone.get(0), clone.get(1));
+		Assert.assertEquals(bean, clone.get(0));
+		Assert.assertEquals(bean, clone.get(1));
+		
+		clone = (List<?>)decodeTree(factory, tree);
+		Assert.assertEquals(2, clone.size());
+		Assert.assertNotSame(clone.get(0), clone.get(1));
+		Assert.assertEquals(bean, clone.get(0));
+		Assert.assertEquals(bean, clone.get(1));
+		
+		try {
+			decodeTree(factory, graph);
+			Assert.fail("Should reject object references");
+		}
+		catch (IOException e) {
+		}
+	}
+	
+	@Test
+	public void testCycle() throws IOException {
+		List<Object> list = new ArrayList<Object>();
+		list.add("abc");
+		list.add(list);
+		
+		try {
+			encodeTree(new DefaultSpearalFactory(), list);
+			Assert.fail("Should detect a cycle");
+		}
+		catch (IOException e) {
+		}
+	}
+	
+	private static byte[] encodeTree(SpearalFactory factory, Object o) throws IOException {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		SpearalEncoder encoder = factory.newEncoder(baos);
+		encoder.setTreeMode(true);
+		encoder.writeAny(o);
+		return baos.toByteArray();
+	}
+	
+	private static Object decodeTree(SpearalFactory factory, byte[] bytes) throws IOException {
+		SpearalDecoder decoder = factory.newDecoder(new ByteArrayInputStream(bytes));
+		decoder.setTreeMode(true);
+		return decoder.readAny();
+	}
+}
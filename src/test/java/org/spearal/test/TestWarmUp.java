@@ -0,0 +1,152 @@
+/**
+ * == @Spearal ==>
+ * 
+ * Copyright (C) 2014 Franck WOLFF & William DRAI (http://www.spearal.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spearal.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.spearal.DefaultSpearalFactory;
+import org.spearal.SpearalContext;
+import org.spearal.SpearalDecoder;
+import org.spearal.configuration.PartialObjectFactory.PartialObjectProxy;
+import org.spearal.configuration.PropertyFactory.Property;
+import org.spearal.impl.introspector.IntrospectorImpl;
+import org.spearal.impl.util.PackageScanner;
+import org.spearal.test.model.ChildBean;
+import org.spearal.test.model.SimpleBean;
+
+/**
+ * @author Franck WOLFF
+ */
+public class TestWarmUp extends AbstractSpearalTestUnit {
+
+	@Test
+	public void testWarmUp() throws IOException {
+		CountingIntrospector introspector = new CountingIntrospector();
+		DefaultSpearalFactory factory = new DefaultSpearalFactory();
+		factory.getContext().configure(introspector);
+		
+		factory.getContext().warmUp(ChildBean.class, SimpleBean.class);
+		int count = introspector.count.get();
+		Assert.assertTrue(count > 0);
+		
+		checkRoundTrip(factory);
+		Assert.assertEquals(count, introspector.count.get());
+	}
+
+	@Test
+	public void testPackageWarmUp() throws IOException {
+		List<Class<?>> classes = PackageScanner.findClasses(getClass().getClassLoader(), SimpleBean.class.getPackage().getName());
+		Assert.assertTrue(classes.contains(SimpleBean.class));
+		Assert.assertTrue(classes.contains(ChildBean.class));
+		Assert.assertFalse(classes.contains(getClass()));
+		
+		CountingIntrospector introspector = new CountingIntrospector();
+		DefaultSpearalFactory factory = new DefaultSpearalFactory();
+		factory.getContext().configure(introspector);
+		
+		factory.getContext().warmUp(getClass().getClassLoader(), SimpleBean.class.getPackage().getName());
+		int count = introspector.count.get();
+		Assert.assertTrue(count > 0);
+		
+		checkRoundTrip(factory);
+		Assert.assertEquals(count, introspector.count.get());
+	}
+
+	@Test
+	public void testParallelPackageWarmUp() throws IOException {
+		CountingIntrospector introspector = new CountingIntrospector();
+		DefaultSpearalFactory factory = new DefaultSpearalFactory();
+		factory.getContext().configure(introspector);
+		
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			factory.getContext().warmUp(executor, getClass().getClassLoader(), SimpleBean.class.getPackage().getName());
+		}
+		finally {
+			executor.shutdown();
+		}
+		int count = introspector.count.get();
+		Assert.assertTrue(count > 0);
+		
+		checkRoundTrip(factory);
+		Assert.assertEquals(count, introspector.count.get());
+	}
+	
+	@Test
+	public void testNoInstantiation() throws IOException {
+		DefaultSpearalFactory factory = new DefaultSpearalFactory();
+		
+		CountingBean.instances.set(0);
+		factory.getContext().warmUp(CountingBean.class);
+		Assert.assertEquals(0, CountingBean.instances.get());
+		
+		Assert.assertTrue(decode(factory, encode(factory, new CountingBean()), null) instanceof CountingBean);
+	}
+	
+	public static class CountingBean implements Serializable {
+		
+		private static final long serialVersionUID = 1L;
+		
+		static final AtomicInteger instances = new AtomicInteger();
+		
+		private String name;
+		
+		public CountingBean() {
+			instances.incrementAndGet();
+		}
+		
+		public String getName() {
+			return name;
+		}
+		
+		public void setName(String name) {
+			this.name = name;
+		}
+	}
+	
+	private void checkRoundTrip(DefaultSpearalFactory factory) throws IOException {
+		ChildBean bean = new ChildBean(56, "parent", false, 3.001);
+		bean.getSimpleBeans().add(new SimpleBean(true, 3, 5.09, "abc"));
+
+		SpearalDecoder decoder = factory.newDecoder(new ByteArrayInputStream(encode(factory, bean)));
+		Assert.assertEquals(bean, decoder.readAny());
+		
+		decoder = factory.newDecoder(new ByteArrayInputStream(encode(factory, new SimpleBean(true, 3, 5.09, "abc"))));
+		Assert.assertFalse(decoder.readAny() instanceof PartialObjectProxy);
+	}
+	
+	private static class CountingIntrospector extends IntrospectorImpl {
+		
+		final AtomicInteger count = new AtomicInteger();
+
+		@Override
+		protected Property[] introspectBeanProperties(SpearalContext context, Class<?> cls) {
+			if (cls.getPackage() == SimpleBean.class.getPackage())
+				count.incrementAndGet();
+			return super.introspectBeanProperties(context, cls);
+		}
+	}
+}
@@ -0,0 +1,131 @@
+/**
+ * == @Spearal ==>
+ * 
+ * Copyright (C) 2014 Franck WOLFF & William DRAI (http://www.spearal.io)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.spearal.test.model;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author Franck WOLFF
+ */
+public class FieldsBean implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	public boolean booleanValue;
+	public byte byteValue;
+	public short shortValue;
+	public int intValue;
+	public long longValue;
+	public float floatValue;
+	public double doubleValue;
+	public char charValue;
+	
+	public Boolean boxedBoolean;
+	public Integer boxedInt;
+	public Long boxedLong;
+	public Double boxedDouble;
+	public Float boxedFloat;
+	
+	protected String stringValue;
+	protected SimpleEnum enumValue;
+	
+	List<String> listValue;
+	Map<String, Integer> mapValue;
+	
+	private SimpleBean beanValue;
+
+	public String getStringValue() {
+		return stringValue;
+	}
+
+	public void setStringValue(String stringValue) {
+		this.stringValue = stringValue;
+	}
+
+	public SimpleEnum getEnumValue() {
+		return enumValue;
+	}
+
+	public void setEnumValue(SimpleEnum enumValue) {
+		this.enumValue = enumValue;
+	}
+
+	public List<String> getListValue() {
+		return listValue;
+	}
+
+	public void setListValue(List<String> listValue) {
+		this.listValue = listValue;
+	}
+
+	public Map<String, Integer> getMapValue() {
+		return mapValue;
+	}
+
+	public void setMapValue(Map<String, Integer> mapValue) {
+		this.mapValue = mapValue;
+	}
+
+	public SimpleBean getBeanValue() {
+		return beanValue;
+	}
+
+	public void setBeanValue(SimpleBean beanValue) {
+		this.beanValue = beanValue;
+	}
+
+	@Override
+	public int hashCode() {
+		return intValue + (stringValue == null ? 0 : stringValue.hashCode());
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj == this)
+			return true;
+		if (!(obj instanceof FieldsBean))
+			return false;
+		FieldsBean that = (FieldsBean)obj;
+		return (
+			booleanValue == that.booleanValue &&
+			byteValue == that.byteValue &&
+			shortValue == that.shortValue &&
+			intValue == that.intValue &&
+			longValue == that.longValue &&
+			Float.compare(floatValue, that.floatValue) == 0 &&
+			Double.compare(doubleValue, that.doubleValue) == 0 &&
+			charValue == that.charValue &&
+			equals(boxedBoolean, that.boxedBoolean) &&
+			equals(boxedInt, that.boxedInt) &&
+			equals(boxedLong, that.boxedLong) &&
+			equals(boxedDouble, that.boxedDouble) &&
+			equals(boxedFloat, that.boxedFloat) &&
+			equals(stringValue, that.stringValue) &&
+			enumValue == that.enumValue &&
+			equals(listValue, that.listValue) &&
+			equals(mapValue, that.mapValue) &&
+			equals(beanValue, that.beanValue)
+		);
+	}
+	
+	private static boolean equals(Object o1, Object o2) {
+		return (o1 == o2 || (o1 != null && o1.equals(o2)));
+	}
+}